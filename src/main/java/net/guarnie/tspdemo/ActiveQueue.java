@@ -0,0 +1,93 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Coda FIFO delle città "attive" per le euristiche di ricerca locale, con i
+ * relativi "don't-look bits" (vedi: J. L. Bentley, "Fast Algorithms for
+ * Geometric Traveling Salesman Problems", 1992).
+ *
+ * Una città e' attiva (non ha il bit impostato) finche' e' in coda: quando
+ * la ricerca a partire da essa non trova mosse migliorative resta fuori dalla
+ * coda, e vi rientra solo se una mossa successiva modifica uno dei suoi due
+ * archi. Ogni città compare in coda al massimo una volta.
+ */
+public class ActiveQueue {
+	/**
+	 * Vettore circolare che contiene la coda.
+	 */
+	private final int[] queue;
+
+	/**
+	 * Città presenti in coda.
+	 */
+	private final boolean[] active;
+
+	/**
+	 * Inizio e numero di elementi della coda.
+	 */
+	private int head, size;
+
+	/**
+	 * Costruttore della classe: coda vuota per le città con indice minore di
+	 * "tot".
+	 */
+	public ActiveQueue(int tot) {
+		queue = new int[tot];
+		active = new boolean[tot];
+	}
+
+	/**
+	 * Inserisce in coda tutte le città del circuito "t", nell'ordine in cui
+	 * sono visitate partendo dalla città "start".
+	 */
+	public final void pushTour(Tour t, int start) {
+		final int TOT = t.size();
+		int c = start;
+		for (int count = 0; count < TOT; count++) {
+			push(c);
+			c = t.next(c);
+		}
+	}
+
+	/**
+	 * Inserisce la città "c" in fondo alla coda (se non c'e' gia').
+	 */
+	public final void push(int c) {
+		if (active[c])
+			return;
+		active[c] = true;
+		int tail = head + size++;
+		queue[(tail < queue.length) ? tail : tail - queue.length] = c;
+	}
+
+	/**
+	 * Estrae la prima città della coda.
+	 */
+	public final int pop() {
+		int c = queue[head];
+		if (++head == queue.length)
+			head = 0;
+		size--;
+		active[c] = false;
+		return c;
+	}
+
+	/**
+	 * Verifica se la coda e' vuota.
+	 */
+	public final boolean isEmpty() {
+		return size == 0;
+	}
+}
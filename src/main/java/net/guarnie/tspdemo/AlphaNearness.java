@@ -0,0 +1,158 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Misura di "alpha-nearness" (vedi: K. Helsgaun, "An Effective Implementation
+ * of the Lin-Kernighan Traveling Salesman Heuristic", 2000) calcolata sul
+ * Minimum Spanning Tree delle distanze modificate d(i, j) + pi[i] + pi[j],
+ * dove pi e' il vettore delle penalità del lower bound di Held-Karp.
+ *
+ * Il valore alpha(i, j) e' l'aumento di lunghezza dell'albero quando si
+ * impone la presenza dell'arco (i, j): e' dato dalla differenza tra il costo
+ * dell'arco e quello dell'arco piu' lungo sul cammino tra i e j nell'albero
+ * (gli archi dell'albero hanno alpha nullo). Gli archi del circuito ottimo
+ * hanno quasi sempre alpha molto piccolo, per cui pochi candidati scelti con
+ * questo criterio sono piu' efficaci di molti candidati scelti in base alla
+ * distanza. Il nodo speciale dell'1-tree non viene considerato.
+ */
+public class AlphaNearness {
+	/**
+	 * Numero di città e penalità dei nodi (null se sono tutte nulle).
+	 */
+	private final int tot;
+	private final double[] pi;
+
+	/**
+	 * Padre di ogni città nell'albero (-1 per la radice) e costo modificato
+	 * dell'arco che la collega al padre.
+	 */
+	private final int[] dad;
+	private final double[] dadCost;
+
+	/**
+	 * Città nell'ordine in cui sono state inserite nell'albero (il padre
+	 * precede sempre i figli).
+	 */
+	private final int[] order;
+
+	/**
+	 * Costruisce il Minimum Spanning Tree delle prime "tot" città del vettore
+	 * "cities" con l'algoritmo di Prim in O(n^2) (le distanze sono quelle
+	 * dell'istanza corrente, modificate dalle penalità "pi").
+	 */
+	public AlphaNearness(City[] cities, int tot, double[] pi) {
+		this.tot = tot;
+		this.pi = pi;
+		dad = new int[tot];
+		dadCost = new double[tot];
+		order = new int[tot];
+		double[] key = new double[tot];
+		int[] free = new int[tot];
+		for (int count = 0; count < tot; count++) {
+			free[count] = cities[count].num;
+			key[count] = Double.POSITIVE_INFINITY;
+			dad[count] = -1;
+		}
+		int remaining = tot;
+		int next = 0;
+		double wid;
+		for (int count1 = 0; count1 < tot; count1++) {
+			int last = free[next];
+			free[next] = free[--remaining];
+			order[count1] = last;
+			next = 0;
+			for (int count2 = 0; count2 < remaining; count2++) {
+				int node = free[count2];
+				wid = cost(last, node);
+				if (wid < key[node]) {
+					key[node] = wid;
+					dad[node] = last;
+					dadCost[node] = wid;
+				}
+				if (key[node] < key[free[next]])
+					next = count2;
+			}
+		}
+	}
+
+	/**
+	 * Costo modificato dell'arco (i, j).
+	 */
+	private double cost(int i, int j) {
+		double d = Heuristic.dist(i, j);
+		return (pi == null) ? d : d + pi[i] + pi[j];
+	}
+
+	/**
+	 * Ricalcola la neighbours list della città "c" con le "k" città di alpha
+	 * minimo (a parita' di alpha quelle piu' vicine). La lista resta ordinata
+	 * per distanza, in modo da poter limitare la ricerca delle euristiche di
+	 * ricerca locale. Richiede tempo O(n).
+	 */
+	public final void nearest(City c, int k) {
+		final int I = c.num;
+		double[] beta = new double[tot];
+		boolean[] onPath = new boolean[tot];
+
+		//
+		// L'arco piu' lungo tra I e i nodi del cammino verso la radice...
+		//
+		beta[I] = Double.NEGATIVE_INFINITY;
+		onPath[I] = true;
+		for (int node = I; dad[node] != -1; node = dad[node]) {
+			beta[dad[node]] = Math.max(beta[node], dadCost[node]);
+			onPath[dad[node]] = true;
+		}
+
+		//
+		// ... e tra I e tutti gli altri nodi (il padre di ogni nodo e' gia'
+		// stato calcolato).
+		//
+		for (int count = 0; count < tot; count++) {
+			int node = order[count];
+			if (!onPath[node])
+				beta[node] = Math.max(beta[dad[node]], dadCost[node]);
+		}
+
+		//
+		// Seleziona i "k" nodi con alpha minimo.
+		//
+		int[] ids = new int[k];
+		double[] alphas = new double[k];
+		double[] dists = new double[k];
+		int size = 0;
+		for (int node = 0; node < tot; node++) {
+			if (node == I)
+				continue;
+			double d = Heuristic.dist(I, node);
+			double alpha = cost(I, node) - beta[node];
+			if ((size == k) && ((alpha > alphas[k - 1]) || ((alpha == alphas[k - 1]) && (d >= dists[k - 1]))))
+				continue;
+			int count = (size < k) ? size++ : k - 1;
+			while ((count > 0) && ((alphas[count - 1] > alpha) || ((alphas[count - 1] == alpha) && (dists[count - 1] > d)))) {
+				ids[count] = ids[count - 1];
+				alphas[count] = alphas[count - 1];
+				dists[count] = dists[count - 1];
+				count--;
+			}
+			ids[count] = node;
+			alphas[count] = alpha;
+			dists[count] = d;
+		}
+		c.clearNeighbours();
+		for (int count = 0; count < size; count++)
+			c.addCandidate(ids[count], dists[count]);
+	}
+}
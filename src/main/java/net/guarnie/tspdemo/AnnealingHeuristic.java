@@ -0,0 +1,280 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Simulated annealing (vedi: S. Kirkpatrick, C. D. Gelatt, M. P. Vecchi,
+ * "Optimization by Simulated Annealing", 1983; D. S. Johnson, L. A. McGeoch,
+ * "The Traveling Salesman Problem: A Case Study in Local Optimization",
+ * 1997) a partire dal circuito corrente.
+ *
+ * Ogni mossa collega una città scelta a caso ad un vicino preso dalla sua
+ * neighbours list, con una mossa 2-Opt oppure spostando accanto al vicino un
+ * segmento di 1..Tour.OR_OPT_MAX_LEN città (Or-Opt). La variazione di
+ * lunghezza si calcola in O(1) con sei distanze al massimo, e una mossa
+ * peggiorativa viene accettata con probabilità exp(-delta / T).
+ *
+ * La temperatura parte da un valore per cui una mossa peggiorativa media
+ * viene accettata con probabilità START_ACCEPTANCE e decresce
+ * geometricamente (T = T * coolingRate) ogni MOVES_PER_CITY * n mosse
+ * provate. La ricerca termina quando il sistema e' "congelato", allo
+ * scadere del tempo massimo o quando si raggiunge la lunghezza obiettivo
+ * (impostati in TspArea).
+ *
+ * Il ciclo interno non alloca memoria: il generatore di numeri casuali e'
+ * uno xorshift nei campi della classe.
+ */
+public class AnnealingHeuristic extends Heuristic {
+
+	/**
+	 * Codice di riconoscimento dell'algoritmo.
+	 */
+	final static int SIM_ANNEALING = 12;
+
+	/**
+	 * Fattore di raffreddamento di default.
+	 */
+	final static double DEF_COOLING_RATE = 0.95;
+
+	/**
+	 * Numero di mosse provate (per città) ad ogni temperatura.
+	 */
+	private final static int MOVES_PER_CITY = 10;
+
+	/**
+	 * Numero di mosse tra due controlli del tempo limite durante una
+	 * temperatura (che sulle istanze grandi dura anche diversi secondi).
+	 */
+	private final static int CHECK_MOVES = 1000;
+
+	/**
+	 * Probabilità iniziale di accettare una mossa peggiorativa media, e
+	 * numero di mosse campionate per stimarla.
+	 */
+	private final static double START_ACCEPTANCE = 0.1;
+	private final static int SAMPLE_MOVES = 1000;
+
+	/**
+	 * Il sistema e' congelato quando per FROZEN_LEVELS temperature
+	 * consecutive viene accettata meno di una mossa su FROZEN_RATIO.
+	 */
+	private final static int FROZEN_LEVELS = 5;
+	private final static int FROZEN_RATIO = 10000;
+
+	/**
+	 * Stato del generatore di numeri casuali (xorshift).
+	 */
+	private long seed = System.nanoTime() | 1;
+
+	/**
+	 * Lunghezza del circuito di lavoro.
+	 */
+	private double length;
+
+	/**
+	 * Costruttore della classe.
+	 */
+	public AnnealingHeuristic(TspFrame tFrame, int eID) {
+		super(tFrame, eID, -1, -1, -1, null);
+	}
+
+	/**
+	 * Simulated annealing con fattore di raffreddamento "coolingRate", per
+	 * al massimo "timeLimit" millisecondi o finche' il circuito non e' lungo
+	 * al piu' "target". tourSize e il circuito visualizzato cambiano solo
+	 * quando si trova un nuovo circuito migliore (alla fine di ogni
+	 * temperatura).
+	 */
+	private void anneal(long timeLimit, double target, double coolingRate) {
+		final long START = System.currentTimeMillis();
+		final long TRIALS = (long) MOVES_PER_CITY * totCities;
+		double bestSize = tourSize;
+		boolean improved = false;
+		int frozen = 0;
+		if (totCities < 8)
+			return;
+		setDeadline(START + timeLimit);
+		useTour(createTour());
+		try {
+			length = tourSize;
+			double temperature = startTemperature();
+			while ((bestSize > target) && (frozen < FROZEN_LEVELS) && !isExpired()) {
+				long accepted = 0;
+				for (long trial = 0; trial < TRIALS; trial++) {
+					if (tryMove(temperature))
+						accepted++;
+					if ((trial % CHECK_MOVES == CHECK_MOVES - 1) && isExpired())
+						break;
+				}
+				frozen = (accepted * FROZEN_RATIO < TRIALS) ? frozen + 1 : 0;
+				temperature *= coolingRate;
+
+				//
+				// Il circuito di lavoro e' il migliore trovato: viene ricopiato
+				// nel circuito corrente.
+				//
+				if (length < bestSize - MIN_GAIN) {
+					bestSize = length;
+					tourSize = length;
+					syncTour();
+					improved = true;
+				}
+				if (showProgress(START, timeLimit) && improved) {
+					improved = false;
+					showTour();
+				}
+			}
+		} finally {
+			//
+			// Il circuito corrente contiene gia' il migliore: quello di
+			// lavoro viene abbandonato.
+			//
+			useTour(tourArray);
+		}
+	}
+
+	/**
+	 * Temperatura iniziale: quella per cui la media delle variazioni positive
+	 * di SAMPLE_MOVES mosse 2-Opt casuali viene accettata con probabilità
+	 * START_ACCEPTANCE.
+	 */
+	private double startTemperature() {
+		double sum = 0;
+		int tot = 0;
+		for (int count = 0; count < SAMPLE_MOVES; count++) {
+			int a = nextInt(totCities);
+			City ca = citiesVector[a];
+			int b = ca.neighbourIds[nextInt(ca.neighboursSize)];
+			int a2 = tour.next(a);
+			int b2 = tour.next(b);
+			if ((b == a2) || (b2 == a))
+				continue;
+			double delta = dist(a, b) + dist(a2, b2) - dist(a, a2) - dist(b, b2);
+			if (delta > 0) {
+				sum += delta;
+				tot++;
+			}
+		}
+		return (tot == 0) ? MIN_GAIN : -(sum / tot) / Math.log(START_ACCEPTANCE);
+	}
+
+	/**
+	 * Prova una mossa casuale alla temperatura "temperature": restituisce
+	 * true se e' stata accettata (ed eseguita).
+	 */
+	private boolean tryMove(double temperature) {
+		int a = nextInt(totCities);
+		City ca = citiesVector[a];
+		if (ca.neighboursSize == 0)
+			return false;
+		int b = ca.neighbourIds[nextInt(ca.neighboursSize)];
+		long r = nextRandom();
+		double delta;
+
+		//
+		// Mossa 2-Opt: gli archi (a, a2) e (b, b2) vengono sostituiti da
+		// (a, b) e (a2, b2), con a2 e b2 successori (o predecessori) di a e b.
+		//
+		if ((r & 1) == 0) {
+			boolean succ = (r & 2) == 0;
+			int a2 = succ ? tour.next(a) : tour.prev(a);
+			int b2 = succ ? tour.next(b) : tour.prev(b);
+			if ((b == a2) || (b2 == a))
+				return false;
+			delta = dist(a, b) + dist(a2, b2) - dist(a, a2) - dist(b, b2);
+			if (!accept(delta, temperature))
+				return false;
+			if (succ)
+				tour.reverse(a2, b);
+			else
+				tour.reverse(b, a2);
+			length += delta;
+			return true;
+		}
+
+		//
+		// Mossa Or-Opt: il segmento s1..s2 (che inizia in a) viene tolto
+		// da tra p e n e inserito tra b e il suo successore c.
+		//
+		int len = 1 + (int) ((r >>> 2) % Tour.OR_OPT_MAX_LEN);
+		int s1 = a;
+		int s2 = a;
+		for (int count = 1; count < len; count++) {
+			s2 = tour.next(s2);
+			if (s2 == b)
+				return false;
+		}
+		int p = tour.prev(s1);
+		int n = tour.next(s2);
+		int c = tour.next(b);
+		if ((c == s1) || (n == p))
+			return false;
+		double forward = dist(b, s1) + dist(s2, c);
+		double backward = dist(b, s2) + dist(s1, c);
+		delta = Math.min(forward, backward) - dist(b, c)
+				+ dist(p, n) - dist(p, s1) - dist(s2, n);
+		if (!accept(delta, temperature))
+			return false;
+		tour.moveSegment(s1, s2, b, forward <= backward);
+		length += delta;
+		return true;
+	}
+
+	/**
+	 * Criterio di Metropolis: una mossa migliorativa viene sempre accettata,
+	 * una peggiorativa con probabilità exp(-delta / temperature).
+	 */
+	private boolean accept(double delta, double temperature) {
+		return (delta <= 0) || (nextDouble() < Math.exp(-delta / temperature));
+	}
+
+	/**
+	 * Restituisce il prossimo numero casuale (xorshift a 64 bit).
+	 */
+	private long nextRandom() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 7;
+		seed ^= seed << 17;
+		return seed;
+	}
+
+	/**
+	 * Restituisce un intero casuale tra 0 e "bound" - 1.
+	 */
+	private int nextInt(int bound) {
+		return (int) (((nextRandom() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Restituisce un numero casuale tra 0 (compreso) e 1.
+	 */
+	private double nextDouble() {
+		return (nextRandom() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		if (execID == SIM_ANNEALING)
+			anneal(Math.round(tspFrame.tspArea.getTimeLimit() * 1000),
+					tspFrame.tspArea.getTargetLength(), tspFrame.tspArea.getCoolingRate());
+		endRun();
+	}
+}
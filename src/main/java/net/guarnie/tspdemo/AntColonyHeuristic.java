@@ -0,0 +1,420 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ant Colony System (vedi: M. Dorigo, L. M. Gambardella, "Ant Colony System:
+ * A Cooperative Learning Approach to the Traveling Salesman Problem", 1997).
+ *
+ * Ad ogni iterazione alcune formiche (vedi MIN_ANTS) costruiscono un
+ * circuito ciascuna, in parallelo (fork/join). Dalla città corrente una
+ * formica sceglie tra le città libere della neighbours list: con probabilità
+ * Q0 quella con il valore tau * eta^BETA piu' alto (eta = 1 / distanza),
+ * altrimenti una a caso con probabilità proporzionale a quel valore; se i
+ * vicini sono gia' stati visitati sceglie la città libera piu' vicina. Ogni
+ * arco percorso perde parte del feromone (aggiornamento locale), per
+ * spingere le altre formiche su archi diversi. Il circuito migliore
+ * dell'iterazione viene portato in un ottimo locale 2-Opt (partendo solo
+ * dalle città vicine ad un arco che non appartiene al circuito migliore)
+ * e il feromone si deposita solo sugli archi del circuito migliore trovato
+ * (aggiornamento globale).
+ *
+ * Il feromone (a 32 bit) e' memorizzato solo per gli archi delle neighbours
+ * list, nella stessa posizione del vicino: per gli altri archi vale sempre
+ * tau0. Gli aggiornamenti locali delle formiche non sono sincronizzati, come
+ * nelle implementazioni parallele dell'algoritmo: una scrittura persa cambia
+ * solo di poco il feromone di un arco.
+ */
+public class AntColonyHeuristic extends Heuristic {
+
+	/**
+	 * Codice di riconoscimento dell'algoritmo.
+	 */
+	final static int ANT_COLONY = 14;
+
+	/**
+	 * Numero minimo di formiche per iterazione: il numero effettivo e' il
+	 * primo multiplo del parallelismo del pool fork/join comune non
+	 * inferiore, per non lasciare thread inattivi mentre gli altri
+	 * costruiscono le ultime formiche.
+	 */
+	private final static int MIN_ANTS = 10;
+
+	/**
+	 * Peso della distanza rispetto al feromone, probabilità di scegliere il
+	 * vicino migliore, evaporazione globale e locale.
+	 */
+	private final static int BETA = 2;
+	private final static double Q0 = 0.9;
+	private final static float RHO = 0.1f;
+	private final static float XI = 0.1f;
+
+	/**
+	 * Inizio delle posizioni di ogni città nei vettori degli archi candidati
+	 * (la città c occupa le posizioni da edgeStart[c] a
+	 * edgeStart[c] + neighboursSize - 1).
+	 */
+	private int[] edgeStart;
+
+	/**
+	 * Lunghezza massima di una neighbours list.
+	 */
+	private int maxNeighbours;
+
+	/**
+	 * Per ogni arco candidato (c, x): feromone, valore eta^BETA e posizione
+	 * dell'arco (x, c) nella neighbours list di x (-1 se non c'e').
+	 */
+	private float[] pheromone;
+	private float[] visibility;
+	private int[] reverseEdge;
+
+	/**
+	 * Feromone iniziale (e degli archi non candidati).
+	 */
+	private float tau0 = 1;
+
+	/**
+	 * Circuiti delle formiche e loro lunghezze.
+	 */
+	private int[][] orders;
+	private double[] lengths;
+
+	/**
+	 * Successore e predecessore di ogni città nel circuito migliore trovato.
+	 */
+	private int[] bestNext;
+	private int[] bestPrev;
+
+	/**
+	 * Spazi di lavoro delle formiche costruite in parallelo.
+	 */
+	private final WorkspacePool<Ant> workspaces = new WorkspacePool<Ant>() {
+		protected Ant create() {
+			return new Ant();
+		}
+	};
+
+	/**
+	 * Costruttore della classe.
+	 */
+	public AntColonyHeuristic(TspFrame tFrame, int eID) {
+		super(tFrame, eID, -1, -1, -1, null);
+	}
+
+	/**
+	 * Ant Colony System, per al massimo "timeLimit" millisecondi o finche'
+	 * il circuito non e' lungo al piu' "target". Si parte dal circuito
+	 * corrente (o, se non contiene tutte le città, da un circuito "nearest
+	 * neighbor" costruito da una formica); tourSize e il circuito
+	 * visualizzato cambiano solo quando si trova un nuovo circuito migliore.
+	 */
+	private void antColony(long timeLimit, double target) {
+		final long START = System.currentTimeMillis();
+		if (totCities < 8)
+			return;
+		setDeadline(START + timeLimit);
+		try {
+			colony(START, timeLimit, target);
+		} finally {
+			workspaces.clear();
+		}
+	}
+
+	/**
+	 * Iterazioni di antColony(), iniziato all'istante "START".
+	 */
+	private void colony(final long START, long timeLimit, double target) {
+		boolean improved = false;
+		initEdges();
+		final int P = ForkJoinPool.getCommonPoolParallelism();
+		final int ANTS = (MIN_ANTS + P - 1) / P * P;
+		orders = new int[ANTS][totCities];
+		lengths = new double[ANTS];
+		int[] best;
+		double bestSize;
+		if (getTotTourNodes() == totCities) {
+			best = tourOrder();
+			bestSize = tourSize;
+		} else {
+			Ant ant = workspaces.acquire();
+			bestSize = ant.build(orders[0], 1);
+			workspaces.release(ant);
+			best = orders[0].clone();
+			setTour(bestSize, best);
+		}
+
+		//
+		// Il circuito di partenza viene portato in un ottimo locale 2-Opt,
+		// per cui i suoi archi non vanno piu' controllati.
+		//
+		ImprovementHeuristic search = new ImprovementHeuristic(tspFrame, ImprovementHeuristic.TWO_CHANGE, this);
+		ActiveQueue queue = new ActiveQueue(totCities);
+		Tour start = createTour(best);
+		queue.pushTour(start, best[0]);
+		double length = search.twoOptimum(start, bestSize, queue);
+		if (length < bestSize - MIN_GAIN) {
+			start.toArray(best[0], best);
+			bestSize = length;
+			improved = true;
+		}
+		bestNext = new int[totCities];
+		bestPrev = new int[totCities];
+		setBest(best);
+		tau0 = (float) (1 / (totCities * bestSize));
+		for (int count = 0; count < pheromone.length; count++)
+			pheromone[count] = tau0;
+
+		while ((bestSize > target) && !isExpired()) {
+			forEach(ANTS, new Task() {
+				public void compute(int index) {
+					Ant ant = workspaces.acquire();
+					try {
+						lengths[index] = ant.build(orders[index], Q0);
+					} finally {
+						workspaces.release(ant);
+					}
+				}
+			});
+
+			//
+			// Il circuito migliore dell'iterazione viene migliorato con
+			// 2-Opt: in coda vanno solo le estremità (con i loro vicini)
+			// degli archi che non appartengono al circuito migliore
+			// trovato, gia' ottimizzato.
+			//
+			int ant = 0;
+			for (int count = 1; count < ANTS; count++)
+				if (lengths[count] < lengths[ant])
+					ant = count;
+			int[] order = orders[ant];
+			int prev = order[totCities - 1];
+			for (int count = 0; count < totCities; count++) {
+				int c = order[count];
+				if ((bestNext[prev] != c) && (bestPrev[prev] != c)) {
+					pushNear(queue, prev);
+					pushNear(queue, c);
+				}
+				prev = c;
+			}
+			length = lengths[ant];
+			if (!queue.isEmpty()) {
+				Tour t = createTour(order);
+				length = search.twoOptimum(t, length, queue);
+				if (length < bestSize - MIN_GAIN) {
+					t.toArray(order[0], best);
+					bestSize = length;
+					setBest(best);
+					improved = true;
+				}
+			}
+			globalUpdate(best, bestSize);
+
+			if (showProgress(START, timeLimit) && improved) {
+				improved = false;
+				setTour(bestSize, best);
+				showTour();
+			}
+		}
+		setTour(bestSize, best);
+	}
+
+	/**
+	 * Mette in coda la città "c" e i suoi vicini: una mossa 2-Opt che
+	 * coinvolge un arco di c puo' essere trovata anche solo partendo da uno
+	 * di loro.
+	 */
+	private void pushNear(ActiveQueue queue, int c) {
+		queue.push(c);
+		City city = citiesVector[c];
+		for (int ind = 0; ind < city.neighboursSize; ind++)
+			queue.push(city.neighbourIds[ind]);
+	}
+
+	/**
+	 * Aggiorna bestNext e bestPrev con il circuito "order".
+	 */
+	private void setBest(int[] order) {
+		int prev = order[totCities - 1];
+		for (int count = 0; count < totCities; count++) {
+			bestNext[prev] = order[count];
+			bestPrev[order[count]] = prev;
+			prev = order[count];
+		}
+	}
+
+	/**
+	 * Prepara i vettori degli archi candidati.
+	 */
+	private void initEdges() {
+		edgeStart = new int[totCities + 1];
+		maxNeighbours = 0;
+		for (int c = 0; c < totCities; c++) {
+			edgeStart[c + 1] = edgeStart[c] + citiesVector[c].neighboursSize;
+			maxNeighbours = Math.max(maxNeighbours, citiesVector[c].neighboursSize);
+		}
+		final int TOT = edgeStart[totCities];
+		pheromone = new float[TOT];
+		visibility = new float[TOT];
+		reverseEdge = new int[TOT];
+		for (int c = 0; c < totCities; c++) {
+			City city = citiesVector[c];
+			for (int ind = 0; ind < city.neighboursSize; ind++) {
+				int x = city.neighbourIds[ind];
+				int e = edgeStart[c] + ind;
+				visibility[e] = (float) Math.pow(1 / Math.max(dist(c, x), MIN_GAIN), BETA);
+				reverseEdge[e] = -1;
+				City other = citiesVector[x];
+				for (int k = 0; k < other.neighboursSize; k++)
+					if (other.neighbourIds[k] == c)
+						reverseEdge[e] = edgeStart[x] + k;
+			}
+		}
+	}
+
+	/**
+	 * Restituisce la posizione dell'arco candidato (a, b), oppure -1.
+	 */
+	private int edge(int a, int b) {
+		City city = citiesVector[a];
+		for (int ind = 0; ind < city.neighboursSize; ind++)
+			if (city.neighbourIds[ind] == b)
+				return edgeStart[a] + ind;
+		City other = citiesVector[b];
+		for (int ind = 0; ind < other.neighboursSize; ind++)
+			if (other.neighbourIds[ind] == a)
+				return edgeStart[b] + ind;
+		return -1;
+	}
+
+	/**
+	 * Porta verso "value" (con peso "rate") il feromone dell'arco candidato
+	 * "e" e dell'arco opposto.
+	 */
+	private void update(int e, float rate, float value) {
+		pheromone[e] = (1 - rate) * pheromone[e] + rate * value;
+		int r = reverseEdge[e];
+		if (r >= 0)
+			pheromone[r] = pheromone[e];
+	}
+
+	/**
+	 * Aggiornamento globale: il feromone degli archi candidati del circuito
+	 * "order", lungo "length", aumenta verso 1 / length.
+	 */
+	private void globalUpdate(int[] order, double length) {
+		final float VALUE = (float) (1 / length);
+		for (int count = 0; count < totCities; count++) {
+			int e = edge(order[count], order[(count + 1 < totCities) ? count + 1 : 0]);
+			if (e >= 0)
+				update(e, RHO, VALUE);
+		}
+	}
+
+	/**
+	 * Spazio di lavoro di un task per la costruzione dei circuiti.
+	 */
+	class Ant {
+		private final int n = totCities;
+
+		/**
+		 * Città ancora da visitare.
+		 */
+		private final FreeCities free = new FreeCities(citiesVector, n, distances);
+
+		/**
+		 * Valori tau * eta^BETA dei vicini liberi della città corrente.
+		 */
+		private final float[] weights = new float[maxNeighbours];
+
+		private final Random random = new Random();
+
+		/**
+		 * Costruisce nel vettore "order" il circuito di una formica che
+		 * sceglie il vicino migliore con probabilità "q0" e ne restituisce
+		 * la lunghezza.
+		 */
+		double build(int[] order, double q0) {
+			free.fill();
+			int cur = random.nextInt(n);
+			double length = 0;
+			for (int count = 0; count < n; count++) {
+				order[count] = cur;
+				free.visit(cur);
+				if (free.size() == 0)
+					break;
+				int e = choose(cur, q0);
+				int pick;
+				if (e >= 0) {
+					pick = citiesVector[cur].neighbourIds[e - edgeStart[cur]];
+					update(e, XI, tau0);
+				} else
+					pick = free.nearest(cur);
+				length += dist(cur, pick);
+				cur = pick;
+			}
+			return length + dist(order[n - 1], order[0]);
+		}
+
+		/**
+		 * Sceglie l'arco candidato verso un vicino libero della città "c"
+		 * (regola pseudo-casuale proporzionale): restituisce -1 se tutti i
+		 * vicini sono gia' stati visitati.
+		 */
+		private int choose(int c, double q0) {
+			City city = citiesVector[c];
+			final int FIRST = edgeStart[c];
+			int best = -1;
+			float sum = 0;
+			for (int ind = 0; ind < city.neighboursSize; ind++) {
+				float w = 0;
+				if (free.isFree(city.neighbourIds[ind])) {
+					w = pheromone[FIRST + ind] * visibility[FIRST + ind];
+					if ((best < 0) || (w > weights[best]))
+						best = ind;
+				}
+				weights[ind] = w;
+				sum += w;
+			}
+			if ((best < 0) || (random.nextDouble() < q0))
+				return (best < 0) ? -1 : FIRST + best;
+			float r = random.nextFloat() * sum;
+			for (int ind = 0; ind < city.neighboursSize; ind++) {
+				if (weights[ind] == 0)
+					continue;
+				r -= weights[ind];
+				if (r <= 0)
+					return FIRST + ind;
+			}
+			return FIRST + best;
+		}
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		if (execID == ANT_COLONY)
+			antColony(Math.round(tspFrame.tspArea.getTimeLimit() * 1000), tspFrame.tspArea.getTargetLength());
+		endRun();
+	}
+}
@@ -0,0 +1,211 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Arrays;
+
+/**
+ * Circuito memorizzato come permutazione degli indici delle città (order) e
+ * posizione di ogni città nella permutazione (pos, -1 per le città che non
+ * fanno parte del circuito). Il circuito puo' essere parziale, mentre viene
+ * costruito, e non dipende dagli oggetti City: piu' circuiti possono
+ * coesistere e i cicli piu' frequenti accedono solo a vettori di interi.
+ *
+ * Successore, predecessore e confronti di posizione costano O(1), l'inversione
+ * di un cammino O(n).
+ */
+public class ArrayTour extends Tour {
+	/**
+	 * Città in ordine di visita e posizione di ogni città.
+	 */
+	private int[] order, pos;
+
+	/**
+	 * Numero di città del circuito.
+	 */
+	private int size;
+
+	/**
+	 * Costruttore della classe: circuito vuoto per al massimo "capacity"
+	 * città.
+	 */
+	public ArrayTour(int capacity) {
+		order = new int[capacity];
+		pos = new int[capacity];
+		clear();
+	}
+
+	/**
+	 * Assicura che il circuito possa contenere le città con indice minore di
+	 * "capacity".
+	 */
+	public final void ensureCapacity(int capacity) {
+		if (order.length < capacity) {
+			int old = order.length;
+			order = Arrays.copyOf(order, capacity);
+			pos = Arrays.copyOf(pos, capacity);
+			Arrays.fill(pos, old, capacity, -1);
+		}
+	}
+
+	/**
+	 * Cancella il circuito.
+	 */
+	public final void clear() {
+		size = 0;
+		Arrays.fill(pos, -1);
+	}
+
+	/**
+	 * Restituisce il numero di città del circuito.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * Restituisce la città nella posizione "index" del circuito.
+	 */
+	public final int city(int index) {
+		return order[index];
+	}
+
+	/**
+	 * Restituisce la posizione della città "c" nel circuito (-1 se non ne fa
+	 * parte).
+	 */
+	public final int position(int c) {
+		return pos[c];
+	}
+
+	/**
+	 * Restituisce la città successiva alla città "c".
+	 */
+	public final int next(int c) {
+		int p = pos[c] + 1;
+		return order[(p < size) ? p : 0];
+	}
+
+	/**
+	 * Restituisce la città precedente alla città "c".
+	 */
+	public final int prev(int c) {
+		int p = pos[c];
+		return order[(p > 0) ? p - 1 : size - 1];
+	}
+
+	/**
+	 * Verifica se la città "b" si trova sul cammino che va da "a" a "c".
+	 */
+	public final boolean between(int a, int b, int c) {
+		int pa = pos[a];
+		int pb = pos[b];
+		int pc = pos[c];
+		if (pa <= pc)
+			return (pa <= pb) && (pb <= pc);
+		return (pa <= pb) || (pb <= pc);
+	}
+
+	/**
+	 * Inverte il cammino che va da "a" a "b" scambiando le città alle due
+	 * estremità.
+	 */
+	public final void reverse(int a, int b) {
+		int index1 = pos[a];
+		int index2 = pos[b];
+		int dim = (index2 - index1 + 1 + ((index1 <= index2) ? 0 : size)) >> 1;
+		int tmp;
+		while (dim-- > 0) {
+			tmp = order[index1];
+			order[index1] = order[index2];
+			order[index2] = tmp;
+			pos[order[index1]] = index1;
+			pos[tmp] = index2;
+			if (++index1 == size)
+				index1 = 0;
+			if (--index2 < 0)
+				index2 = size - 1;
+		}
+	}
+
+	/**
+	 * Aggiunge la città "c" in fondo al circuito.
+	 */
+	public final void add(int c) {
+		pos[c] = size;
+		order[size++] = c;
+	}
+
+	/**
+	 * Inserisce la città "c" nella posizione "index" del circuito.
+	 */
+	public final void insert(int index, int c) {
+		System.arraycopy(order, index, order, index + 1, size - index);
+		size++;
+		order[index] = c;
+		for (int count = index; count < size; count++)
+			pos[order[count]] = count;
+	}
+
+	/**
+	 * Toglie la città "c" dal circuito (se ne fa parte).
+	 */
+	public final void remove(int c) {
+		final int IDX = pos[c];
+		if (IDX < 0)
+			return;
+		System.arraycopy(order, IDX + 1, order, IDX, size - IDX - 1);
+		size--;
+		pos[c] = -1;
+		for (int count = IDX; count < size; count++)
+			pos[order[count]] = count;
+	}
+
+	/**
+	 * Aggiorna gli indici delle città quando la città "ind" viene cancellata
+	 * dal vettore delle città (delta = -1, la città non deve far parte del
+	 * circuito) o vi viene reinserita (delta = 1, le città da "ind" in poi
+	 * scorrono di una posizione).
+	 */
+	public final void renumber(int ind, int delta) {
+		for (int count = 0; count < size; count++)
+			if (order[count] >= ind)
+				order[count] += delta;
+		final int LAST = pos.length - 1;
+		if (delta < 0) {
+			System.arraycopy(pos, ind + 1, pos, ind, LAST - ind);
+			pos[LAST] = -1;
+		} else {
+			System.arraycopy(pos, ind, pos, ind + 1, LAST - ind);
+			pos[ind] = -1;
+		}
+	}
+
+	/**
+	 * Imposta il circuito con le prime "tot" città del vettore "cities".
+	 */
+	public final void set(int[] cities, int tot) {
+		clear();
+		for (int count = 0; count < tot; count++)
+			add(cities[count]);
+	}
+
+	/**
+	 * Copia le città del circuito nel vettore "cities".
+	 */
+	public final int[] toArray(int[] cities) {
+		System.arraycopy(order, 0, cities, 0, size);
+		return cities;
+	}
+}
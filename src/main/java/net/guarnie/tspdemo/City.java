@@ -14,6 +14,8 @@ package net.guarnie.tspdemo;
  *
  */
 
+import java.util.Arrays;
+
 /**
  * Classe che contiene le città (i nodi del nostro grafo).
  */
@@ -24,6 +26,18 @@ public class City  {
 	 */
 	final static int NEIGHBOURS_LIST_SIZE = 30;
 
+	/**
+	 * Numero di vicini per ciascun quadrante quando le neighbours list
+	 * contengono i candidati per quadrante.
+	 */
+	final static int QUADRANT_NEIGHBOURS = 5;
+
+	/**
+	 * Numero di vicini quando le neighbours list contengono i candidati
+	 * scelti in base all'alpha-nearness.
+	 */
+	final static int ALPHA_NEIGHBOURS = 5;
+
 	/**
 	 * Coordinata x della città.
 	 */
@@ -40,14 +54,19 @@ public class City  {
 	public int num;
 
 	/**
-	 * Indice della città nel vettore contenente il circuito corrente.
+	 * Indici (nel vettore delle città) delle prime "NEIGHBOURS_LIST_SIZE"
+	 * città vicine, ordinate per distanza crescente.
 	 */
-	public int tourIndex = -1;
+	public int[] neighbourIds = new int[NEIGHBOURS_LIST_SIZE];
 
 	/**
-	 * Vettore contenente le prime "NEIGHBOURS_LIST_SIZE" città vicine.
+	 * Distanze delle città vicine (neighbourDist[k] e' la distanza della
+	 * città di indice neighbourIds[k]). Sono memorizzate a 32 bit arrotondate
+	 * per eccesso e servono solo per limitare la ricerca (se neighbourDist[k]
+	 * e' minore di un valore lo e' anche la distanza esatta): le variazioni
+	 * della lunghezza del circuito vanno calcolate con le distanze esatte.
 	 */
-	public Neighbour[] neighbours = new Neighbour[NEIGHBOURS_LIST_SIZE];
+	public float[] neighbourDist = new float[NEIGHBOURS_LIST_SIZE];
 
 	/**
 	 * Distanza della città più lontana tra quelle contenute nel vettore delle
@@ -78,27 +97,87 @@ public class City  {
 	}
 
 	/**
-	 * Inserisce un vicino nel vettore delle citta' vicine. (Anche se il metodo
-	 * arraycopy e' molto piu' veloce di una copia elemento per elemento,
-	 * l'inserimento di un nuovo neighbour potrebbe essere rivisto e reso piu'
-	 * efficiente, ad esempio usando una lista ordinata, ma date le ridotte
-	 * dimensioni dell'array dei neighbours, non credo che il guadagno di
-	 * prestazioni valga la pena).
-	 */
-	public final void addNeighbour(City c, double d) {
-		if ((farthestDist > d) || (neighboursSize < NEIGHBOURS_LIST_SIZE)) {
-			int count = 0;
-			while ((count < neighboursSize) && (neighbours[count].dist < d))
-				count++;
-			if (neighboursSize < NEIGHBOURS_LIST_SIZE) {
-				System.arraycopy(neighbours, count, neighbours, count + 1,
-						neighboursSize - count);
-				neighboursSize++;
-			} else
-				System.arraycopy(neighbours, count, neighbours, count + 1,
-						neighboursSize - count - 1);
-			neighbours[count] = new Neighbour(c, d);
-			farthestDist = neighbours[neighboursSize - 1].dist;
+	 * Inserisce un vicino nel vettore delle citta' vicine, spostando in
+	 * avanti (senza allocare nulla) gli elementi piu' lontani. A parita' di
+	 * distanza precede la città con indice minore, in modo che la lista non
+	 * dipenda dall'ordine in cui i vicini vengono proposti.
+	 */
+	public final void addNeighbour(int id, double d) {
+		float fd = toFloat(d);
+		if ((neighboursSize == NEIGHBOURS_LIST_SIZE) && ((fd > farthestDist)
+				|| ((fd == farthestDist) && (id >= neighbourIds[neighboursSize - 1]))))
+			return;
+		int count = position(id, fd);
+		int tot = (neighboursSize < NEIGHBOURS_LIST_SIZE) ? neighboursSize++ - count : neighboursSize - count - 1;
+		System.arraycopy(neighbourIds, count, neighbourIds, count + 1, tot);
+		System.arraycopy(neighbourDist, count, neighbourDist, count + 1, tot);
+		neighbourIds[count] = id;
+		neighbourDist[count] = fd;
+		farthestDist = neighbourDist[neighboursSize - 1];
+	}
+
+	/**
+	 * Inserisce un candidato nel vettore delle citta' vicine senza limiti di
+	 * dimensione (i vettori vengono ingranditi se necessario), ignorando le
+	 * città gia' presenti. Serve per gli insiemi di candidati che non sono
+	 * semplicemente i K nodi piu' vicini (ad esempio i lati della
+	 * triangolazione di Delaunay).
+	 */
+	public final void addCandidate(int id, double d) {
+		if (hasNeighbour(id))
+			return;
+		if (neighboursSize == neighbourIds.length) {
+			neighbourIds = Arrays.copyOf(neighbourIds, neighboursSize * 2);
+			neighbourDist = Arrays.copyOf(neighbourDist, neighboursSize * 2);
 		}
+		float fd = toFloat(d);
+		int count = position(id, fd);
+		System.arraycopy(neighbourIds, count, neighbourIds, count + 1, neighboursSize - count);
+		System.arraycopy(neighbourDist, count, neighbourDist, count + 1, neighboursSize - count);
+		neighbourIds[count] = id;
+		neighbourDist[count] = fd;
+		neighboursSize++;
+		farthestDist = neighbourDist[neighboursSize - 1];
+	}
+
+	/**
+	 * Restituisce la posizione in cui va inserita la città "id" a distanza
+	 * "fd" nel vettore (ordinato) delle città vicine.
+	 */
+	private int position(int id, float fd) {
+		int count = 0;
+		while ((count < neighboursSize) && ((neighbourDist[count] < fd)
+				|| ((neighbourDist[count] == fd) && (neighbourIds[count] < id))))
+			count++;
+		return count;
+	}
+
+	/**
+	 * Converte una distanza a 32 bit arrotondandola per eccesso.
+	 */
+	public final static float toFloat(double d) {
+		float f = (float) d;
+		return (f < d) ? Math.nextUp(f) : f;
+	}
+
+	/**
+	 * Verifica se la città di indice "id" e' tra le città vicine.
+	 */
+	public final boolean hasNeighbour(int id) {
+		for (int count = 0; count < neighboursSize; count++)
+			if (neighbourIds[count] == id)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Aggiorna gli indici dei vicini dopo la cancellazione (delta = -1) o il
+	 * ripristino (delta = 1) della città di indice "ind" nel vettore delle
+	 * città.
+	 */
+	public final void shiftNeighbours(int ind, int delta) {
+		for (int count = 0; count < neighboursSize; count++)
+			if (neighbourIds[count] >= ind)
+				neighbourIds[count] += delta;
 	}
 }
@@ -54,7 +54,7 @@ public class ConstructionHeuristic extends Heuristic {
 	 * catena e non un circuito o un albero.
 	 */
 	private final void greedy() {
-		double min;
+		double min, d12;
 		int tmp1, tmp2, count1, count2;
 		final int tot = totCities - 1;
 		MFSet elem1, elem2;
@@ -71,18 +71,13 @@ public class ConstructionHeuristic extends Heuristic {
 		//
 		int[] c = new int[totCities];
 
-		//
-		// Array temporaneo.
-		//
-		double[] tmp;
-
 		//
 		// Costruisco l'array le distanze minime (in questo caso
 		// ci sono proprio i minimi reali ottenuti dalle neigbours list,
 		// successivamente ci saranno solo dei minimi di riferimento).
 		//
 		for (count1 = 0; count1 < tot; count1++)
-			d[count1] = citiesVector[count1].neighbours[0].dist;
+			d[count1] = dist(count1, citiesVector[count1].neighbourIds[0]);
 		tmp1 = 0;
 		tmp2 = 0;
 		int index = 0;
@@ -104,12 +99,12 @@ public class ConstructionHeuristic extends Heuristic {
 			//
 			for (count1 = 0; count1 < tot; count1++) {
 				if (min > d[count1]) {
-					tmp = adjMatrix[count1];
 					for (count2 = count1 + 1; count2 < totCities; count2++) {
-						if ((min > tmp[count2])
+						d12 = dist(count1, count2);
+						if ((min > d12)
 								&& (MFSetArray[count2].adj2 == null)
 								&& (c[count1] != count2)) {
-							min = tmp[count2];
+							min = d12;
 							tmp1 = count1;
 							tmp2 = count2;
 						}
@@ -297,6 +292,23 @@ public class ConstructionHeuristic extends Heuristic {
 		return tot;
 	}
 
+	/**
+	 * Aumento della lunghezza del circuito se la città "c" viene inserita
+	 * tra le città "a" e "b" (sostituendo l'arco (a, b) con (a, c) e
+	 * (c, b)).
+	 */
+	final static double insertionCost(int a, int b, int c) {
+		return insertionCost(a, b, dist(a, b), c);
+	}
+
+	/**
+	 * Come insertionCost(a, b, c), con la lunghezza "ab" dell'arco (a, b)
+	 * gia' calcolata.
+	 */
+	final static double insertionCost(int a, int b, double ab, int c) {
+		return dist(a, c) + dist(b, c) - ab;
+	}
+
 	/**
 	 * [Cheapest Insertion] A partire dal "Convex Hull" via via si connettono
 	 * nuovi nodi ai vertici del poligono prendendo sempre quelli che
@@ -309,8 +321,7 @@ public class ConstructionHeuristic extends Heuristic {
 		Node minTour = null;
 		Node minNode = null;
 		Node minNodeT = null;
-		double[] tmpAdj1;
-		double[] tmpAdj2;
+		int index1, index2;
 		double minD, minE, tmpD, tmpE;
 
 		//
@@ -336,9 +347,9 @@ public class ConstructionHeuristic extends Heuristic {
 				// oppure deve essere ricalcolato.
 				//
 				if (minD == Double.MAX_VALUE) {
-					tmpAdj1 = adjMatrix[curTour.index];
-					tmpAdj2 = adjMatrix[curTour.next.index];
-					tmpE = tmpAdj2[curTour.index];
+					index1 = curTour.index;
+					index2 = curTour.next.index;
+					tmpE = dist(index2, index1);
 					curNode = Node.firstNode;
 
 					//
@@ -347,7 +358,7 @@ public class ConstructionHeuristic extends Heuristic {
 					// corrente.
 					//
 					do {
-						tmpD = tmpAdj1[curNode.index] + tmpAdj2[curNode.index] - tmpE;
+						tmpD = insertionCost(index1, index2, tmpE, curNode.index);
 						if (tmpD < minD) {
 							minD = tmpD;
 							minNodeT = curNode;
@@ -430,7 +441,7 @@ public class ConstructionHeuristic extends Heuristic {
 		Node maxTour = null;
 		Node curNode = null;
 		Node maxNode = null;
-		double[] tmpAdj1;
+		int index1;
 		double minD, maxE, tmpE;
 
 		//
@@ -454,7 +465,7 @@ public class ConstructionHeuristic extends Heuristic {
 				// Inizializza le distanze minime la prima volta.
 				//
 				if (minD == Double.MAX_VALUE) {
-					tmpAdj1 = adjMatrix[curNode.index];
+					index1 = curNode.index;
 					curTour = Node.firstTour;
 
 					//
@@ -462,8 +473,9 @@ public class ConstructionHeuristic extends Heuristic {
 					// nodo corrente.
 					//
 					do {
-						if (tmpAdj1[curTour.index] < minD)
-							minD = tmpAdj1[curTour.index];
+						tmpE = dist(index1, curTour.index);
+						if (tmpE < minD)
+							minD = tmpE;
 						curTour = curTour.next;
 					} while (curTour != Node.firstTour);
 					curNode.dist = minD;
@@ -483,9 +495,7 @@ public class ConstructionHeuristic extends Heuristic {
 			// possibile la lunghezza complessiva del circuito.
 			//
 			do {
-				tmpE = adjMatrix[curTour.index][maxNode.index]
-						+ adjMatrix[curTour.next.index][maxNode.index]
-						- adjMatrix[curTour.index][curTour.next.index];
+				tmpE = insertionCost(curTour.index, curTour.next.index, maxNode.index);
 				if (minD > tmpE) {
 					minD = tmpE;
 					maxTour = curTour;
@@ -513,8 +523,9 @@ public class ConstructionHeuristic extends Heuristic {
 			//
 			curNode = Node.firstNode;
 			do {
-				if (adjMatrix[curNode.index][maxNode.index] < curNode.dist)
-					curNode.dist = adjMatrix[curNode.index][maxNode.index];
+				tmpE = dist(curNode.index, maxNode.index);
+				if (tmpE < curNode.dist)
+					curNode.dist = tmpE;
 				curNode = curNode.next;
 			} while (curNode != Node.firstNode);
 
@@ -588,9 +599,7 @@ public class ConstructionHeuristic extends Heuristic {
 			// possibile la lunghezza complessiva del circuito.
 			//
 			do {
-				tmpE = adjMatrix[curTour.index][maxNode.index]
-						+ adjMatrix[curTour.next.index][maxNode.index]
-						- adjMatrix[curTour.index][curTour.next.index];
+				tmpE = insertionCost(curTour.index, curTour.next.index, maxNode.index);
 				if (minD > tmpE) {
 					minD = tmpE;
 					maxTour = curTour;
@@ -618,8 +627,9 @@ public class ConstructionHeuristic extends Heuristic {
 			//
 			curNode = Node.firstNode;
 			do {
-				if (adjMatrix[curNode.index][maxNode.index] < curNode.dist)
-					curNode.dist = adjMatrix[curNode.index][maxNode.index];
+				tmpE = dist(curNode.index, maxNode.index);
+				if (tmpE < curNode.dist)
+					curNode.dist = tmpE;
 				curNode = curNode.next;
 			} while (curNode != Node.firstNode);
 
@@ -698,7 +708,7 @@ public class ConstructionHeuristic extends Heuristic {
 			connected[nextc] = connected[--tot];
 			dist = Double.MAX_VALUE;
 			for (count = 0; count < tot; count++) {
-				tmp = adjMatrix[next][connected[count]];
+				tmp = dist(next, connected[count]);
 				if (tmp < dist) {
 					dist = tmp;
 					nextc = count;
@@ -775,7 +785,7 @@ public class ConstructionHeuristic extends Heuristic {
 			min = Double.MAX_VALUE;
 			for (count = 0; count < tot; count++) {
 				h2 = h[count];
-				wid = adjMatrix[h2.c.num][indexMin];
+				wid = dist(h2.c.num, indexMin);
 				if (wid < h2.key) {
 					h2.father = h1;
 					h2.key = wid;
@@ -833,14 +843,11 @@ public class ConstructionHeuristic extends Heuristic {
 	}
 
 	/**
-	 * Metodo necessario all'esecuzione di questo thread.
+	 * Costruisce il circuito corrente (che deve essere vuoto) con
+	 * l'algoritmo "execID". Puo' essere usato anche dalle altre euristiche,
+	 * senza avviare il thread.
 	 */
-	public void run() {
-		//
-		// Setto la priorita' al minimo dato che questo thread
-		// e' decisamente CPU-INTENSIVE.
-		//
-		setPriority(MIN_PRIORITY);
+	final void construct() {
 		switch (execID) {
 			case GREEDY:
 				greedy();
@@ -861,6 +868,18 @@ public class ConstructionHeuristic extends Heuristic {
 				nearestNeighbor();
 				break;
 		}
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		construct();
 		tspFrame.workArea.enableExtraEdges(false);
 		if (isStopped()) {
 			tspFrame.undo();
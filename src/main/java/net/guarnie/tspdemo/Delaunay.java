@@ -0,0 +1,484 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Triangolazione di Delaunay delle città di un'istanza EUC_2D, calcolata in
+ * O(n log n) con l'algoritmo "sweep-hull": le città vengono inserite in
+ * ordine di distanza da un triangolo iniziale, collegandole all'inviluppo
+ * convesso corrente, e i triangoli non di Delaunay vengono corretti con
+ * scambi di diagonale (legalize).
+ *
+ * I triangoli sono memorizzati come terne di indici di città nel vettore
+ * "triangles"; halfedges[e] e' il semi-lato opposto al semi-lato e (-1 se e
+ * e' sull'inviluppo convesso).
+ */
+public class Delaunay {
+	/**
+	 * Tolleranza usata per scartare le città coincidenti.
+	 */
+	private final static double EPSILON = Math.pow(2, -52);
+
+	/**
+	 * Coordinate delle città.
+	 */
+	private final double[] px, py;
+
+	/**
+	 * Triangoli e semi-lati opposti.
+	 */
+	private final int[] triangles;
+	private final int[] halfedges;
+	private int trianglesLen;
+
+	/**
+	 * Inviluppo convesso corrente (lista doppiamente concatenata circolare)
+	 * e tabella hash per individuarne velocemente un lato visibile.
+	 */
+	private final int[] hullPrev, hullNext, hullTri, hullHash;
+	private final int hashSize;
+	private int hullStart;
+	private double cx, cy;
+
+	/**
+	 * Pila dei lati da verificare in legalize().
+	 */
+	private final int[] edgeStack = new int[512];
+
+	/**
+	 * Calcola la triangolazione delle prime "tot" città del vettore "cities".
+	 */
+	public Delaunay(City[] cities, int tot) {
+		px = new double[tot];
+		py = new double[tot];
+		for (int count = 0; count < tot; count++) {
+			px[count] = cities[count].x;
+			py[count] = cities[count].y;
+		}
+		int maxTriangles = Math.max(2 * tot - 5, 0);
+		triangles = new int[maxTriangles * 3];
+		halfedges = new int[maxTriangles * 3];
+		hashSize = (int) Math.ceil(Math.sqrt(tot));
+		hullPrev = new int[tot];
+		hullNext = new int[tot];
+		hullTri = new int[tot];
+		hullHash = new int[Math.max(hashSize, 1)];
+		if (tot >= 3)
+			triangulate(tot);
+	}
+
+	/**
+	 * Restituisce il numero di semi-lati della triangolazione.
+	 */
+	public final int getTotHalfedges() {
+		return trianglesLen;
+	}
+
+	/**
+	 * Restituisce la città da cui parte il semi-lato "e".
+	 */
+	public final int getFrom(int e) {
+		return triangles[e];
+	}
+
+	/**
+	 * Restituisce la città in cui arriva il semi-lato "e".
+	 */
+	public final int getTo(int e) {
+		return triangles[(e % 3 == 2) ? e - 2 : e + 1];
+	}
+
+	/**
+	 * Verifica se il semi-lato "e" e' il rappresentante del proprio lato
+	 * (ogni lato va considerato una volta sola).
+	 */
+	public final boolean isEdge(int e) {
+		return halfedges[e] < e;
+	}
+
+	/**
+	 * Calcola la triangolazione.
+	 */
+	private void triangulate(int n) {
+		int[] ids = new int[n];
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			if (px[i] < minX) minX = px[i];
+			if (py[i] < minY) minY = py[i];
+			if (px[i] > maxX) maxX = px[i];
+			if (py[i] > maxY) maxY = py[i];
+			ids[i] = i;
+		}
+		double mx = (minX + maxX) / 2;
+		double my = (minY + maxY) / 2;
+
+		//
+		// Triangolo iniziale: la città piu' vicina al centro, quella piu'
+		// vicina ad essa e quella che forma con le due il cerchio
+		// circoscritto piu' piccolo.
+		//
+		int i0 = 0, i1 = 0, i2 = 0;
+		double minDist = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			double d = sqDist(mx, my, px[i], py[i]);
+			if (d < minDist) {
+				i0 = i;
+				minDist = d;
+			}
+		}
+		minDist = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			if (i == i0)
+				continue;
+			double d = sqDist(px[i0], py[i0], px[i], py[i]);
+			if (d < minDist && d > 0) {
+				i1 = i;
+				minDist = d;
+			}
+		}
+		double minRadius = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			if (i == i0 || i == i1)
+				continue;
+			double r = circumradius(px[i0], py[i0], px[i1], py[i1], px[i], py[i]);
+			if (r < minRadius) {
+				i2 = i;
+				minRadius = r;
+			}
+		}
+
+		//
+		// Città tutte allineate (o coincidenti): nessun triangolo.
+		//
+		if (minRadius == Double.POSITIVE_INFINITY)
+			return;
+
+		if (orient(px[i0], py[i0], px[i1], py[i1], px[i2], py[i2])) {
+			int tmp = i1;
+			i1 = i2;
+			i2 = tmp;
+		}
+		circumcenter(px[i0], py[i0], px[i1], py[i1], px[i2], py[i2]);
+
+		//
+		// Ordina le città per distanza dal centro del cerchio circoscritto
+		// al triangolo iniziale.
+		//
+		double[] dists = new double[n];
+		for (int i = 0; i < n; i++)
+			dists[i] = sqDist(px[i], py[i], cx, cy);
+		quicksort(ids, dists, 0, n - 1);
+
+		hullStart = i0;
+		hullNext[i0] = hullPrev[i2] = i1;
+		hullNext[i1] = hullPrev[i0] = i2;
+		hullNext[i2] = hullPrev[i1] = i0;
+		hullTri[i0] = 0;
+		hullTri[i1] = 1;
+		hullTri[i2] = 2;
+		for (int count = 0; count < hashSize; count++)
+			hullHash[count] = -1;
+		hullHash[hashKey(px[i0], py[i0])] = i0;
+		hullHash[hashKey(px[i1], py[i1])] = i1;
+		hullHash[hashKey(px[i2], py[i2])] = i2;
+
+		trianglesLen = 0;
+		addTriangle(i0, i1, i2, -1, -1, -1);
+
+		double xp = 0, yp = 0;
+		for (int k = 0; k < n; k++) {
+			int i = ids[k];
+			double x = px[i];
+			double y = py[i];
+
+			//
+			// Salta le città coincidenti con la precedente e quelle del
+			// triangolo iniziale.
+			//
+			if (k > 0 && Math.abs(x - xp) <= EPSILON && Math.abs(y - yp) <= EPSILON)
+				continue;
+			xp = x;
+			yp = y;
+			if (i == i0 || i == i1 || i == i2)
+				continue;
+
+			//
+			// Cerca un lato dell'inviluppo visibile dalla città.
+			//
+			int start = 0;
+			int key = hashKey(x, y);
+			for (int j = 0; j < hashSize; j++) {
+				start = hullHash[(key + j) % hashSize];
+				if (start != -1 && start != hullNext[start])
+					break;
+			}
+			start = hullPrev[start];
+			int e = start, q;
+			while (!orient(x, y, px[e], py[e], px[q = hullNext[e]], py[q])) {
+				e = q;
+				if (e == start) {
+					e = -1;
+					break;
+				}
+			}
+			if (e == -1)
+				continue;
+
+			//
+			// Aggiunge il primo triangolo e scorre l'inviluppo in avanti
+			// e all'indietro aggiungendo gli altri triangoli visibili.
+			//
+			int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+			hullTri[i] = legalize(t + 2);
+			hullTri[e] = t;
+
+			int next = hullNext[e];
+			while (orient(x, y, px[next], py[next], px[q = hullNext[next]], py[q])) {
+				t = addTriangle(next, i, q, hullTri[i], -1, hullTri[next]);
+				hullTri[i] = legalize(t + 2);
+				hullNext[next] = next;
+				next = q;
+			}
+			if (e == start) {
+				while (orient(x, y, px[q = hullPrev[e]], py[q], px[e], py[e])) {
+					t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+					legalize(t + 2);
+					hullTri[q] = t;
+					hullNext[e] = e;
+					e = q;
+				}
+			}
+
+			hullStart = hullPrev[i] = e;
+			hullNext[e] = hullPrev[next] = i;
+			hullNext[i] = next;
+			hullHash[hashKey(x, y)] = i;
+			hullHash[hashKey(px[e], py[e])] = e;
+		}
+	}
+
+	/**
+	 * Scambia ricorsivamente le diagonali dei triangoli adiacenti al
+	 * semi-lato "a" che non soddisfano la condizione di Delaunay.
+	 */
+	private int legalize(int a) {
+		int i = 0;
+		int ar;
+		while (true) {
+			int b = halfedges[a];
+			int a0 = a - a % 3;
+			ar = a0 + (a + 2) % 3;
+			if (b == -1) {
+				if (i == 0)
+					break;
+				a = edgeStack[--i];
+				continue;
+			}
+			int b0 = b - b % 3;
+			int al = a0 + (a + 1) % 3;
+			int bl = b0 + (b + 2) % 3;
+			int p0 = triangles[ar];
+			int pr = triangles[a];
+			int pl = triangles[al];
+			int p1 = triangles[bl];
+			if (inCircle(px[p0], py[p0], px[pr], py[pr], px[pl], py[pl], px[p1], py[p1])) {
+				triangles[a] = p1;
+				triangles[b] = p0;
+				int hbl = halfedges[bl];
+
+				//
+				// Se il lato e' sull'inviluppo aggiorna il riferimento al
+				// triangolo.
+				//
+				if (hbl == -1) {
+					int e = hullStart;
+					do {
+						if (hullTri[e] == bl) {
+							hullTri[e] = a;
+							break;
+						}
+						e = hullPrev[e];
+					} while (e != hullStart);
+				}
+				link(a, hbl);
+				link(b, halfedges[ar]);
+				link(ar, bl);
+				int br = b0 + (b + 1) % 3;
+				if (i < edgeStack.length)
+					edgeStack[i++] = br;
+			} else {
+				if (i == 0)
+					break;
+				a = edgeStack[--i];
+			}
+		}
+		return ar;
+	}
+
+	/**
+	 * Collega due semi-lati opposti.
+	 */
+	private void link(int a, int b) {
+		halfedges[a] = b;
+		if (b != -1)
+			halfedges[b] = a;
+	}
+
+	/**
+	 * Aggiunge un triangolo e restituisce l'indice del suo primo semi-lato.
+	 */
+	private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+		int t = trianglesLen;
+		triangles[t] = i0;
+		triangles[t + 1] = i1;
+		triangles[t + 2] = i2;
+		link(t, a);
+		link(t + 1, b);
+		link(t + 2, c);
+		trianglesLen += 3;
+		return t;
+	}
+
+	/**
+	 * Chiave hash (basata sull'angolo rispetto al centro) di un punto.
+	 */
+	private int hashKey(double x, double y) {
+		double dx = x - cx;
+		double dy = y - cy;
+		double p = dx / (Math.abs(dx) + Math.abs(dy));
+		double angle = ((dy > 0) ? 3 - p : 1 + p) / 4;
+		return (int) Math.floor(angle * hashSize) % hashSize;
+	}
+
+	/**
+	 * Verifica se i tre punti sono orientati in senso orario.
+	 */
+	private static boolean orient(double px, double py, double qx, double qy, double rx, double ry) {
+		return (qy - py) * (rx - qx) - (qx - px) * (ry - qy) < 0;
+	}
+
+	/**
+	 * Verifica se il punto p e' interno al cerchio circoscritto ad a, b, c.
+	 */
+	private static boolean inCircle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+		double dx = ax - px;
+		double dy = ay - py;
+		double ex = bx - px;
+		double ey = by - py;
+		double fx = cx - px;
+		double fy = cy - py;
+		double ap = dx * dx + dy * dy;
+		double bp = ex * ex + ey * ey;
+		double cp = fx * fx + fy * fy;
+		return dx * (ey * cp - bp * fy) - dy * (ex * cp - bp * fx) + ap * (ex * fy - ey * fx) < 0;
+	}
+
+	/**
+	 * Quadrato del raggio del cerchio circoscritto ai tre punti.
+	 */
+	private static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double ex = cx - ax;
+		double ey = cy - ay;
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+		double x = (ey * bl - dy * cl) * d;
+		double y = (dx * cl - ex * bl) * d;
+		double r = x * x + y * y;
+		return Double.isNaN(r) ? Double.POSITIVE_INFINITY : r;
+	}
+
+	/**
+	 * Centro del cerchio circoscritto ai tre punti (in cx, cy).
+	 */
+	private void circumcenter(double ax, double ay, double bx, double by, double ccx, double ccy) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double ex = ccx - ax;
+		double ey = ccy - ay;
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+		cx = ax + (ey * bl - dy * cl) * d;
+		cy = ay + (dx * cl - ex * bl) * d;
+	}
+
+	/**
+	 * Quadrato della distanza tra due punti.
+	 */
+	private static double sqDist(double ax, double ay, double bx, double by) {
+		double dx = ax - bx;
+		double dy = ay - by;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Ordina "ids" secondo i valori di "dists".
+	 */
+	private static void quicksort(int[] ids, double[] dists, int left, int right) {
+		while (right - left > 20) {
+			int median = (left + right) >>> 1;
+			int i = left + 1;
+			int j = right;
+			swap(ids, median, i);
+			if (dists[ids[left]] > dists[ids[right]]) swap(ids, left, right);
+			if (dists[ids[i]] > dists[ids[right]]) swap(ids, i, right);
+			if (dists[ids[left]] > dists[ids[i]]) swap(ids, left, i);
+			int temp = ids[i];
+			double tempDist = dists[temp];
+			while (true) {
+				do i++; while (dists[ids[i]] < tempDist);
+				do j--; while (dists[ids[j]] > tempDist);
+				if (j < i)
+					break;
+				swap(ids, i, j);
+			}
+			ids[left + 1] = ids[j];
+			ids[j] = temp;
+
+			//
+			// Ricorsione sulla parte piu' piccola, iterazione sull'altra.
+			//
+			if (right - i + 1 >= j - left) {
+				quicksort(ids, dists, left, j - 1);
+				left = i;
+			} else {
+				quicksort(ids, dists, i, right);
+				right = j - 1;
+			}
+		}
+		for (int i = left + 1; i <= right; i++) {
+			int temp = ids[i];
+			double tempDist = dists[temp];
+			int j = i - 1;
+			while (j >= left && dists[ids[j]] > tempDist) {
+				ids[j + 1] = ids[j];
+				j--;
+			}
+			ids[j + 1] = temp;
+		}
+	}
+
+	/**
+	 * Scambia due elementi di un vettore.
+	 */
+	private static void swap(int[] arr, int i, int j) {
+		int tmp = arr[i];
+		arr[i] = arr[j];
+		arr[j] = tmp;
+	}
+}
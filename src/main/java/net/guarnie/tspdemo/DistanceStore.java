@@ -0,0 +1,27 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Interfaccia comune a tutte le rappresentazioni delle distanze tra i nodi
+ * (città) dell'istanza corrente. Le euristiche accedono alle distanze solo
+ * tramite questa interfaccia, in modo che la memoria occupata dipenda
+ * dall'istanza e non da una capacità massima prefissata.
+ */
+public interface DistanceStore {
+	/**
+	 * Restituisce la distanza tra il nodo di indice i e quello di indice j.
+	 */
+	double dist(int i, int j);
+}
@@ -0,0 +1,131 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Arrays;
+
+/**
+ * Coda con priorità (heap binario) di archi (a, b) con un valore, da cui si
+ * estrae l'arco di valore massimo.
+ *
+ * Gli elementi non vengono mai aggiornati: chi la usa inserisce di nuovo
+ * l'arco quando il suo valore cambia e scarta, al momento dell'estrazione,
+ * gli elementi non piu' validi.
+ */
+public class EdgeHeap {
+	/**
+	 * Estremi e valori degli archi, in ordine di heap.
+	 */
+	private int[] a, b;
+	private double[] value;
+
+	/**
+	 * Numero di archi della coda.
+	 */
+	private int size;
+
+	/**
+	 * Costruttore della classe: coda vuota con spazio per "tot" archi (lo
+	 * spazio aumenta secondo necessita').
+	 */
+	public EdgeHeap(int tot) {
+		a = new int[Math.max(tot, 1)];
+		b = new int[a.length];
+		value = new double[a.length];
+	}
+
+	/**
+	 * Inserisce l'arco (x, y) con valore "v".
+	 */
+	public final void push(int x, int y, double v) {
+		if (size == a.length) {
+			a = Arrays.copyOf(a, size << 1);
+			b = Arrays.copyOf(b, size << 1);
+			value = Arrays.copyOf(value, size << 1);
+		}
+		int pos = size++;
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (value[parent] >= v)
+				break;
+			set(pos, parent);
+			pos = parent;
+		}
+		a[pos] = x;
+		b[pos] = y;
+		value[pos] = v;
+	}
+
+	/**
+	 * Primo estremo, secondo estremo e valore dell'arco di valore massimo.
+	 */
+	public final int topA() {
+		return a[0];
+	}
+
+	public final int topB() {
+		return b[0];
+	}
+
+	public final double topValue() {
+		return value[0];
+	}
+
+	/**
+	 * Elimina l'arco di valore massimo.
+	 */
+	public final void pop() {
+		size--;
+		int x = a[size], y = b[size];
+		double v = value[size];
+		int pos = 0;
+		while (true) {
+			int child = (pos << 1) + 1;
+			if (child >= size)
+				break;
+			if ((child + 1 < size) && (value[child + 1] > value[child]))
+				child++;
+			if (value[child] <= v)
+				break;
+			set(pos, child);
+			pos = child;
+		}
+		a[pos] = x;
+		b[pos] = y;
+		value[pos] = v;
+	}
+
+	/**
+	 * Restituisce il numero di archi della coda.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * Svuota la coda.
+	 */
+	public final void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Copia nella posizione "to" l'arco in posizione "from".
+	 */
+	private void set(int to, int from) {
+		a[to] = a[from];
+		b[to] = b[from];
+		value[to] = value[from];
+	}
+}
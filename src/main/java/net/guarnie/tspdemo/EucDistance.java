@@ -0,0 +1,37 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Distanze EUC_2D calcolate "al volo" a partire dalle coordinate delle città,
+ * senza memorizzare alcuna matrice.
+ */
+public class EucDistance implements DistanceStore {
+
+	/**
+	 * Restituisce la distanza euclidea tra le città di indice i e j.
+	 */
+	public final double dist(int i, int j) {
+		City c1 = Heuristic.citiesVector[i];
+		City c2 = Heuristic.citiesVector[j];
+		double dx = c1.x - c2.x;
+		double dy = c1.y - c2.y;
+
+		//
+		// Rispetto le specifiche per il calcolo della distanza
+		// della TSPLIB '95.
+		//
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
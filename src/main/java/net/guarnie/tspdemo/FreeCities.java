@@ -0,0 +1,122 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Città non ancora visitate durante la costruzione di un circuito "nearest
+ * neighbor" (formiche di AntColonyHeuristic, circuiti casuali di
+ * GeneticHeuristic): ogni città ricorda la propria posizione nel vettore,
+ * per cui la si toglie in O(1).
+ *
+ * Quando tutti i vicini della neighbours list sono gia' visitati serve la
+ * città libera piu' vicina: con distanze EUC_2D la si cerca in un albero k-d
+ * (KdTree) delle sole città libere, costruito alla prima ricerca di ogni
+ * circuito e aggiornato ad ogni visita, invece di confrontare la città con
+ * tutte quelle libere (O(n) per ricerca). Con le altre distanze le
+ * coordinate non bastano e si esegue il confronto con tutte.
+ */
+public class FreeCities {
+	/**
+	 * Città e distanze dell'istanza.
+	 */
+	private final City[] cities;
+	private final DistanceStore distances;
+
+	/**
+	 * Città libere e posizione di ogni città nel vettore (-1 se e' gia'
+	 * stata visitata).
+	 */
+	private final int[] free, freePos;
+	private int tot;
+
+	/**
+	 * Albero k-d delle città libere (null finche' non serve).
+	 */
+	private KdTree tree;
+
+	/**
+	 * Costruttore della classe: insieme per le prime "n" città del vettore
+	 * "cities", con distanze "distances".
+	 */
+	public FreeCities(City[] cities, int n, DistanceStore distances) {
+		this.cities = cities;
+		this.distances = distances;
+		free = new int[n];
+		freePos = new int[n];
+	}
+
+	/**
+	 * Rende libere tutte le città, per un nuovo circuito.
+	 */
+	public final void fill() {
+		tot = free.length;
+		for (int count = 0; count < tot; count++) {
+			free[count] = count;
+			freePos[count] = count;
+		}
+		tree = null;
+	}
+
+	/**
+	 * Restituisce il numero di città libere.
+	 */
+	public final int size() {
+		return tot;
+	}
+
+	/**
+	 * Verifica se la città "c" e' libera.
+	 */
+	public final boolean isFree(int c) {
+		return freePos[c] >= 0;
+	}
+
+	/**
+	 * Segna come visitata la città "c", che deve essere libera.
+	 */
+	public final void visit(int c) {
+		int p = freePos[c];
+		free[p] = free[--tot];
+		freePos[free[p]] = p;
+		freePos[c] = -1;
+		if (tree != null)
+			tree.remove(cities[c]);
+	}
+
+	/**
+	 * Restituisce la città libera piu' vicina alla città "c" (che e' gia'
+	 * stata visitata); deve esserci almeno una città libera.
+	 */
+	public final int nearest(int c) {
+		if (distances instanceof EucDistance) {
+			if (tree == null) {
+				City[] list = new City[tot];
+				for (int count = 0; count < tot; count++)
+					list[count] = cities[free[count]];
+				tree = new KdTree(list, tot);
+			}
+			return tree.nearest(cities[c].x, cities[c].y).num;
+		}
+		int pick = free[0];
+		double min = distances.dist(c, pick);
+		for (int count = 1; count < tot; count++) {
+			double d = distances.dist(c, free[count]);
+			if (d < min) {
+				min = d;
+				pick = free[count];
+			}
+		}
+		return pick;
+	}
+}
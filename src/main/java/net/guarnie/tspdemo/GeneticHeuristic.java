@@ -0,0 +1,688 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Random;
+
+/**
+ * Algoritmo genetico con "Edge Assembly Crossover" (vedi: Y. Nagata,
+ * S. Kobayashi, "A Powerful Genetic Algorithm Using Edge Assembly Crossover
+ * for the Traveling Salesman Problem", 2013), in cui ogni figlio viene
+ * portato in un ottimo locale con le mosse di ImprovementHeuristic (2-Opt,
+ * Or-Opt e 3-Opt).
+ *
+ * La popolazione iniziale contiene il circuito corrente, i circuiti delle
+ * euristiche di costruzione (solo per istanze fino a
+ * CONSTRUCTION_MAX_CITIES città, dato che costano O(n^2)) e circuiti
+ * "nearest neighbor" da città di partenza casuali, scegliendo ogni tanto il
+ * secondo vicino invece del primo.
+ *
+ * Ad ogni generazione gli individui vengono accoppiati a caso (A con il
+ * successivo B in una permutazione) e per ogni coppia si generano fino a
+ * CHILDREN figli: il figlio migliore prende il posto di A se e' piu' corto.
+ * Le coppie vengono elaborate in parallelo (fork/join): ogni task usa uno
+ * spazio di lavoro proprio (Crossover, preso da un WorkspacePool) e legge
+ * solo dati condivisi che non cambiano durante la generazione.
+ */
+public class GeneticHeuristic extends Heuristic {
+
+	/**
+	 * Codice di riconoscimento dell'algoritmo.
+	 */
+	final static int GENETIC = 13;
+
+	/**
+	 * Numero di individui della popolazione e numero massimo di figli
+	 * generati per ogni coppia.
+	 */
+	private final static int POP_SIZE = 30;
+	private final static int CHILDREN = 10;
+
+	/**
+	 * Numero di generazioni consecutive senza sostituzioni dopo le quali la
+	 * popolazione e' considerata convergente.
+	 */
+	private final static int STALL_GENERATIONS = 10;
+
+	/**
+	 * Numero massimo di città per usare le euristiche di costruzione nella
+	 * popolazione iniziale.
+	 */
+	private final static int CONSTRUCTION_MAX_CITIES = 4000;
+
+	/**
+	 * Probabilità di scegliere il secondo vicino libero invece del primo nei
+	 * circuiti "nearest neighbor" casuali.
+	 */
+	private final static double NN_RANDOM = 0.1;
+
+	/**
+	 * Individuo della popolazione: ordine di visita delle città e lunghezza
+	 * del circuito (non vengono mai modificati).
+	 */
+	static class Member {
+		final int[] order;
+		final double length;
+
+		Member(int[] order, double length) {
+			this.order = order;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Spazi di lavoro dei task eseguiti in parallelo.
+	 */
+	private final WorkspacePool<Crossover> workspaces = new WorkspacePool<Crossover>() {
+		protected Crossover create() {
+			return new Crossover();
+		}
+	};
+
+	/**
+	 * Costruttore della classe.
+	 */
+	public GeneticHeuristic(TspFrame tFrame, int eID) {
+		super(tFrame, eID, -1, -1, -1, null);
+	}
+
+	/**
+	 * Algoritmo genetico, per al massimo "timeLimit" millisecondi o finche'
+	 * il circuito non e' lungo al piu' "target" (o la popolazione non e'
+	 * convergente). tourSize e il circuito visualizzato cambiano solo quando
+	 * si trova un nuovo circuito migliore.
+	 */
+	private void evolve(long timeLimit, double target) {
+		final long START = System.currentTimeMillis();
+		if (totCities < 8)
+			return;
+		setDeadline(START + timeLimit);
+		try {
+			generations(START, timeLimit, target);
+		} finally {
+			workspaces.clear();
+		}
+	}
+
+	/**
+	 * Ciclo delle generazioni di evolve(), iniziato all'istante "START".
+	 */
+	private void generations(final long START, long timeLimit, double target) {
+		boolean improved = false;
+		final Member[] pop = initialPopulation();
+		Member best = null;
+		for (int count = 0; count < POP_SIZE; count++)
+			if ((pop[count] != null) && ((best == null) || (pop[count].length < best.length)))
+				best = pop[count];
+		if (best == null)
+			return;
+		if (best.length < tourSize - MIN_GAIN)
+			setTour(best.length, best.order);
+		showTour();
+
+		final Random random = new Random();
+		final int[] perm = new int[POP_SIZE];
+		final Member[] children = new Member[POP_SIZE];
+		for (int count = 0; count < POP_SIZE; count++)
+			perm[count] = count;
+		int stall = 0;
+
+		//
+		// Se la popolazione e' incompleta il thread e' stato fermato o il
+		// tempo e' scaduto, per cui non si entra nel ciclo.
+		//
+		while ((best.length > target) && (stall < STALL_GENERATIONS) && !isExpired()) {
+			for (int count = POP_SIZE - 1; count > 0; count--) {
+				int other = random.nextInt(count + 1);
+				int tmp = perm[count];
+				perm[count] = perm[other];
+				perm[other] = tmp;
+			}
+			forEach(POP_SIZE, new Task() {
+				public void compute(int index) {
+					children[index] = null;
+					if (isExpired())
+						return;
+					Crossover work = workspaces.acquire();
+					try {
+						children[index] = work.offspring(pop[perm[index]], pop[perm[(index + 1) % POP_SIZE]]);
+					} finally {
+						workspaces.release(work);
+					}
+				}
+			});
+			stall++;
+			for (int count = 0; count < POP_SIZE; count++) {
+				Member child = children[count];
+				if ((child != null) && (child.length < pop[perm[count]].length - MIN_GAIN)) {
+					pop[perm[count]] = child;
+					stall = 0;
+					if (child.length < best.length - MIN_GAIN) {
+						best = child;
+						improved = true;
+					}
+				}
+			}
+			if (showProgress(START, timeLimit) && improved) {
+				improved = false;
+				setTour(best.length, best.order);
+				showTour();
+			}
+		}
+		setTour(best.length, best.order);
+	}
+
+	/**
+	 * Crea la popolazione iniziale (portando ogni individuo in un ottimo
+	 * locale). Se il thread viene fermato o scade il tempo gli individui
+	 * non ancora calcolati restano null.
+	 */
+	private Member[] initialPopulation() {
+		final Member[] pop = new Member[POP_SIZE];
+		int tot = 0;
+		int[] current = tourOrder();
+		double currentSize = tourSize;
+		if (current.length == totCities)
+			pop[tot++] = new Member(current, currentSize);
+
+		//
+		// Circuiti delle euristiche di costruzione (senza animazione),
+		// costruiti nel circuito corrente che viene poi ripristinato.
+		//
+		if (totCities <= CONSTRUCTION_MAX_CITIES) {
+			boolean animated = isAnimated();
+			setAnimated(false);
+			try {
+				for (int count = 0; (count < ConstructionHeuristic.CONSTR_COD.length) && (tot < POP_SIZE); count++) {
+					if (isExpired())
+						break;
+					tspFrame.statusArea.setStatus("Initial population: " + tspFrame.tspArea.getDescription(ConstructionHeuristic.CONSTR_COD[count]) + "...");
+					clearTour();
+					new ConstructionHeuristic(tspFrame, ConstructionHeuristic.CONSTR_COD[count]).construct();
+					if (getTotTourNodes() == totCities)
+						pop[tot++] = new Member(tourOrder(), tourSize);
+				}
+			} finally {
+				setAnimated(animated);
+				setTour(currentSize, current);
+			}
+		}
+
+		//
+		// I circuiti "nearest neighbor" casuali e le ricerche locali vengono
+		// eseguiti in parallelo.
+		//
+		tspFrame.statusArea.setStatus("Initial population: local search...");
+		forEach(POP_SIZE, new Task() {
+			public void compute(int index) {
+				if (isExpired())
+					return;
+				Crossover work = workspaces.acquire();
+				try {
+					Member m = (pop[index] == null) ? work.randomNearestNeighbor() : pop[index];
+					pop[index] = work.optimize(m);
+				} finally {
+					workspaces.release(work);
+				}
+			}
+		});
+		tspFrame.statusArea.setStatus("Evolving the population...");
+		return pop;
+	}
+
+	/**
+	 * Spazio di lavoro di un task per l'Edge Assembly Crossover, la
+	 * costruzione dei circuiti casuali e la ricerca locale.
+	 *
+	 * Gli archi di un circuito sono indicati dalla città e da uno "slot": lo
+	 * slot 2c e' l'arco verso il successore di c, 2c + 1 quello verso il
+	 * predecessore.
+	 */
+	class Crossover {
+		private final int n = totCities;
+
+		/**
+		 * Successori e predecessori nei due genitori.
+		 */
+		private final int[] succA = new int[n], predA = new int[n];
+		private final int[] succB = new int[n], predB = new int[n];
+
+		/**
+		 * Archi gia' usati (o comuni ai due genitori) per ogni slot.
+		 */
+		private final boolean[] usedA = new boolean[2 * n], usedB = new boolean[2 * n];
+
+		/**
+		 * Cammino alternato in costruzione e posizione di ogni città nel
+		 * cammino, per le posizioni pari e dispari (-1 se non c'e').
+		 */
+		private final int[] path = new int[2 * n + 1];
+		private final int[] posEven = new int[n], posOdd = new int[n];
+
+		/**
+		 * Città di partenza candidate per i cicli.
+		 */
+		private final int[] starts = new int[n];
+
+		/**
+		 * AB-cicli trovati: le città di ciascun ciclo (il primo arco e'
+		 * di A) e l'inizio di ogni ciclo.
+		 */
+		private final int[] cycles = new int[2 * n];
+		private final int[] cycleStart = new int[n + 1];
+		private int cycleTot;
+
+		/**
+		 * Indici degli AB-cicli, per sceglierne alcuni a caso senza
+		 * ripetizioni.
+		 */
+		private final int[] cycleIds = new int[n];
+
+		/**
+		 * Archi del figlio (due vicini per città), sottocircuito di ogni
+		 * città, liste circolari delle città di ogni sottocircuito e loro
+		 * dimensioni.
+		 */
+		private final int[] link = new int[2 * n];
+		private final int[] comp = new int[n];
+		private final int[] nextMember = new int[n];
+		private final int[] compHead = new int[n];
+		private final int[] compSize = new int[n];
+
+		/**
+		 * Città ancora da visitare nei circuiti casuali.
+		 */
+		private final FreeCities free = new FreeCities(citiesVector, n, distances);
+
+		private final Random random = new Random();
+		private final ActiveQueue queue = new ActiveQueue(n);
+		private final ImprovementHeuristic search = new ImprovementHeuristic(tspFrame, ImprovementHeuristic.TWO_CHANGE,
+				GeneticHeuristic.this);
+
+		/**
+		 * Porta in un ottimo locale il circuito di "m" (partendo da tutte le
+		 * città).
+		 */
+		Member optimize(Member m) {
+			Tour t = createTour(m.order);
+			queue.pushTour(t, m.order[0]);
+			return toMember(t, m.order[0], search.localOptimum(t, m.length, queue));
+		}
+
+		/**
+		 * Crea un individuo con il circuito "t" (a partire dalla città
+		 * "start").
+		 */
+		private Member toMember(Tour t, int start, double length) {
+			int[] order = new int[n];
+			t.toArray(start, order);
+			return new Member(order, length);
+		}
+
+		/**
+		 * Circuito "nearest neighbor" da una città casuale: la città
+		 * successiva e' la prima libera della neighbours list (a volte la
+		 * seconda), oppure la piu' vicina tra tutte quelle libere.
+		 */
+		Member randomNearestNeighbor() {
+			int[] order = new int[n];
+			free.fill();
+			int cur = random.nextInt(n);
+			double length = 0;
+			for (int count = 0; count < n; count++) {
+				order[count] = cur;
+				free.visit(cur);
+				if (free.size() == 0)
+					break;
+				City c = citiesVector[cur];
+				int pick = -1;
+				for (int ind = 0; ind < c.neighboursSize; ind++) {
+					int x = c.neighbourIds[ind];
+					if (!free.isFree(x))
+						continue;
+					if (pick < 0)
+						pick = x;
+					else {
+						if (random.nextDouble() < NN_RANDOM)
+							pick = x;
+						break;
+					}
+				}
+				if (pick < 0)
+					pick = free.nearest(cur);
+				length += dist(cur, pick);
+				cur = pick;
+			}
+			return new Member(order, length + dist(order[n - 1], order[0]));
+		}
+
+		/**
+		 * Genera fino a CHILDREN figli di "a" e "b", ciascuno applicando ad
+		 * "a" un AB-ciclo diverso, e restituisce il migliore (null se i
+		 * genitori hanno gli stessi archi).
+		 */
+		Member offspring(Member a, Member b) {
+			setParents(a, b);
+			findCycles();
+			Member best = null;
+			for (int count = 0; count < cycleTot; count++)
+				cycleIds[count] = count;
+			for (int count = 0; (count < CHILDREN) && (count < cycleTot); count++) {
+				int k = count + random.nextInt(cycleTot - count);
+				int id = cycleIds[k];
+				cycleIds[k] = cycleIds[count];
+				cycleIds[count] = id;
+				Member child = child(a, id);
+				if ((best == null) || (child.length < best.length))
+					best = child;
+			}
+			return best;
+		}
+
+		/**
+		 * Imposta successori e predecessori dei genitori e segna come usati
+		 * gli archi comuni.
+		 */
+		private void setParents(Member a, Member b) {
+			for (int count = 0; count < n; count++) {
+				int c = a.order[count];
+				int x = a.order[(count + 1 < n) ? count + 1 : 0];
+				succA[c] = x;
+				predA[x] = c;
+				c = b.order[count];
+				x = b.order[(count + 1 < n) ? count + 1 : 0];
+				succB[c] = x;
+				predB[x] = c;
+			}
+			for (int c = 0; c < n; c++) {
+				int x = succA[c];
+				boolean shared = (succB[c] == x) || (predB[c] == x);
+				usedA[2 * c] = shared;
+				usedA[2 * x + 1] = shared;
+				x = succB[c];
+				shared = (succA[c] == x) || (predA[c] == x);
+				usedB[2 * c] = shared;
+				usedB[2 * x + 1] = shared;
+				posEven[c] = -1;
+				posOdd[c] = -1;
+			}
+		}
+
+		/**
+		 * Scompone gli archi non comuni ai genitori in AB-cicli (cicli che
+		 * alternano archi di A e di B): si costruisce un cammino alternato
+		 * scegliendo gli archi a caso, e quando si torna su una città con
+		 * la stessa parità di posizione il tratto di cammino intermedio e'
+		 * un AB-ciclo, che viene tolto dal cammino.
+		 */
+		private void findCycles() {
+			int tot = 0;
+			cycleTot = 0;
+			cycleStart[0] = 0;
+			for (int c = 0; c < n; c++)
+				if (!usedA[2 * c] || !usedA[2 * c + 1])
+					starts[tot++] = c;
+			while (tot > 0) {
+				int k = random.nextInt(tot);
+				int v0 = starts[k];
+				if (usedA[2 * v0] && usedA[2 * v0 + 1]) {
+					starts[k] = starts[--tot];
+					continue;
+				}
+				int len = 1;
+				path[0] = v0;
+				posEven[v0] = 0;
+				while (len > 0) {
+					int w = takeEdge(path[len - 1], ((len - 1) & 1) == 0);
+					if (w < 0) {
+
+						//
+						// Nessun arco disponibile: il cammino viene
+						// abbandonato.
+						//
+						for (int count = 0; count < len; count++)
+							clearPosition(count);
+						break;
+					}
+					int[] pos = ((len & 1) == 0) ? posEven : posOdd;
+					int i = pos[w];
+					path[len] = w;
+					if (i < 0) {
+						pos[w] = len++;
+						continue;
+					}
+
+					//
+					// AB-ciclo path[i..len - 1]: viene memorizzato
+					// cominciando con un arco di A.
+					//
+					int first = cycleStart[cycleTot];
+					int m = 0;
+					for (int count = i; count < len; count++)
+						cycles[first + m++] = path[count];
+					if ((i & 1) == 1) {
+						int tmp = cycles[first];
+						System.arraycopy(cycles, first + 1, cycles, first, m - 1);
+						cycles[first + m - 1] = tmp;
+					}
+					cycleStart[++cycleTot] = first + m;
+					for (int count = i + 1; count < len; count++)
+						clearPosition(count);
+					len = i + 1;
+				}
+			}
+		}
+
+		/**
+		 * Cancella la posizione della città path[index].
+		 */
+		private void clearPosition(int index) {
+			int[] pos = ((index & 1) == 0) ? posEven : posOdd;
+			if (pos[path[index]] == index)
+				pos[path[index]] = -1;
+		}
+
+		/**
+		 * Segna come usato un arco libero (scelto a caso) di A, se fromA e'
+		 * true, o di B incidente nella città "v" e restituisce l'altra
+		 * estremita' (-1 se non ce ne sono).
+		 */
+		private int takeEdge(int v, boolean fromA) {
+			boolean[] used = fromA ? usedA : usedB;
+			boolean s = !used[2 * v];
+			boolean p = !used[2 * v + 1];
+			if (s && p)
+				s = random.nextBoolean();
+			if (s) {
+				int w = fromA ? succA[v] : succB[v];
+				used[2 * v] = true;
+				used[2 * w + 1] = true;
+				return w;
+			}
+			if (p) {
+				int w = fromA ? predA[v] : predB[v];
+				used[2 * v + 1] = true;
+				used[2 * w] = true;
+				return w;
+			}
+			return -1;
+		}
+
+		/**
+		 * Figlio ottenuto da "a" sostituendo gli archi di A dell'AB-ciclo
+		 * "k" con quelli di B, unendo i sottocircuiti che si formano e
+		 * portando il risultato in un ottimo locale a partire dalle città
+		 * toccate.
+		 */
+		private Member child(Member a, int k) {
+			for (int c = 0; c < n; c++) {
+				link[2 * c] = succA[c];
+				link[2 * c + 1] = predA[c];
+			}
+			double length = a.length;
+			final int FIRST = cycleStart[k], M = cycleStart[k + 1] - FIRST;
+			for (int j = 0; j < M; j += 2) {
+				int u = cycles[FIRST + j], v = cycles[FIRST + j + 1];
+				replaceLink(u, v, -1);
+				replaceLink(v, u, -1);
+				length -= dist(u, v);
+			}
+			for (int j = 1; j < M; j += 2) {
+				int u = cycles[FIRST + j], v = cycles[FIRST + ((j + 1 < M) ? j + 1 : 0)];
+				replaceLink(u, -1, v);
+				replaceLink(v, -1, u);
+				length += dist(u, v);
+				queue.push(u);
+				queue.push(v);
+			}
+			length += mergeSubtours();
+
+			//
+			// Ordine di visita del figlio e ricerca locale.
+			//
+			int[] order = new int[n];
+			int prev = -1, cur = 0;
+			for (int count = 0; count < n; count++) {
+				order[count] = cur;
+				int next = (link[2 * cur] != prev) ? link[2 * cur] : link[2 * cur + 1];
+				prev = cur;
+				cur = next;
+			}
+			Tour t = createTour(order);
+			return toMember(t, order[0], search.localOptimum(t, length, queue));
+		}
+
+		/**
+		 * Sostituisce con "nw" il vicino "old" della città "c" nel figlio.
+		 */
+		private void replaceLink(int c, int old, int nw) {
+			if (link[2 * c] == old)
+				link[2 * c] = nw;
+			else
+				link[2 * c + 1] = nw;
+		}
+
+		/**
+		 * Unisce i sottocircuiti del figlio: ogni volta il piu' piccolo
+		 * viene unito ad un altro con lo scambio di due archi (come in una
+		 * mossa 2-Opt) che costa meno, cercando le città vicine nelle
+		 * neighbours list. Restituisce la variazione di lunghezza.
+		 */
+		private double mergeSubtours() {
+			int compTot = 0;
+			for (int c = 0; c < n; c++)
+				comp[c] = -1;
+			for (int c = 0; c < n; c++) {
+				if (comp[c] >= 0)
+					continue;
+				int prev = -1, cur = c, size = 0;
+				do {
+					comp[cur] = compTot;
+					int next = (link[2 * cur] != prev) ? link[2 * cur] : link[2 * cur + 1];
+					nextMember[cur] = next;
+					prev = cur;
+					cur = next;
+					size++;
+				} while (cur != c);
+				compHead[compTot] = c;
+				compSize[compTot++] = size;
+			}
+			double delta = 0;
+			for (int left = compTot; left > 1; left--) {
+				int u = -1;
+				for (int count = 0; count < compTot; count++)
+					if ((compSize[count] > 0) && ((u < 0) || (compSize[count] < compSize[u])))
+						u = count;
+				double best = Double.POSITIVE_INFINITY;
+				int bc = -1, bc2 = -1, bx = -1, bx2 = -1;
+				for (int pass = 0; (pass < 2) && (bc < 0); pass++) {
+					int c = compHead[u];
+					do {
+						City city = citiesVector[c];
+						int tot = (pass == 0) ? city.neighboursSize : n;
+						for (int ind = 0; ind < tot; ind++) {
+							int x = (pass == 0) ? city.neighbourIds[ind] : ind;
+							if (comp[x] == u)
+								continue;
+							for (int s = 0; s < 2; s++) {
+								int c2 = link[2 * c + s];
+								for (int t = 0; t < 2; t++) {
+									int x2 = link[2 * x + t];
+									double removed = dist(c, c2) + dist(x, x2);
+									double d1 = dist(c, x) + dist(c2, x2) - removed;
+									double d2 = dist(c, x2) + dist(c2, x) - removed;
+									if (d1 < best) {
+										best = d1;
+										bc = c;
+										bc2 = c2;
+										bx = x;
+										bx2 = x2;
+									}
+									if (d2 < best) {
+										best = d2;
+										bc = c;
+										bc2 = c2;
+										bx = x2;
+										bx2 = x;
+									}
+								}
+							}
+						}
+						c = nextMember[c];
+					} while (c != compHead[u]);
+				}
+
+				//
+				// Gli archi (bc, bc2) e (bx, bx2) vengono sostituiti da
+				// (bc, bx) e (bc2, bx2).
+				//
+				replaceLink(bc, bc2, bx);
+				replaceLink(bc2, bc, bx2);
+				replaceLink(bx, bx2, bc);
+				replaceLink(bx2, bx, bc2);
+				delta += best;
+				queue.push(bc);
+				queue.push(bc2);
+				queue.push(bx);
+				queue.push(bx2);
+				int v = comp[bx];
+				int c = compHead[u];
+				do {
+					comp[c] = v;
+					c = nextMember[c];
+				} while (c != compHead[u]);
+				int tmp = nextMember[compHead[u]];
+				nextMember[compHead[u]] = nextMember[compHead[v]];
+				nextMember[compHead[v]] = tmp;
+				compSize[v] += compSize[u];
+				compSize[u] = 0;
+			}
+			return delta;
+		}
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		if (execID == GENETIC)
+			evolve(Math.round(tspFrame.tspArea.getTimeLimit() * 1000), tspFrame.tspArea.getTargetLength());
+		endRun();
+	}
+}
@@ -13,7 +13,11 @@ package net.guarnie.tspdemo;
  *
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Classe che contiene le strutture dati e che implementa le operazioni sui nodi
@@ -23,12 +27,6 @@ import java.util.Random;
  */
 public class Heuristic extends Thread {
 
-	/**
-	 * Costante che indica la massima capacità del vettore che deve contenere le
-	 * coordinate dei nodi (città).
-	 */
-	final static int CITIES_VECTOR_CAPACITY = 15000;
-
 	/**
 	 * Codici di riconoscimento per la generazione casuale, inserimento,
 	 * spostamento, cancellazione di città (alcuni servono anche per l'undo
@@ -40,6 +38,21 @@ public class Heuristic extends Thread {
 	final static int DELCITY = 3;
 	final static int LBOUND = 4;
 	final static int NEW_TOUR = 5;
+	final static int CANDIDATES = 6;
+
+	/**
+	 * Codici di riconoscimento per il tipo di candidati memorizzati nelle
+	 * neighbours list (e usati dalle euristiche di ricerca locale): i K nodi
+	 * piu' vicini, i lati della triangolazione di Delaunay, l'unione dei due
+	 * insiemi, i nodi piu' vicini in ciascuno dei quattro quadranti, oppure i
+	 * nodi piu' vicini secondo l'alpha-nearness (calcolata con le penalità
+	 * del lower bound di Held-Karp).
+	 */
+	final static int CAND_NEAREST = 0;
+	final static int CAND_DELAUNAY = 1;
+	final static int CAND_NEAREST_DELAUNAY = 2;
+	final static int CAND_QUADRANT = 3;
+	final static int CAND_ALPHA = 4;
 
 	/**
 	 * Codici di riconoscimento per identificare il diverso tipo di
@@ -56,26 +69,48 @@ public class Heuristic extends Thread {
 	final static int DEF_STEP_TIME = 200;
 
 	/**
-	 * Numero di nodi facenti parte il circuito. Si puo' vedere anche come
-	 * indice del prossimo nodo da inserire nel circuito.
+	 * Numero di città oltre il quale le euristiche di ricerca locale usano il
+	 * circuito memorizzato nello splay tree invece della lista a due livelli.
 	 */
-	private static int totTourNodes;
+	final static int SPLAY_TOUR_SIZE = 100000;
 
 	/**
-	 * Ultimo nodo del circuito inserito.
+	 * Intervallo minimo (in millisecondi) tra due aggiornamenti del circuito
+	 * visualizzato durante le metaeuristiche (vedi showProgress()).
 	 */
-	private static int lastNum;
+	protected final static long SHOW_INTERVAL = 250;
 
 	/**
-	 * Variabile personalizzata di "stop".
+	 * Variazione minima perche' una mossa venga applicata o un circuito sia
+	 * considerato migliore: evita che mosse a guadagno nullo (con punti
+	 * coincidenti) vengano eseguite all'infinito per effetto degli errori di
+	 * arrotondamento.
 	 */
-	private boolean isStopped;
+	protected final static double MIN_GAIN = 1e-9;
+
+	/**
+	 * Variabile personalizzata di "stop" (volatile, come "deadline", perche'
+	 * isExpired() la legge senza sincronizzazione).
+	 */
+	private volatile boolean isStopped;
 
 	/**
 	 * Variabile personalizzata di "pause".
 	 */
 	private boolean isPaused;
 
+	/**
+	 * Istante (in millisecondi) entro il quale il thread deve terminare
+	 * (vedi isExpired()).
+	 */
+	private volatile long deadline = Long.MAX_VALUE;
+
+	/**
+	 * Istante dell'ultimo aggiornamento della barra di avanzamento (vedi
+	 * showProgress()).
+	 */
+	private long lastShow;
+
 	/**
 	 * Le coordinate massime e minime in x e y dei nodi (citta') dell'istanza
 	 * corrente.
@@ -110,26 +145,68 @@ public class Heuristic extends Thread {
 
 	/**
 	 * Vettore che contiene tutte le coordinate dei nodi (citta') cosi' come
-	 * sono stati inseriti.
+	 * sono stati inseriti. E' dimensionato sull'istanza corrente e cresce
+	 * quando vengono aggiunti nuovi nodi.
+	 */
+	protected static City[] citiesVector = new City[0];
+
+	/**
+	 * Circuito che rappresenta la soluzione corrente al TSP per l'istanza
+	 * (permutazione degli indici delle città, con la stessa capacità del
+	 * vettore dei nodi).
 	 */
-	protected static City[] citiesVector = new City[CITIES_VECTOR_CAPACITY];
+	protected static ArrayTour tourArray = new ArrayTour(0);
 
 	/**
-	 * Vettore che contiene il circuito che rappresenta la soluzione corrente al
-	 * TSP per l'istanza.
+	 * Rappresentazione del circuito usata da nextTourNode() e prevTourNode():
+	 * tourArray, oppure quella scelta dalle euristiche di ricerca locale.
 	 */
-	protected static City[] tourVector = new City[CITIES_VECTOR_CAPACITY];
+	protected static Tour tour = tourArray;
 
 	/**
 	 * Vettore che contiene il circuito ottimo (se e' conosciuto) dell'istanza
 	 * corrente.
 	 */
-	protected static City[] optVector = new City[CITIES_VECTOR_CAPACITY];
+	protected static City[] optVector = new City[0];
+
+	/**
+	 * Distanze EUC_2D, calcolate a partire dalle coordinate delle città.
+	 */
+	private final static DistanceStore EUC_DISTANCES = new EucDistance();
+
+	/**
+	 * Distanze tra i nodi del grafo (prendono il posto della matrice di
+	 * adiacenza).
+	 */
+	protected static DistanceStore distances = EUC_DISTANCES;
+
+	/**
+	 * Tipo di candidati memorizzati nelle neighbours list.
+	 */
+	private static int candidateType = CAND_NEAREST;
 
 	/**
-	 * Matrice di adiacenza del grafo.
+	 * Vale true se i candidati scelti sono quelli dell'alpha-nearness ma,
+	 * dopo una modifica delle città, le neighbours list contengono i K nodi
+	 * piu' vicini, in attesa del prossimo lower bound di Held-Karp (vedi
+	 * clearPenalties()).
 	 */
-	protected static double[][] adjMatrix = new double[CITIES_VECTOR_CAPACITY][CITIES_VECTOR_CAPACITY];
+	private static boolean alphaStale = false;
+
+	/**
+	 * Penalità dei nodi (vettore pi) del miglior 1-tree trovato dall'ultimo
+	 * calcolo del lower bound di Held-Karp, usate per l'alpha-nearness (null
+	 * se il lower bound non e' stato calcolato per l'istanza attuale).
+	 */
+	private static double[] penalties;
+
+	/**
+	 * Indice spaziale delle città (solo per le istanze EUC_2D con i K nodi
+	 * piu' vicini come candidati, altrimenti null): permette di aggiornare
+	 * le neighbours list quando si aggiungono, spostano o cancellano città
+	 * senza ricalcolarle tutte.
+	 */
+	private static KdTree spatialIndex;
 
 	/**
 	 * Dimensione totale del circuito che rappresenta la soluzione attuale al
@@ -267,78 +344,67 @@ public class Heuristic extends Thread {
 	 * Aggiunge un nodo del vettore delle coordinate dei nodi.
 	 */
 	public final static void addCity(double x, double y) {
-		euc2D(x, y, totCities++);
+		checkEuc2D();
+		clearPenalties();
+		ensureCapacity(totCities + 1);
+		citiesVector[totCities] = new City(x, y, totCities);
+		totCities++;
+		if (isIncremental(totCities))
+			insertNeighbour(citiesVector[totCities - 1]);
+		else
+			computeNeighbours(null);
 		lowerBound = 0;
-		if (totTourNodes > 1) {
-			City c = citiesVector[totCities - 1];
-			int idx = c.neighbours[0].c.tourIndex;
-			c.tourIndex = idx;
-			System.arraycopy(tourVector, idx, tourVector, idx + 1, totTourNodes	- idx);
-			totTourNodes++;
-			tourVector[idx] = c;
-			for (int count1 = idx + 1; count1 < totTourNodes; count1++)
-				tourVector[count1].tourIndex++;
+		City c = citiesVector[totCities - 1];
+		int idx = tourArray.position(c.neighbourIds[0]);
+		if ((tourArray.size() > 1) && (idx >= 0)) {
+			tourArray.insert(idx, c.num);
 			int c1 = prevTourNode(c).num;
 			int c2 = nextTourNode(c).num;
-			tourSize += adjMatrix[c.num][c1] + adjMatrix[c.num][c2]	- adjMatrix[c1][c2];
+			tourSize += dist(c.num, c1) + dist(c.num, c2) - dist(c1, c2);
 		}
 	}
 
 	/**
 	 * Modifica un nodo del vettore delle coordinate dei nodi.
 	 */
-	private static void movCity(double x, double y, int ind) {
-		double dist;
-		int count1, count2;
-		double[] oldDist = new double[totCities];
+	static void movCity(double x, double y, int ind) {
 		City c = citiesVector[ind];
-		double dx, dy;
+		ArrayList<City> affected = null;
+		checkEuc2D();
 		checkBounds(x, y);
 		lowerBound = 0;
+		clearPenalties();
 
 		//
 		// Aggiorna la dimensione del circuito (elimina nodo con la vecchia
 		// posizione).
 		//
-		if (totTourNodes > 1)
-			tourSize -= adjMatrix[c.num][nextTourNode(c).num] + adjMatrix[c.num][prevTourNode(c).num];
+		if (tourArray.size() > 1)
+			tourSize -= dist(c.num, nextTourNode(c).num) + dist(c.num, prevTourNode(c).num);
 
 		//
-		// Modifica le coordinate della citta'.
+		// Toglie il nodo dall'indice spaziale nella vecchia posizione.
 		//
-		c.x = x;
-		c.y = y;
+		if (isIncremental(totCities))
+			affected = removeNeighbour(c);
 
 		//
-		// Memorizza le vecchie distanze tra il nodo da spostare e gli altri.
+		// Modifica le coordinate della citta' (le nuove distanze sono
+		// calcolate direttamente dalle coordinate).
 		//
-		System.arraycopy(adjMatrix[ind], 0, oldDist, 0, totCities);
-
-		//
-		// Aggiorna la matrice di adiacenza con le nuove distanze.
-		//
-		for (count1 = 0; count1 < totCities; count1++) {
-			c = citiesVector[count1];
-			dx = x - c.x;
-			dy = y - c.y;
-			dist = Math.sqrt(dx * dx + dy * dy);
-			adjMatrix[ind][count1] = dist;
-			adjMatrix[count1][ind] = dist;
-		}
+		c.x = x;
+		c.y = y;
 
 		//
-		// Ricalcola i neighbours.
+		// Ricalcola i neighbours (solo quelli che contenevano il nodo
+		// spostato, agli altri basta aggiungerlo se e' abbastanza vicino).
 		//
-		for (count1 = 0; count1 < totCities; count1++) {
-			c = citiesVector[count1];
-			if ((c.farthestDist >= oldDist[count1])
-					|| (c.farthestDist >= adjMatrix[count1][ind])) {
-				c.clearNeighbours();
-				for (count2 = 0; count2 < totCities; count2++)
-					if (count1 != count2)
-						c.addNeighbour(citiesVector[count2],
-								adjMatrix[count1][count2]);
-			}
+		if (affected == null)
+			computeNeighbours(null);
+		else {
+			for (City other : affected)
+				nearestNeighbours(other);
+			insertNeighbour(c);
 		}
 
 		//
@@ -346,47 +412,31 @@ public class Heuristic extends Thread {
 		// posizione).
 		//
 		c = citiesVector[ind];
-		if (totTourNodes > 1)
-			tourSize += adjMatrix[c.num][nextTourNode(c).num] + adjMatrix[c.num][prevTourNode(c).num];
+		if (tourArray.size() > 1)
+			tourSize += dist(c.num, nextTourNode(c).num) + dist(c.num, prevTourNode(c).num);
 	}
 
 	/**
 	 * Cancella un nodo del vettore delle coordinate dei nodi.
 	 */
-	private static void delCity(int ind) {
+	static void delCity(int ind) {
 		int count1, count2;
-		double[] oldDist = new double[totCities - 1];
+		checkEuc2D();
+		clearPenalties();
 		City c = citiesVector[ind];
-		final int IDX = c.tourIndex;
 		final int TOT = totCities - ind - 1;
+		final boolean INCREMENTAL = isIncremental(totCities - 1);
 		lowerBound = 0;
+		if (INCREMENTAL)
+			spatialIndex.remove(c);
 
 		//
 		// Aggiorna la dimensione del circuito.
 		//
-		if (totTourNodes > 1) {
+		if (tourArray.size() > 1) {
 			count1 = nextTourNode(c).num;
 			count2 = prevTourNode(c).num;
-			tourSize += adjMatrix[count1][count2] - adjMatrix[c.num][count1] - adjMatrix[c.num][count2];
-		}
-
-		//
-		// Memorizza le distanze tra il nodo da cancellare e gli altri.
-		//
-		System.arraycopy(adjMatrix[ind], 0, oldDist, 0, ind);
-		System.arraycopy(adjMatrix[ind], ind + 1, oldDist, ind, TOT);
-
-		//
-		// Aggiorna la matrice di adiacenza.
-		//
-		for (count1 = 0; count1 < ind; count1++)
-			System.arraycopy(adjMatrix[count1], ind + 1, adjMatrix[count1],
-					ind, TOT);
-		for (count1 = ind + 1; count1 < totCities; count1++) {
-			System.arraycopy(adjMatrix[count1], 0, adjMatrix[count1 - 1], 0,
-					ind);
-			System.arraycopy(adjMatrix[count1], ind + 1, adjMatrix[count1 - 1],
-					ind, TOT);
+			tourSize += dist(count1, count2) - dist(c.num, count1) - dist(c.num, count2);
 		}
 
 		//
@@ -398,28 +448,23 @@ public class Heuristic extends Thread {
 			citiesVector[count1].num--;
 
 		//
-		// Aggiorna il TourVector.
+		// Aggiorna il circuito.
 		//
-		if (totTourNodes > 0) {
-			System.arraycopy(tourVector, IDX + 1, tourVector, IDX, totTourNodes
-					- IDX - 1);
-			totTourNodes--;
-			for (count1 = IDX; count1 < totTourNodes; count1++)
-				tourVector[count1].tourIndex--;
-		}
+		tourArray.remove(ind);
+		tourArray.renumber(ind, -1);
 
 		//
-		// Ricalcola i neighbours.
+		// Ricalcola i neighbours che contenevano il nodo cancellato e
+		// aggiorna gli indici negli altri.
 		//
-		for (count1 = 0; count1 < totCities; count1++) {
+		if (!INCREMENTAL)
+			computeNeighbours(null);
+		else for (count1 = 0; count1 < totCities; count1++) {
 			c = citiesVector[count1];
-			if (c.farthestDist >= oldDist[count1]) {
-				c.clearNeighbours();
-				for (count2 = 0; count2 < totCities; count2++)
-					if (count1 != count2)
-						c.addNeighbour(citiesVector[count2],
-								adjMatrix[count1][count2]);
-			}
+			if (c.hasNeighbour(ind))
+				nearestNeighbours(c);
+			else
+				c.shiftNeighbours(ind + 1, -1);
 		}
 
 		//
@@ -434,25 +479,18 @@ public class Heuristic extends Thread {
 
 	/**
 	 * Ripristina la memorizzazione di un nodo (serve per l'undo del
-	 * "Delete city").
+	 * "Delete city"), reinserendolo nella posizione "tourPos" del circuito
+	 * (-1 se non ne faceva parte).
 	 */
-	private static void resumeCity(City node) {
+	private static void resumeCity(City node, int tourPos) {
 		int count1, count2;
 		int ind = node.num;
-		final int IDX = node.tourIndex;
 		final int TOT = totCities - ind;
+		checkEuc2D();
+		ensureCapacity(totCities + 1);
 		lowerBound = 0;
+		clearPenalties();
 
-		//
-		// Aggiorna la matrice di adiacenza.
-		//
-		for (count1 = 0; count1 < ind; count1++)
-			System.arraycopy(adjMatrix[count1], ind, adjMatrix[count1],
-					ind + 1, TOT);
-		for (count1 = totCities; count1 > ind; count1--) {
-			System.arraycopy(adjMatrix[count1 - 1], 0, adjMatrix[count1], 0, ind);
-			System.arraycopy(adjMatrix[count1 - 1], ind, adjMatrix[count1],	ind + 1, TOT);
-		}
 		//
 		// Aggiorna il CitiesVector.
 		//
@@ -463,48 +501,32 @@ public class Heuristic extends Thread {
 		citiesVector[ind] = node;
 
 		//
-		// Aggiorna le distanze e i neighbours.
+		// Aggiorna i neighbours (gli indici successivi a quello del nodo
+		// ripristinato vanno incrementati).
 		//
-		double dist;
-		double x = node.x;
-		double y = node.y;
-		double dx, dy;
-		City c;
-		for (count1 = 0; count1 < totCities; count1++) {
-			c = citiesVector[count1];
-			dx = x - c.x;
-			dy = y - c.y;
-
-			//
-			// Rispetto le specifiche per il calcolo della
-			// distanza della TSPLIB '95.
-			//
-			dist = Math.sqrt(dx * dx + dy * dy);
-			if (count1 != ind)
-				c.addNeighbour(node, dist);
-			adjMatrix[ind][count1] = dist;
-			adjMatrix[count1][ind] = dist;
+		if (!isIncremental(totCities))
+			computeNeighbours(null);
+		else {
+			for (count1 = 0; count1 < totCities; count1++)
+				if (count1 != ind)
+					citiesVector[count1].shiftNeighbours(ind, 1);
+			insertNeighbour(node);
 		}
 
 		//
-		// Aggiorna il TourVector.
+		// Aggiorna il circuito.
 		//
-		if (totTourNodes > 0) {
-			System.arraycopy(tourVector, IDX, tourVector, IDX + 1, totTourNodes
-					- IDX);
-			totTourNodes++;
-			tourVector[IDX] = node;
-			for (count1 = IDX + 1; count1 < totTourNodes; count1++)
-				tourVector[count1].tourIndex++;
-		}
+		tourArray.renumber(ind, 1);
+		if (tourPos >= 0)
+			tourArray.insert(tourPos, ind);
 
 		//
 		// Aggiorna la dimensione del circuito.
 		//
-		if (totTourNodes > 0) {
+		if (tourPos >= 0) {
 			count1 = nextTourNode(node).num;
 			count2 = prevTourNode(node).num;
-			tourSize += adjMatrix[node.num][count1]	+ adjMatrix[node.num][count2] - adjMatrix[count1][count2];
+			tourSize += dist(node.num, count1) + dist(node.num, count2) - dist(count1, count2);
 		}
 	}
 
@@ -513,50 +535,40 @@ public class Heuristic extends Thread {
 	 */
 	private static void setRandomCitiesVector(int dimX, int dimY, int newTot, TspFrame tspFrame) {
 		clearCities();
+		ensureCapacity(newTot);
 		minX = 0;
 		minY = 0;
 		maxX = dimX;
 		maxY = dimY;
 		Random randomCity = new Random();
 		for (int count1 = 0; count1 < newTot; count1++)
-		{
-			tspFrame.statusArea.setProgress(Math.round(((float) count1 / newTot) * 100));
-			euc2D(Math.abs(randomCity.nextInt() % dimX), Math.abs(randomCity.nextInt() % dimY), count1);
-		}
+			citiesVector[count1] = new City(Math.abs(randomCity.nextInt() % dimX), Math.abs(randomCity.nextInt() % dimY), count1);
 		totCities = newTot;
+		computeNeighbours(tspFrame);
 	}
 
 	/**
 	 * Inizializza il vettore delle coordinate dei nodi (città) con i valori dei due
 	 * vettori delle coordinate X e Y passati per parametro (se siamo nel caso
-	 * EXPLICIT aggiorna la matrice delle distanze con quella passata per
-	 * parametro).
+	 * EXPLICIT le distanze sono quelle passate per parametro).
 	 */
-	public final static void setCitiesVector(double[] xv, double[] yv, int newTot, double[][] tmpMatrix, int type, TspFrame tspFrame) {
-		int count1, count2;
+	public final static void setCitiesVector(double[] xv, double[] yv, int newTot, DistanceStore weights, int type, TspFrame tspFrame) {
+		int count1;
 		double x, y;
-		double dist;
-		City c, newCity;
 		clearCities();
+		ensureCapacity(newTot);
 		count1 = -1;
 		switch (type) {
 		case EXPLICIT:
-			for (count2 = 0; count2 < newTot; count2++)
-				System.arraycopy(tmpMatrix[count2], 0, adjMatrix[count2], 0, newTot);
+			distances = weights;
 			while (++count1 < newTot) {
-				tspFrame.statusArea.setProgress(Math.round(((float) count1 / newTot) * 100));
 				x = xv[count1];
 				y = yv[count1];
 				checkBounds(x, y);
-				newCity = new City(x, y, count1);
-				citiesVector[count1] = newCity;
-				for (count2 = 0; count2 < count1; count2++) {
-					c = citiesVector[count2];
-					dist = adjMatrix[count1][count2];
-					c.addNeighbour(newCity, dist);
-					newCity.addNeighbour(c, dist);
-				}
+				citiesVector[count1] = new City(x, y, count1);
 			}
+			totCities = newTot;
+			computeNeighbours(tspFrame);
 			break;
 		case GEO:
 			//
@@ -565,43 +577,224 @@ public class Heuristic extends Thread {
 			break;
 		case EUC_2D:
 			while (++count1 < newTot) {
-				tspFrame.statusArea.setProgress(Math.round(((float) count1 / newTot) * 100));
 				x = xv[count1];
 				y = yv[count1];
 				checkBounds(x, y);
-				euc2D(x, y, count1);
+				citiesVector[count1] = new City(x, y, count1);
 			}
+			totCities = newTot;
+			computeNeighbours(tspFrame);
 		}
 		totCities = newTot;
 	}
 
 	/**
-	 * Esegue l'inserimento di una citta' con le coordinate euclidee x e y.
-	 * Quindi calcola tutti gli archi tra il nuovo nodo e i nodi preesistenti e
-	 * li inserisce nella matrice di adiacenza. Inoltre memorizza per ogni nodo
-	 * i K nodi piu' vicini.
-	 */
-	private static void euc2D(double x, double y, int count1) {
-		double dx, dy;
+	 * Calcola le neighbours list di tutte le città secondo il tipo di
+	 * candidati scelto. Per le istanze EUC_2D i K nodi piu' vicini sono
+	 * calcolati tramite un albero k-d (ogni ricerca visita solo le regioni del
+	 * piano vicine alla città, per un costo complessivo di O(n log n) invece
+	 * di O(n^2)), e lo stesso albero fornisce i piu' vicini per quadrante; le
+	 * istanze EXPLICIT usano i K nodi piu' vicini secondo le distanze
+	 * esplicite. L'alpha-nearness (per qualunque tipo di istanza) richiede
+	 * invece tempo O(n^2): dopo una modifica delle città si usano i K nodi
+	 * piu' vicini fino al prossimo lower bound (vedi clearPenalties()).
+	 *
+	 * Le liste delle singole città sono calcolate in parallelo su tutti i
+	 * processori disponibili (ParallelNeighbours).
+	 */
+	private static void computeNeighbours(TspFrame tspFrame) {
+		int count1, count2;
 		City c;
-		double dist;
-		City newCity = new City(x, y, count1);
-		citiesVector[count1] = newCity;
-		for (int count2 = 0; count2 < count1; count2++) {
-			c = citiesVector[count2];
-			dx = x - c.x;
-			dy = y - c.y;
+		spatialIndex = null;
+		if ((candidateType == CAND_ALPHA) && !alphaStale) {
+			final AlphaNearness alpha = new AlphaNearness(citiesVector, totCities, penalties);
+			ParallelNeighbours.forEach(citiesVector, totCities, new ParallelNeighbours.Action() {
+				public void compute(City c) {
+					alpha.nearest(c, City.ALPHA_NEIGHBOURS);
+				}
+			}, tspFrame);
+			return;
+		}
+		if (distances != EUC_DISTANCES) {
+			final int TOT = totCities;
+			ParallelNeighbours.forEach(citiesVector, totCities, new ParallelNeighbours.Action() {
+				public void compute(City c) {
+					c.clearNeighbours();
+					for (int count = 0; count < TOT; count++)
+						if (count != c.num)
+							c.addNeighbour(count, dist(c.num, count));
+				}
+			}, tspFrame);
+			return;
+		}
+		final KdTree kdTree = new KdTree(citiesVector, totCities);
+		if (candidateType == CAND_QUADRANT) {
+			ParallelNeighbours.forEach(citiesVector, totCities, new ParallelNeighbours.Action() {
+				public void compute(City c) {
+					kdTree.quadrantNearest(c, City.QUADRANT_NEIGHBOURS);
+				}
+			}, tspFrame);
+			return;
+		}
+		if (candidateType == CAND_DELAUNAY) {
+			for (count1 = 0; count1 < totCities; count1++)
+				citiesVector[count1].clearNeighbours();
+		} else {
+			ParallelNeighbours.forEach(citiesVector, totCities, new ParallelNeighbours.Action() {
+				public void compute(City c) {
+					kdTree.nearest(c);
+				}
+			}, tspFrame);
+		}
+		if ((candidateType == CAND_NEAREST) || (candidateType == CAND_ALPHA)) {
+			kdTree.updateReach();
+			spatialIndex = kdTree;
+		} else {
+			Delaunay delaunay = new Delaunay(citiesVector, totCities);
+			final int TOT = delaunay.getTotHalfedges();
+			for (int e = 0; e < TOT; e++)
+				if (delaunay.isEdge(e)) {
+					count1 = delaunay.getFrom(e);
+					count2 = delaunay.getTo(e);
+					citiesVector[count1].addCandidate(count2, dist(count1, count2));
+					citiesVector[count2].addCandidate(count1, dist(count1, count2));
+				}
 
 			//
-			// Rispetto le specifiche per il calcolo della distanza
-			// della TSPLIB '95.
+			// Le città escluse dalla triangolazione (coincidenti con altre o
+			// tutte allineate) usano i K nodi piu' vicini.
 			//
-			dist = Math.sqrt(dx * dx + dy * dy);
+			for (count1 = 0; count1 < totCities; count1++) {
+				c = citiesVector[count1];
+				if (c.neighboursSize < 2)
+					kdTree.nearest(c);
+			}
+		}
+	}
+
+	/**
+	 * Imposta il tipo di candidati memorizzati nelle neighbours list e le
+	 * ricalcola.
+	 */
+	static void setCandidateType(int type, TspFrame tspFrame) {
+		candidateType = type;
+		alphaStale = false;
+		computeNeighbours(tspFrame);
+	}
+
+	/**
+	 * Memorizza le penalità dei nodi calcolate dal lower bound di Held-Karp;
+	 * se i candidati sono scelti in base all'alpha-nearness le neighbours
+	 * list vengono ricalcolate.
+	 */
+	protected final static void setPenalties(double[] pi, TspFrame tspFrame) {
+		penalties = pi;
+		alphaStale = false;
+		if (candidateType == CAND_ALPHA)
+			computeNeighbours(tspFrame);
+	}
+
+	/**
+	 * Scarta le penalità di Held-Karp, che non valgono piu' dopo una
+	 * modifica delle città. Con i candidati dell'alpha-nearness, che
+	 * costerebbero O(n^2) ad ogni modifica, le neighbours list diventano
+	 * quelle dei K nodi piu' vicini, aggiornate poi in modo incrementale
+	 * come per CAND_NEAREST finche' il lower bound di Held-Karp non le
+	 * ricalcola (vedi setPenalties()).
+	 */
+	private static void clearPenalties() {
+		penalties = null;
+		if ((candidateType == CAND_ALPHA) && !alphaStale) {
+			alphaStale = true;
+			computeNeighbours(null);
+		}
+	}
+
+	/**
+	 * Verifica se le neighbours list possono essere aggiornate tramite
+	 * l'indice spaziale invece di essere ricalcolate: serve che i candidati
+	 * siano i K nodi piu' vicini e che tutte le liste siano piene anche dopo
+	 * la modifica (l'istanza avra' "tot" città).
+	 */
+	private static boolean isIncremental(int tot) {
+		return (spatialIndex != null) && (tot > City.NEIGHBOURS_LIST_SIZE + 1);
+	}
+
+	/**
+	 * Ricalcola la neighbours list della città "c" tramite l'indice spaziale.
+	 */
+	private static void nearestNeighbours(City c) {
+		spatialIndex.nearest(c);
+		spatialIndex.raiseReach(c);
+	}
+
+	/**
+	 * Aggiunge la città "c" all'indice spaziale e alle neighbours list delle
+	 * città abbastanza vicine, quindi ne calcola la neighbours list.
+	 */
+	private static void insertNeighbour(City c) {
+		ArrayList<City> near = new ArrayList<City>();
+		spatialIndex.reverseNearest(c.x, c.y, near);
+		spatialIndex.insert(c);
+		for (City other : near)
+			if (!other.hasNeighbour(c.num))
+				other.addNeighbour(c.num, dist(c.num, other.num));
+		nearestNeighbours(c);
+	}
 
-			c.addNeighbour(newCity, dist);
-			newCity.addNeighbour(c, dist);
-			adjMatrix[count1][count2] = dist;
-			adjMatrix[count2][count1] = dist;
+	/**
+	 * Toglie la città "c" dall'indice spaziale e restituisce le città che la
+	 * contengono nella propria neighbours list (da ricalcolare).
+	 */
+	private static ArrayList<City> removeNeighbour(City c) {
+		ArrayList<City> near = new ArrayList<City>();
+		spatialIndex.remove(c);
+		spatialIndex.reverseNearest(c.x, c.y, near);
+		for (int count = near.size() - 1; count >= 0; count--)
+			if (!near.get(count).hasNeighbour(c.num))
+				near.remove(count);
+		return near;
+	}
+
+	/**
+	 * Se l'istanza corrente ha distanze esplicite la trasforma in un'istanza
+	 * EUC_2D (la modifica dei nodi ha senso solo per le coordinate, ed e' il
+	 * formato con cui l'istanza viene poi salvata). Ricalcola quindi i
+	 * neighbours e la dimensione del circuito con le nuove distanze.
+	 */
+	private static void checkEuc2D() {
+		if (distances != EUC_DISTANCES) {
+			distances = EUC_DISTANCES;
+			penalties = null;
+			alphaStale = (candidateType == CAND_ALPHA);
+			computeNeighbours(null);
+			if (tourArray.size() > 0) {
+				tourSize = 0;
+				for (int count = 0; count < tourArray.size(); count++) {
+					int c = tourArray.city(count);
+					tourSize += dist(c, tourArray.next(c));
+				}
+			}
+			optTourSize = 0;
+		}
+	}
+
+	/**
+	 * Restituisce la distanza tra i nodi di indice i e j.
+	 */
+	protected final static double dist(int i, int j) {
+		return distances.dist(i, j);
+	}
+
+	/**
+	 * Assicura che il vettore dei nodi (e quello del circuito) possa contenere
+	 * almeno "size" elementi, raddoppiandone se necessario la capacità.
+	 */
+	private static void ensureCapacity(int size) {
+		if (citiesVector.length < size) {
+			int capacity = Math.max(size, citiesVector.length << 1);
+			citiesVector = Arrays.copyOf(citiesVector, capacity);
+			tourArray.ensureCapacity(capacity);
 		}
 	}
 
@@ -627,11 +820,19 @@ public class Heuristic extends Thread {
 	}
 
 	/**
-	 * Restituisce un nodo contenuto ad un certo indice nel vettore di citta'
-	 * che rappresenta la soluzione al TSP (circuito corrente).
+	 * Restituisce il circuito che rappresenta la soluzione al TSP (circuito
+	 * corrente).
 	 */
-	public final static City getTourVector(int count) {
-		return tourVector[count];
+	public final static ArrayTour getTour() {
+		return tourArray;
+	}
+
+	/**
+	 * Restituisce la posizione nel circuito corrente della città di indice
+	 * "ind" (-1 se non ne fa parte).
+	 */
+	public final static int getTourPosition(int ind) {
+		return tourArray.position(ind);
 	}
 
 	/**
@@ -657,8 +858,12 @@ public class Heuristic extends Thread {
 		optTourSize = 0;
 		startCity = 0;
 		lowerBound = 0;
-		citiesVector = new City[CITIES_VECTOR_CAPACITY];
-		optVector = new City[CITIES_VECTOR_CAPACITY];
+		penalties = null;
+		alphaStale = false;
+		spatialIndex = null;
+		distances = EUC_DISTANCES;
+		citiesVector = new City[0];
+		optVector = new City[0];
 		minX = Double.POSITIVE_INFINITY;
 		minY = Double.POSITIVE_INFINITY;
 		maxX = Double.NEGATIVE_INFINITY;
@@ -671,14 +876,13 @@ public class Heuristic extends Thread {
 	 * TSP.
 	 */
 	protected final static void addTourNode(City c) {
-		if (totTourNodes < totCities) {
-			if (totTourNodes > 0)
-				tourSize += adjMatrix[lastNum][c.num];
-			c.tourIndex = totTourNodes;
-			tourVector[totTourNodes++] = c;
-			lastNum = c.num;
-			if (totTourNodes == totCities)
-				tourSize += adjMatrix[lastNum][tourVector[0].num];
+		final int TOT = tourArray.size();
+		if (TOT < totCities) {
+			if (TOT > 0)
+				tourSize += dist(tourArray.city(TOT - 1), c.num);
+			tourArray.add(c.num);
+			if (TOT + 1 == totCities)
+				tourSize += dist(c.num, tourArray.city(0));
 		}
 	}
 
@@ -690,14 +894,15 @@ public class Heuristic extends Thread {
 		int last = index.length - 1;
 		int lastInd = index[last];
 		int ind;
+		optVector = new City[index.length];
 		optVector[last] = citiesVector[lastInd];
 		for (int count = 0; count < last; count++) {
 			ind = index[count];
 			optVector[count] = citiesVector[ind];
-			optTourSize += adjMatrix[ind][lastInd];
+			optTourSize += dist(ind, lastInd);
 			lastInd = ind;
 		}
-		optTourSize += adjMatrix[index[last]][lastInd];
+		optTourSize += dist(index[last], lastInd);
 	}
 	
 	/**
@@ -735,7 +940,7 @@ public class Heuristic extends Thread {
 	 * Restituisce il numero di nodi appartenenti attualmente al circuito.
 	 */
 	public final static int getTotTourNodes() {
-		return totTourNodes;
+		return tourArray.size();
 	}
 
 	/**
@@ -743,7 +948,7 @@ public class Heuristic extends Thread {
 	 * circuito corrente.
 	 */
 	public final static City nextTourNode(City c) {
-		return tourVector[(c.tourIndex + 1) % totTourNodes];
+		return citiesVector[tour.next(c.num)];
 	}
 
 	/**
@@ -751,8 +956,62 @@ public class Heuristic extends Thread {
 	 * circuito corrente.
 	 */
 	public final static City prevTourNode(City c) {
-		return tourVector[(c.tourIndex > 0) ? c.tourIndex - 1
-				: totTourNodes - 1];
+		return citiesVector[tour.prev(c.num)];
+	}
+
+	/**
+	 * Sostituisce il circuito corrente con la rappresentazione "t" (che deve
+	 * contenere le città nello stesso ordine), usata da nextTourNode() e
+	 * prevTourNode() finche' non viene chiamato releaseTour().
+	 */
+	protected final static void useTour(Tour t) {
+		tour = t;
+	}
+
+	/**
+	 * Crea la rappresentazione del circuito corrente adatta alla dimensione
+	 * dell'istanza (lista a due livelli o splay tree).
+	 */
+	protected final static Tour createTour() {
+		return createTour(tourOrder());
+	}
+
+	/**
+	 * Crea la rappresentazione del circuito che visita le città nell'ordine
+	 * del vettore "order" (lista a due livelli o splay tree).
+	 */
+	protected final static Tour createTour(int[] order) {
+		if (order.length > SPLAY_TOUR_SIZE)
+			return new SplayTour(order);
+		return new TwoLevelTour(order);
+	}
+
+	/**
+	 * Crea il vettore con l'ordine delle città del circuito corrente.
+	 */
+	protected final static int[] tourOrder() {
+		return tourArray.toArray(new int[tourArray.size()]);
+	}
+
+	/**
+	 * Ricopia nel circuito corrente (a partire dalla città che occupa la
+	 * prima posizione) l'ordine della rappresentazione in uso.
+	 */
+	protected final static void syncTour() {
+		if (tour == tourArray)
+			return;
+		int[] order = new int[tourArray.size()];
+		tour.toArray(tourArray.city(0), order);
+		tourArray.set(order, order.length);
+	}
+
+	/**
+	 * Ricopia nel circuito corrente l'ordine della rappresentazione in uso e
+	 * smette di usarla.
+	 */
+	protected final static void releaseTour() {
+		syncTour();
+		tour = tourArray;
 	}
 
 	/**
@@ -760,22 +1019,56 @@ public class Heuristic extends Thread {
 	 */
 	public final static void clearTour() {
 		tourSize = 0;
-		totTourNodes = 0;
-		tourVector = new City[CITIES_VECTOR_CAPACITY];
+		tourArray.clear();
 	}
 
 	/**
 	 * Imposta il circuito corrente.
 	 */
-	public final static void setTour(double size, City[] vect) {
+	public final static void setTour(double size, int[] cities) {
 		tourSize = size;
-		totTourNodes = vect.length;
-		City c;
-		for (int count = 0; count < totTourNodes; count++) {
-			c = vect[count];
-			c.tourIndex = count;
-			tourVector[count] = c;
+		tourArray.set(cities, cities.length);
+	}
+
+	/**
+	 * Operazione eseguita in parallelo (vedi forEach()).
+	 */
+	interface Task {
+		void compute(int index);
+	}
+
+	/**
+	 * Task fork/join che esegue un'operazione sugli indici dell'intervallo
+	 * [lo, hi), dividendolo a meta' fino ad un indice per task.
+	 */
+	private static class ParallelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int lo, hi;
+		private final Task task;
+
+		ParallelTask(int lo, int hi, Task task) {
+			this.lo = lo;
+			this.hi = hi;
+			this.task = task;
 		}
+
+		protected void compute() {
+			if (hi - lo == 1)
+				task.compute(lo);
+			else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new ParallelTask(lo, mid, task), new ParallelTask(mid, hi, task));
+			}
+		}
+	}
+
+	/**
+	 * Esegue "task" per gli indici da 0 a tot - 1 nel pool fork/join comune
+	 * e attende la fine dell'elaborazione.
+	 */
+	protected final static void forEach(int tot, Task task) {
+		if (tot > 0)
+			ForkJoinPool.commonPool().invoke(new ParallelTask(0, tot, task));
 	}
 
 	/**
@@ -792,6 +1085,24 @@ public class Heuristic extends Thread {
 		isStopped = stop;
 	}
 
+	/**
+	 * Fissa l'istante "time" (in millisecondi) entro il quale il thread deve
+	 * terminare.
+	 */
+	protected final void setDeadline(long time) {
+		deadline = time;
+	}
+
+	/**
+	 * Restituisce true se il thread ha subito uno "stop" o se e' passato
+	 * l'istante fissato con setDeadline(), false altrimenti. Non e'
+	 * sincronizzato: viene chiamato ad ogni passo delle ricerche locali,
+	 * anche da piu' thread del pool fork/join contemporaneamente.
+	 */
+	protected final boolean isExpired() {
+		return isStopped || (System.currentTimeMillis() >= deadline);
+	}
+
 	/**
 	 * Restituisce true se il thread ha subito un "pause" false altrimenti.
 	 */
@@ -832,6 +1143,49 @@ public class Heuristic extends Thread {
 		checkPause();
 	}
 
+	/**
+	 * Aggiorna la barra di avanzamento di una metaeuristica iniziata
+	 * all'istante "start", che dura al massimo "timeLimit" millisecondi, al
+	 * piu' una volta ogni SHOW_INTERVAL millisecondi. Restituisce true se
+	 * l'aggiornamento e' stato eseguito: e' il momento di visualizzare il
+	 * circuito migliore, se e' cambiato (vedi showTour()).
+	 */
+	protected final boolean showProgress(long start, long timeLimit) {
+		long now = System.currentTimeMillis();
+		if (now - lastShow < SHOW_INTERVAL)
+			return false;
+		lastShow = now;
+		tspFrame.statusArea.setProgress((int) Math.min(100, ((now - start) * 100) / Math.max(1, timeLimit)));
+		return true;
+	}
+
+	/**
+	 * Visualizza il circuito corrente e la sua lunghezza.
+	 */
+	protected final void showTour() {
+		tspFrame.tspArea.setTourLength();
+		tspFrame.workArea.repaint(false, true);
+	}
+
+	/**
+	 * Operazioni eseguite al termine del thread di una metaeuristica:
+	 * visualizza il circuito corrente e riabilita le modifiche.
+	 */
+	protected final void endRun() {
+		tspFrame.chgTour(true);
+		tspFrame.tspArea.setTourLength();
+		tspFrame.statusArea.setStatus("");
+		tspFrame.workArea.repaint(false, true);
+		tspFrame.enableEditing(true);
+		tspFrame.tspArea.enableAnimationCheckbox(true);
+
+		//
+		// Cosi' il garbage collector puo' disporre della memoria
+		// occupata da questo thread.
+		//
+		tspFrame.tspArea.computeThread = null;
+	}
+
 	/**
 	 * Metodo necessario all'esecuzione di questo thread.
 	 */
@@ -855,7 +1209,7 @@ public class Heuristic extends Thread {
 				if (cityparam == null)
 					addCity(xparam, yparam);
 				else
-					resumeCity(cityparam);
+					resumeCity(cityparam, param);
 				break;
 			case MOVCITY:
 				movCity(xparam, yparam, param);
@@ -865,11 +1219,14 @@ public class Heuristic extends Thread {
 				if (totCities == 0)
 					tspFrame.workArea.resetMinMaxXY();
 				break;
+			case CANDIDATES:
+				setCandidateType(param, tspFrame);
+				break;
 		}
 		if (execID != MOVCITY)
 			tspFrame.tspArea.setTotCities();
 			
-		if ((execID != RANDOM) && !isUndoing) {
+		if ((execID != RANDOM) && (execID != CANDIDATES) && !isUndoing) {
 			optTourSize = 0;
 			tspFrame.chgInstance(true);
 			tspFrame.chgTour(true);
@@ -15,6 +15,7 @@ package net.guarnie.tspdemo;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -22,13 +23,12 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.StreamTokenizer;
 import java.net.URL;
+import java.net.URLConnection;
 import java.lang.IllegalArgumentException;
 import java.util.StringTokenizer;
 import java.util.zip.ZipInputStream;
 import javax.swing.JOptionPane;
 
-import static net.guarnie.tspdemo.Heuristic.CITIES_VECTOR_CAPACITY;
-
 /**
  * Classe specializzata per l'I/O locale e remoto delle istanze.
  */
@@ -50,14 +50,14 @@ public class IOThread extends Thread {
 	private double[] xArray;
 	private double[] yArray;
 	private int[] indexTour;
-	private double[][] weightsMatrix;
+	private PackedDistance weights;
 
 	/**
 	 * Costruttore della classe.
 	 */
 	IOThread(TspFrame tFrame, int ioType, String pathName, String fileName,	Object param) {
 		tspFrame = tFrame;
-		weightsMatrix = null;
+		weights = null;
 		this.ioType = ioType;
 		this.param = param;
 		this.fileName = fileName;
@@ -248,7 +248,7 @@ public class IOThread extends Thread {
 		int tot = Heuristic.getTotCities();
 		
 		for (int count = 0; count < tot;) {
-			str = String.valueOf(Heuristic.getTourVector(count++).num + 1);
+			str = String.valueOf(Heuristic.getTour().city(count++) + 1);
 			outputWriter.write(str, 0, str.length());
 			outputWriter.newLine();
 		}
@@ -262,6 +262,34 @@ public class IOThread extends Thread {
 		tspFrame.chgTour(false);
 	}
 
+	/**
+	 * Salta i prossimi "tot" valori di "reader" senza interpretarli (sono
+	 * sequenze di caratteri separate da spazi): i caratteri vengono letti a
+	 * blocchi e alla fine il lettore viene riportato subito dopo l'ultimo
+	 * valore. Restituisce false se il file finisce prima.
+	 */
+	private static boolean skipValues(BufferedReader reader, long tot) throws IOException {
+		final int CHUNK = 1 << 16;
+		char[] buf = new char[CHUNK];
+		boolean inValue = false;
+		while (tot > 0) {
+			reader.mark(CHUNK);
+			int len = reader.read(buf, 0, CHUNK);
+			if (len < 0)
+				return inValue && (tot == 1);
+			for (int pos = 0; pos < len; pos++) {
+				boolean blank = buf[pos] <= ' ';
+				if (inValue && blank && (--tot == 0)) {
+					reader.reset();
+					reader.skip(pos);
+					return true;
+				}
+				inValue = !blank;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Legge un'istanza o un circuito (Si basa sulle specifiche della TSPLIP95)
 	 * 
@@ -278,18 +306,30 @@ public class IOThread extends Thread {
 		String comment = "";
 		String tokenStr, tmpStr;
 		String edgeWeightFormat = null;
+		String instanceName = fileName;
+		boolean cachedWeights = false;
+		long sourceSize, sourceModified;
 		int instanceDim = -1;
 		int index1, index2;
 		boolean result = true;
 		BufferedReader inputReader = null;
 
 		try {
+			//
+			// Dimensione e data di modifica del file dell'istanza fanno parte
+			// della chiave del file delle distanze (vedi EDGE_WEIGHT_SECTION).
+			//
 			if (ioType == LOAD_LOCAL) {
-				inputReader = new BufferedReader(new InputStreamReader(new FileInputStream(pathFileName)));
+				File instanceFile = new File(pathFileName);
+				sourceSize = instanceFile.length();
+				sourceModified = instanceFile.lastModified();
+				inputReader = new BufferedReader(new InputStreamReader(new FileInputStream(instanceFile)));
 				
 			} else {
-				URL instanceURL = getClass().getResource(pathFileName);
-				inputReader = new BufferedReader(new InputStreamReader(instanceURL.openStream()));
+				URLConnection instanceConn = getClass().getResource(pathFileName).openConnection();
+				sourceSize = instanceConn.getContentLengthLong();
+				sourceModified = instanceConn.getLastModified();
+				inputReader = new BufferedReader(new InputStreamReader(instanceConn.getInputStream()));
 			}
 			StreamTokenizer inToken = new StreamTokenizer(inputReader);
 			inToken.wordChars('!', '*');
@@ -312,7 +352,8 @@ public class IOThread extends Thread {
 							// - THE SPECIFICATION PART -
 							//
 							case "NAME":
-								inputReader.readLine();
+								instanceName = inputReader.readLine().trim();
+								instanceName = instanceName.startsWith(":")? instanceName.substring(1).trim() : instanceName;
 								break;
 							case "TYPE":
 								inToken.nextToken();
@@ -334,8 +375,6 @@ public class IOThread extends Thread {
 							case "DIMENSION":
 								inToken.nextToken();
 								instanceDim = (int) inToken.nval;
-								if (instanceDim > CITIES_VECTOR_CAPACITY)
-									throw new IllegalArgumentException(((tourFlag) ? "Tour" : "Instance") + " too large.");
 								break;
 							case "EDGE_WEIGHT_TYPE":
 								inToken.nextToken();
@@ -431,8 +470,25 @@ public class IOThread extends Thread {
 									throw new IllegalArgumentException(badFormatErrorStr);
 								else
 									needEdgeSection = false;
-								try {
-									weightsMatrix = new double[instanceDim][instanceDim];
+								if (instanceDim == -1)
+									throw new IllegalArgumentException("Instance dimension not found.");
+								//
+								// Le istanze che non entrano nello heap vengono
+								// memorizzate in un file mappato in memoria, che
+								// viene riutilizzato nei caricamenti successivi.
+								//
+								String key = pathFileName + "|" + instanceName + "|" + instanceDim + "|" + edgeWeightFormat
+										+ "|" + sourceSize + "|" + sourceModified;
+								long fingerprint = MappedDistance.fingerprint(key);
+								File cacheFile = MappedDistance.cacheFile(instanceName, fingerprint);
+								weights = MappedDistance.open(cacheFile, fingerprint, instanceDim);
+								if (weights != null)
+									cachedWeights = true;
+								else if (!PackedDistance.fitsInHeap(instanceDim)) {
+									tspFrame.statusArea.setStatus("Building distance file...");
+									weights = MappedDistance.create(cacheFile, fingerprint, instanceDim);
+								} else try {
+									weights = PackedDistance.create(instanceDim);
 								} catch (OutOfMemoryError om) {
 									tspFrame.ioThread = null;
 									throw new IllegalArgumentException("Out of memory.");
@@ -469,14 +525,43 @@ public class IOThread extends Thread {
 										modEnd = 1;
 										break;
 								}
+								if (cachedWeights) {
+									//
+									// Le distanze sono gia' nel file della cache:
+									// i valori vengono solo saltati.
+									//
+									long tot = 0;
+									for (index1 = startY; index1 < endY; index1++) {
+										tot += endX - startX;
+										startX += modStart;
+										endX += modEnd;
+									}
+									if (!skipValues(inputReader, tot))
+										throw new IllegalArgumentException(badFormatErrorStr);
+									weights.complete();
+									break;
+								}
+								//
+								// I valori vengono memorizzati direttamente nel
+								// triangolo inferiore (a 32 bit finche' sono
+								// rappresentabili esattamente, altrimenti a 64 bit).
+								//
 								index1 = startY;
 								while (index1 < endY) {
 									index2 = startX;
 									while (index2 < endX) {
 										inToken.nextToken();
 										if (inToken.ttype == StreamTokenizer.TT_NUMBER) {
-											weightsMatrix[index1][index2] = (double) inToken.nval;
-											weightsMatrix[index2++][index1] = (double) inToken.nval;
+											if (!weights.set(index1, index2, inToken.nval)) {
+												try {
+													weights = weights.toDouble();
+												} catch (OutOfMemoryError om) {
+													tspFrame.ioThread = null;
+													throw new IllegalArgumentException("Out of memory.");
+												}
+												weights.set(index1, index2, inToken.nval);
+											}
+											index2++;
 										} else
 											throw new IllegalArgumentException(badFormatErrorStr);
 									}
@@ -484,6 +569,7 @@ public class IOThread extends Thread {
 									startX += modStart;
 									endX += modEnd;
 								}
+								weights.complete();
 								break;
 							}
 							case "TOUR_SECTION":
@@ -548,11 +634,15 @@ public class IOThread extends Thread {
 			tspFrame.closeIODialog();
 		} catch (IllegalArgumentException iae) {
 			result = false;
+			if (weights != null)
+				weights.discard();
 			tspFrame.closeIODialog();
 			JOptionPane.showMessageDialog(tspFrame, iae.getMessage(), "Format error", JOptionPane.ERROR_MESSAGE);
 		}
 		catch (IOException ioe) {
 			result = false;
+			if (weights != null)
+				weights.discard();
 			tspFrame.closeIODialog();
 			JOptionPane.showMessageDialog(tspFrame, "Can't load " + fileName + " data.", "I/O Error", JOptionPane.ERROR_MESSAGE);
 		}
@@ -590,7 +680,7 @@ public class IOThread extends Thread {
 					tspFrame.chgInstance(false);
 					tspFrame.setInstName(fileName, (ioType == LOAD_TSPLIB_INST) ? "" : pathName);
 					tspFrame.setInstComm(comment);
-					Heuristic.setCitiesVector(xArray, yArray, instanceDim, weightsMatrix, edgeWeightType, tspFrame);
+					Heuristic.setCitiesVector(xArray, yArray, instanceDim, weights, edgeWeightType, tspFrame);
 					UndoTSP.clear();
 					tspFrame.tspArea.setTotCities();
 					tspFrame.tspArea.setLowerBound();
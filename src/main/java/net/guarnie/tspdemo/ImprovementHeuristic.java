@@ -13,6 +13,9 @@ package net.guarnie.tspdemo;
 *
 */
 
+import java.util.Arrays;
+import java.util.Random;
+
 /**
 *    Classe che contiene i metodi per implementare i seguenti
 *    algoritmi che partendo da un circuito cercano di "migliorarlo"
@@ -20,6 +23,11 @@ package net.guarnie.tspdemo;
 *
 *    - 2-Change (2-Opt)
 *    - 3-change (3-Opt)
+*    - Or-Opt
+*    - Lin-Kernighan
+*    - Variable neighbourhood descent (2-Opt, Or-Opt, 3-Opt)
+*    - Iterated local search
+*    - Guided local search
 */
 public class ImprovementHeuristic extends Heuristic {
 
@@ -29,15 +37,112 @@ public class ImprovementHeuristic extends Heuristic {
 	final static int TWO_CHANGE = 6;
 	final static int THREE_CHANGE = 7;
   final static int HK_LBOUND = 8;
+  final static int OR_OPT = 9;
+  final static int LIN_KERNIGHAN = 10;
+  final static int ITERATED_LS = 11;
+  final static int GUIDED_LS = 16;
+  final static int VND = 18;
 
 	final static int[] LBOUND_COD = { HK_LBOUND };
-  final static int[] LOCAL_COD = { TWO_CHANGE, THREE_CHANGE };
+  final static int[] LOCAL_COD = { TWO_CHANGE, THREE_CHANGE, OR_OPT, LIN_KERNIGHAN, VND };
+  final static int[] META_COD = { ITERATED_LS, AnnealingHeuristic.SIM_ANNEALING,
+    GeneticHeuristic.GENETIC, AntColonyHeuristic.ANT_COLONY, TabuHeuristic.TABU_SEARCH,
+    GUIDED_LS, RuinRecreateHeuristic.RUIN_RECREATE };
+
+  /**
+  *    Numero massimo di scambi di una mossa di Lin-Kernighan e numero di
+  *    vicini provati ai primi livelli (ai successivi se ne prova uno).
+  */
+  private final static int LK_MAX_DEPTH = 50;
+  private final static int[] LK_BREADTH = { 5, 3, 2 };
+
+  /**
+  *    Stato della mossa di Lin-Kernighan in corso: verso di percorrenza,
+  *    citta' t2, t3, t4 di ogni scambio eseguito, numero di scambi,
+  *    variazione della lunghezza del circuito e migliore variazione
+  *    trovata (con il relativo numero di scambi).
+  */
+  private boolean lkSucc;
+  private final int[] lkT2 = new int[LK_MAX_DEPTH];
+  private final int[] lkT3 = new int[LK_MAX_DEPTH];
+  private final int[] lkT4 = new int[LK_MAX_DEPTH];
+  private int lkDepth, lkBestDepth;
+
+  /**
+  *    Vicini da provare (e relativo guadagno) per ogni passo della mossa
+  *    di Lin-Kernighan.
+  */
+  private final int[][] lkAlt = new int[LK_MAX_DEPTH][LK_BREADTH[0]];
+  private final double[][] lkAltGain = new double[LK_MAX_DEPTH][LK_BREADTH[0]];
+  private double lkDelta, lkBestDelta;
+
+  /**
+  *    Numero massimo di citta' di ciascuno dei due segmenti scambiati
+  *    dalla perturbazione "double-bridge".
+  */
+  private final static int KICK_MAX_LEN = 30;
+
+  /**
+  *    Mosse eseguite dall'ultima perturbazione (coppie di citta' per le
+  *    inversioni, vedi undoJournal()), per poter tornare al circuito
+  *    migliore: null se non vengono registrate.
+  */
+  private int[] journal = null;
+  private int journalSize;
+
+  /**
+  *    Peso delle penalita' della ricerca locale guidata, in rapporto alla
+  *    lunghezza media di un arco del primo ottimo locale.
+  */
+  private final static double GLS_ALPHA = 0.3;
+
+  /**
+  *    Penalita' degli archi della ricerca locale guidata (null se le mosse
+  *    usano le distanze reali) e peso di una penalita' nella distanza
+  *    aumentata (vedi cost()).
+  */
+  private LongIntMap penalties = null;
+  private double lambda;
+
+  /**
+  *    Archi del circuito di lavoro con la loro utilita' (vedi penalize()):
+  *    ogni arco del circuito vi compare almeno una volta con l'utilita'
+  *    attuale, insieme ad elementi non piu' validi (archi eliminati o
+  *    utilita' cambiate) che vengono scartati quando arrivano in cima.
+  */
+  private EdgeHeap utilities;
+
+  /**
+  *    Circuito su cui lavorano le mosse e sua lunghezza: durante
+  *    l'esecuzione del thread e' il circuito corrente (tour, tourSize),
+  *    ma puo' essere un circuito privato di un'altra euristica (vedi
+  *    localOptimum()).
+  */
+  private Tour work;
+  private double length;
+
+  /**
+  *    Euristica per conto della quale si esegue la ricerca: la ricerca
+  *    si interrompe quando viene fermata o scade il suo tempo (vedi
+  *    localOptimum()).
+  */
+  private final Heuristic owner;
 
   /**
   *    Costruttore della classe.
   */
   public ImprovementHeuristic(TspFrame tFrame, int eID) {
     super(tFrame, eID, -1, -1, -1, null);
+    owner = this;
+  }
+
+  /**
+  *    Costruttore della ricerca locale usata dall'euristica "owner" sui
+  *    propri circuiti (vedi localOptimum()).
+  */
+  public ImprovementHeuristic(TspFrame tFrame, int eID, Heuristic owner) {
+    super(tFrame, eID, -1, -1, -1, null);
+    this.owner = owner;
   }
 
 
@@ -59,71 +164,82 @@ public class ImprovementHeuristic extends Heuristic {
               :  v    v  v  :
               (t4)<-X-(t3)
 
+  *    Le citta' da esaminare sono in una coda (ActiveQueue): all'inizio
+  *    ci sono tutte, poi vengono rimesse in coda solo le citta' alle
+  *    estremita' degli archi modificati da una mossa.
   */
-  private void twoChange() {
-    double dt1t2;
-    int ind, count;
-    City t1, t2, t3, t4;
-    Neighbour n;
-    final int NSIZE = tourVector[0].neighboursSize;
-    boolean tourChanged, tourNotEnd;
-    boolean last = false;
-    do {
-      count = startCity;
-      tourChanged = false;
-      tourNotEnd = false;
-      do {
-      	if (isStopped()) return;
-        t1 = tourVector[count];
-        t2 = nextTourNode(t1);
-        dt1t2 = adjMatrix[t1.num][t2.num];
-        ind = 0;
-        do {
-          n = t2.neighbours[ind++];
-          if (last) {
-            t3 = n.c;
-            t4 = nextTourNode(t3);
-          }
-          else {
-            t4 = n.c;
-            t3 = prevTourNode(t4);
-          }
-        } while ((ind < NSIZE) && (n.dist < dt1t2) && (t4.equals(t1) || 
-            t3.equals(t2) || 
-            (adjMatrix[t2.num][t4.num] + adjMatrix[t1.num][t3.num] >= 
-            dt1t2 + adjMatrix[t3.num][t4.num])
-          ));
-        if ((n.dist >= dt1t2) || (ind >= NSIZE)) {
-          count = (count + 1) % totCities;
-          tourNotEnd = (count != startCity);
+  void twoChange() {
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      twoChangeSearch(queue);
+    }
+    finally {
+      endSearch();
+    }
+  }
+
+  /**
+  *    Esegue le mosse di twoChange() finche' la coda non e' vuota:
+  *    restituisce false se il thread (o l'euristica per cui lavora) e'
+  *    stato fermato.
+  */
+  private boolean twoChangeSearch(ActiveQueue queue) {
+    while (!queue.isEmpty()) {
+      if (owner.isExpired()) return false;
+      twoChangeMove(citiesVector[queue.pop()], queue);
+    }
+    return true;
+  }
+
+  /**
+  *    Cerca una mossa 2-Opt migliorativa che elimini uno dei due archi
+  *    del circuito incidenti nella citta' t1 (t2 e' il successore o il
+  *    predecessore di t1) e la colleghi ad un suo vicino t3: se la trova
+  *    la esegue e rimette in coda le citta' alle estremita' degli archi
+  *    modificati. Il guadagno e' calcolato con cost(), per cui tiene
+  *    conto delle penalita' della ricerca locale guidata.
+  */
+  private boolean twoChangeMove(City t1, ActiveQueue queue) {
+    double dt1t2, gain;
+    City t2, t3, t4;
+    boolean succ;
+    for (int dir = 0; dir < 2; dir++) {
+      succ = (dir == 0);
+      t2 = succ ? next(t1) : prev(t1);
+      dt1t2 = cost(t1.num, t2.num);
+      for (int ind = 0; (ind < t1.neighboursSize) && (t1.neighbourDist[ind] < dt1t2); ind++) {
+        t3 = citiesVector[t1.neighbourIds[ind]];
+        t4 = succ ? next(t3) : prev(t3);
+        if (t3.equals(t2) || t4.equals(t1))
+          continue;
+        gain = dt1t2 + cost(t3.num, t4.num) - cost(t1.num, t3.num) - cost(t2.num, t4.num);
+        if (gain <= MIN_GAIN)
+          continue;
+        reverse(t2, t3, succ);
+        if (penalties != null) {
+          gain = dist(t1.num, t2.num) + dist(t3.num, t4.num) - dist(t1.num, t3.num) - dist(t2.num, t4.num);
+          utilities.push(t1.num, t3.num, utility(t1.num, t3.num));
+          utilities.push(t2.num, t4.num, utility(t2.num, t4.num));
         }
-        else {
-          reverseOrder(t2.tourIndex, t3.tourIndex);
-          tourSize += adjMatrix[t2.num][t4.num] + adjMatrix[t1.num][t3.num] - 
-            dt1t2 - adjMatrix[t3.num][t4.num];
-          tourChanged = true;
-          
-          //
-          //  Animazione.
-          //
-          if (isAnimated()) {
-            tspFrame.workArea.addOptEdges(t1, t3, t2, t4);
-            pausing();
-            if (isStopped()) return;
-            tspFrame.workArea.repaintOpt(true);
-            pausing();
-            if (isStopped()) return;
-            tspFrame.tspArea.setTourLength();
-            tspFrame.workArea.enableExtraEdges(false);
-            tspFrame.workArea.repaintOpt(false);
-          }
+        length -= gain;
+        queue.push(t1.num);
+        queue.push(t2.num);
+        queue.push(t3.num);
+        queue.push(t4.num);
+
+        //
+        //  Animazione.
+        //
+        if (animateMoves()) {
+          tspFrame.workArea.addOptEdges(t1, t3, t2, t4);
+          animateMove();
         }
-      } while (tourNotEnd);
-      if (!last && !tourChanged) {
-        last = true;
-        tourChanged = true;
+        return true;
       }
-    } while (tourChanged);
+    }
+    return false;
   }
 
 
@@ -153,136 +269,831 @@ public class ImprovementHeuristic extends Heuristic {
      :.....................:
             (rev. order)
 
+  *    Come per twoChange() vengono esaminate solo le citta' in coda; per
+  *    ciascuna si cerca la mossa in entrambi i versi di percorrenza.
   */
-  private void threeChange() {
+  void threeChange() {
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      while (!queue.isEmpty()) {
+        if (isStopped()) return;
+        City c = citiesVector[queue.pop()];
+        if (!threeChangeMove(prev(c), true, queue))
+          threeChangeMove(next(c), false, queue);
+      }
+    }
+    finally {
+      endSearch();
+    }
+  }
+
+  /**
+  *    Cerca una mossa 3-Opt migliorativa che elimini l'arco (t1, t2) del
+  *    circuito, con t2 successore di t1 (o predecessore, se succ e' false:
+  *    la mossa e' la stessa percorrendo il circuito all'indietro), e
+  *    colleghi t2 ad un suo vicino: se la trova la esegue e rimette in
+  *    coda le citta' alle estremita' degli archi modificati.
+  */
+  private boolean threeChangeMove(City t1, boolean succ, ActiveQueue queue) {
     double dt1t2, dt3t4, dt5t6, dt2t4, edge3dst;
     int ind1, ind2;
-    int count;
-    City t1, t2, t3, t4, t5, t6;
-    Neighbour n;
-    final int NSIZE = tourVector[0].neighboursSize;
-    boolean tourChanged, searchNotEnd, between, edgeAdj, tourNotEnd;
-    do {
-      count = startCity;
-      tourChanged = false;
-      tourNotEnd = false;
+    City t2, t3 = null, t4, t5, t6, n;
+    double dn;
+    boolean searchNotEnd, between, edgeAdj, improving;
+    t2 = step(t1, succ);
+    dt1t2 = dist(t1.num, t2.num);
+    ind1 = 0;
+    while (true) {
       do {
-        t1 = tourVector[count];
-        t2 = nextTourNode(t1);
-        dt1t2 = adjMatrix[t1.num][t2.num];
-        ind1 = 0;
-        do {
-          if (isStopped()) return;
-          do {
-            n = t2.neighbours[ind1++];
-            t3 = prevTourNode(n.c);
-            searchNotEnd = (ind1 < NSIZE) && (n.dist < dt1t2);
-          } while (searchNotEnd && t3.equals(t2));
-          if (searchNotEnd) {
-            t4 = n.c;
-            dt3t4 = adjMatrix[t3.num][t4.num];
-            dt2t4 = adjMatrix[t2.num][t4.num];
-            ind2 = 0;
-            do {
-              n = t3.neighbours[ind2++];
-              if (t2.tourIndex < t3.tourIndex) between = 
-                (n.c.tourIndex < t3.tourIndex) && (n.c.tourIndex > t2.tourIndex);
-              else between = 
-                (n.c.tourIndex < t3.tourIndex) || (n.c.tourIndex > t2.tourIndex);
-              if (between) {
-                t5 = n.c;
-                t6 = nextTourNode(t5);
-                edge3dst = adjMatrix[t6.num][t1.num];
-                
-                //
-                //  t5 non puo' essere t2 perche' altrimenti non starebbe 
-                //  strettamente tra t2 e t3.
-                //
-                edgeAdj = t6.equals(t3); 
-              }
-              else {
-                t6 = n.c;
-                t5 = prevTourNode(t6);
-                edge3dst = adjMatrix[t5.num][t1.num];
-                edgeAdj = t5.equals(t4) || t6.equals(t1) || 
-                  t6.equals(t4) || t6.equals(t2);
-              }
-              dt5t6 = adjMatrix[t5.num][t6.num];
-              searchNotEnd = (ind2 < NSIZE) && (n.dist + dt2t4 < dt1t2 + dt3t4);
-            } while (searchNotEnd && 
-                (edgeAdj || (dt2t4 + n.dist + edge3dst >= dt1t2 + dt3t4 + dt5t6))
-              );
-            if (searchNotEnd) {
-              
-              //
-              //  Caso 2.
-              //
-              if (between) {
-                reverseOrder(t2.tourIndex, t3.tourIndex);
-                reverseOrder(t3.tourIndex, t6.tourIndex);
-              }
-              
-              //
-              //  Caso 1
-              //
-              else {
-                reverseOrder(t2.tourIndex, t5.tourIndex);
-                reverseOrder(t3.tourIndex, t2.tourIndex);
-              }
-              
-              tourSize += dt2t4 + n.dist + edge3dst - (dt1t2 + dt3t4 + dt5t6);
-              tourChanged = true;
-              
+        searchNotEnd = (ind1 < t2.neighboursSize) && (t2.neighbourDist[ind1] < dt1t2);
+        if (searchNotEnd)
+          t3 = step(citiesVector[t2.neighbourIds[ind1++]], !succ);
+      } while (searchNotEnd && t3.equals(t2));
+      if (!searchNotEnd)
+        return false;
+      t4 = step(t3, succ);
+      dt3t4 = dist(t3.num, t4.num);
+      dt2t4 = dist(t2.num, t4.num);
+      ind2 = 0;
+      do {
+        n = citiesVector[t3.neighbourIds[ind2]];
+        dn = t3.neighbourDist[ind2++];
+        between = !n.equals(t2) && !n.equals(t3) && 
+          (succ ? work.between(t2.num, n.num, t3.num) : work.between(t3.num, n.num, t2.num));
+        if (between) {
+          t5 = n;
+          t6 = step(t5, succ);
+          edge3dst = dist(t6.num, t1.num);
+          
+          //
+          //  t5 non puo' essere t2 perche' altrimenti non starebbe 
+          //  strettamente tra t2 e t3.
+          //
+          edgeAdj = t6.equals(t3); 
+        }
+        else {
+          t6 = n;
+          t5 = step(t6, !succ);
+          edge3dst = dist(t5.num, t1.num);
+          edgeAdj = t5.equals(t4) || t6.equals(t1) || 
+            t6.equals(t4) || t6.equals(t2);
+        }
+        dt5t6 = dist(t5.num, t6.num);
+        
+        //
+        //  La distanza memorizzata nella neighbours list limita la
+        //  ricerca, il guadagno e' calcolato con quella esatta.
+        //
+        searchNotEnd = (dn + dt2t4 < dt1t2 + dt3t4);
+        dn = dist(t3.num, n.num);
+        improving = searchNotEnd && !edgeAdj && 
+          (dt2t4 + dn + edge3dst < dt1t2 + dt3t4 + dt5t6 - MIN_GAIN);
+      } while (searchNotEnd && !improving && (ind2 < t3.neighboursSize));
+      if (!improving)
+        continue;
+      
+      //
+      //  Caso 2.
+      //
+      if (between) {
+        reverse(t2, t3, succ);
+        reverse(t3, t6, succ);
+      }
+      
+      //
+      //  Caso 1
+      //
+      else {
+        reverse(t2, t5, succ);
+        reverse(t3, t2, succ);
+      }
+      
+      length += dt2t4 + dn + edge3dst - (dt1t2 + dt3t4 + dt5t6);
+      queue.push(t1.num);
+      queue.push(t2.num);
+      queue.push(t3.num);
+      queue.push(t4.num);
+      queue.push(t5.num);
+      queue.push(t6.num);
+      
+      //
+      //  Animazione
+      //
+      if (animateMoves()) {
+        if (between) tspFrame.workArea.addOptEdges(t1, t6, t2, t4, t3, t5);
+        else tspFrame.workArea.addOptEdges(t1, t5, t4, t2, t3, t6);
+        animateMove();
+      }
+      return true;
+    }
+  }
+
+
+  /**
+  *    Algoritmo "Or-Opt": sposta un segmento di 1..Tour.OR_OPT_MAX_LEN citta'
+  *    consecutive (eventualmente invertendolo) tra due citta' adiacenti in
+  *    un'altra parte del circuito, se cio' diminuisce la lunghezza totale.
+  *    E' un caso particolare di 3-Opt (non modifica il resto del
+  *    circuito) che ne ottiene buona parte del miglioramento con un costo
+  *    molto minore.
+
+        ..>(p)--X-->(s1)...(s2)--X-->(n)...>(u)--X-->(v)...
+                \______________________/    \    /
+                         (nuovo)            (s1 o s2)
+
+  *    Come per twoChange() vengono esaminate solo le citta' in coda.
+  */
+  void orOpt() {
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      while (!queue.isEmpty()) {
+        if (isStopped()) return;
+        orOptMove(citiesVector[queue.pop()], queue);
+      }
+    }
+    finally {
+      endSearch();
+    }
+  }
+
+  /**
+  *    Cerca uno spostamento migliorativo di un segmento che inizia o
+  *    finisce nella citta' c, inserendolo accanto ad un vicino di una
+  *    delle sue estremita': se lo trova lo esegue e rimette in coda le
+  *    citta' alle estremita' degli archi modificati.
+  */
+  private boolean orOptMove(City c, ActiveQueue queue) {
+    final int MAX_LEN = Math.min(Tour.OR_OPT_MAX_LEN, totCities - 3);
+    City s1, s2, p, n, end, other, x, y;
+    double removeGain, gain;
+    for (int dir = 0; dir < 2; dir++) {
+      s1 = c;
+      s2 = c;
+      for (int len = 1; len <= MAX_LEN; len++) {
+        if (len > 1) {
+          if (dir == 0)
+            s2 = next(s2);
+          else
+            s1 = prev(s1);
+        }
+        else if (dir == 1)
+          continue;
+        p = prev(s1);
+        n = next(s2);
+        removeGain = dist(p.num, s1.num) + dist(s2.num, n.num) - dist(p.num, n.num);
+        if (removeGain <= MIN_GAIN)
+          continue;
+        for (int side = 0; side < 2; side++) {
+          end = (side == 0) ? s1 : s2;
+          other = (side == 0) ? s2 : s1;
+          for (int ind = 0; (ind < end.neighboursSize) && (end.neighbourDist[ind] < removeGain); ind++) {
+            x = citiesVector[end.neighbourIds[ind]];
+            if (work.between(s1.num, x.num, s2.num))
+              continue;
+            for (int k = 0; k < 2; k++) {
+              y = (k == 0) ? next(x) : prev(x);
+              if (work.between(s1.num, y.num, s2.num))
+                continue;
+              gain = removeGain + dist(x.num, y.num) - dist(x.num, end.num) - dist(other.num, y.num);
+              if (gain <= MIN_GAIN)
+                continue;
+              if (k == 0)
+                moveSegment(s1, s2, x, end == s1);
+              else
+                moveSegment(s1, s2, y, other == s1);
+              length -= gain;
+              queue.push(p.num);
+              queue.push(n.num);
+              queue.push(s1.num);
+              queue.push(s2.num);
+              queue.push(x.num);
+              queue.push(y.num);
+
               //
-              //  Animazione
+              //  Animazione.
               //
-              if (isAnimated()) {
-                if (between) tspFrame.workArea.addOptEdges(t1, t6, t2, t4, t3, t5);
-                else tspFrame.workArea.addOptEdges(t1, t5, t4, t2, t3, t6);
-                pausing();
-                if (isStopped()) return;
-                tspFrame.workArea.repaintOpt(true);
-                pausing();
-                if (isStopped()) return;
-                tspFrame.tspArea.setTourLength();
-                tspFrame.workArea.enableExtraEdges(false);
-                tspFrame.workArea.repaintOpt(false);
+              if (animateMoves()) {
+                tspFrame.workArea.addOptEdges(p, n, x, end, other, y);
+                animateMove();
               }
+              return true;
             }
-            searchNotEnd = !searchNotEnd;
           }
-          else {
-            count = (count + 1) % totCities;
-            tourNotEnd = (count != startCity);
-          }
-        } while (searchNotEnd);
-      } while (tourNotEnd);
-    } while (tourChanged);
-  }
-
-
-  /**
-  *  Scambia i due archi che hanno i nodi alle estremita' 
-  *  indicati da: ind1..ind4 ed inoltre inverte il senso del circuito 
-  *  nel percorso tra ind2 e ind3.
-  */
-  private void reverseOrder(int ind1, int ind2) {
-    City tmp;
-    int dim1 = (ind2 - ind1 + 1 + ((ind1 < ind2)? 0 : totCities)) >> 1;
-    int index1 = ind1;
-    int index2 = ind2;
-    while (dim1-- > 0) {
-      tmp = tourVector[index1];
-      tourVector[index1] = tourVector[index2];
-      tourVector[index2] = tmp;
-      tmp.tourIndex = index2;
-      tourVector[index1].tourIndex = index1++;
-      index1 %= totCities;
-      if (index2 > 0) index2--;
-      else index2 = totCities - 1;
+        }
+      }
     }
+    return false;
   }
 
+  /**
+  *    Sposta il segmento s1..s2 tra la citta' u e il suo successore (vedi
+  *    Tour.moveSegment()), registrando lo spostamento se e' attivo il
+  *    giornale.
+  */
+  private void moveSegment(City s1, City s2, City u, boolean forward) {
+    int n = work.moveSegment(s1.num, s2.num, u.num, forward);
+    if (journal == null)
+      return;
+    if (journalSize + 5 > journal.length)
+      journal = Arrays.copyOf(journal, journal.length << 1);
+    journal[journalSize++] = s1.num;
+    journal[journalSize++] = s2.num;
+    journal[journalSize++] = u.num;
+    journal[journalSize++] = n;
+    journal[journalSize++] = forward ? ~1 : ~0;
+  }
+
+  /**
+  *    Algoritmo di Lin-Kernighan (vedi: S. Lin, B. W. Kernighan, "An
+  *    Effective Heuristic Algorithm for the Traveling-Salesman Problem",
+  *    1973): una mossa e' una sequenza di lunghezza variabile di scambi
+  *    di archi, ciascuno dei quali mantiene il circuito (come una mossa
+  *    2-Opt). Partendo da t1 e dal suo vicino t2 nel circuito, ad ogni
+  *    passo si elimina l'arco (t1, t2), si collega t2 ad un suo vicino t3
+  *    e si elimina l'arco tra t3 e t4 (il predecessore di t3), chiudendo
+  *    il circuito con l'arco (t4, t1); t4 diventa il nuovo t2.
+
+          (t1)--X-->(t2).......(t4)--X-->(t3)
+            \         \_____________________/
+             \______________________/
+                   (chiusura)
+
+  *    La sequenza prosegue finche' la somma dei guadagni parziali (archi
+  *    eliminati meno archi aggiunti, esclusa la chiusura) resta positiva
+  *    e viene poi troncata al passo che ha dato il circuito piu' corto.
+  *    Ai primi livelli vengono provate piu' alternative (LK_BREADTH), un
+  *    arco aggiunto non puo' essere eliminato nella stessa mossa e la
+  *    profondita' e' limitata da LK_MAX_DEPTH. Come per twoChange()
+  *    vengono esaminate solo le citta' in coda.
+  */
+  private void linKernighan() {
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      while (!queue.isEmpty()) {
+        if (isStopped()) return;
+        linKernighanMove(citiesVector[queue.pop()], queue);
+      }
+    }
+    finally {
+      endSearch();
+    }
+  }
+
+  /**
+  *    Cerca una mossa di Lin-Kernighan migliorativa che elimini uno dei
+  *    due archi del circuito incidenti nella citta' t1: se la trova la
+  *    esegue e rimette in coda le citta' alle estremita' degli archi
+  *    modificati.
+  */
+  private boolean linKernighanMove(City t1, ActiveQueue queue) {
+    City t2;
+    for (int dir = 0; dir < 2; dir++) {
+      lkSucc = (dir == 0);
+      t2 = step(t1, lkSucc);
+      lkDepth = 0;
+      lkBestDepth = 0;
+      lkDelta = 0;
+      lkBestDelta = -MIN_GAIN;
+      lkStep(0, dist(t1.num, t2.num), t1, t2);
+
+      //
+      //  Annulla gli scambi successivi a quello che ha dato il circuito
+      //  piu' corto.
+      //
+      while (lkDepth > lkBestDepth) {
+        lkDepth--;
+        reverse(citiesVector[lkT4[lkDepth]], citiesVector[lkT2[lkDepth]], lkSucc);
+      }
+      if (lkBestDepth == 0)
+        continue;
+      length += lkBestDelta;
+      queue.push(t1.num);
+      for (int count = 0; count < lkBestDepth; count++) {
+        queue.push(lkT2[count]);
+        queue.push(lkT3[count]);
+        queue.push(lkT4[count]);
+      }
+
+      //
+      //  Animazione.
+      //
+      if (animateMoves()) {
+        tspFrame.workArea.addOptEdges(citiesVector[lkT2[0]], citiesVector[lkT3[0]],
+          t1, citiesVector[lkT4[lkBestDepth - 1]]);
+        animateMove();
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+  *    Passo "level" della mossa di Lin-Kernighan: t2 e' il successore di
+  *    t1 (nel verso lkSucc) e "gain" e' la somma dei guadagni parziali
+  *    compreso l'arco (t1, t2). Restituisce true se la mossa ha gia'
+  *    trovato un circuito piu' corto (in questo caso gli scambi restano
+  *    applicati).
+  */
+  private boolean lkStep(int level, double gain, City t1, City t2) {
+    final int BREADTH = (level < LK_BREADTH.length) ? LK_BREADTH[level] : 1;
+    final int[] ALT = lkAlt[lkDepth];
+    final double[] ALT_GAIN = lkAltGain[lkDepth];
+    double g1, dt3t4, delta;
+    City t3, t4;
+    int tot = 0;
+
+    //
+    //  Sceglie i vicini t3 con guadagno parziale positivo, ordinati
+    //  secondo d(t3, t4) - d(t2, t3) decrescente.
+    //
+    for (int ind = 0; ind < t2.neighboursSize; ind++) {
+      if (t2.neighbourDist[ind] >= gain)
+        break;
+      t3 = citiesVector[t2.neighbourIds[ind]];
+      t4 = step(t3, !lkSucc);
+      if (t3.equals(t1) || t4.equals(t2) || lkAdded(t3.num, t4.num))
+        continue;
+      g1 = dist(t3.num, t4.num) - dist(t2.num, t3.num);
+      if (gain + g1 - dist(t3.num, t4.num) <= 0)
+        continue;
+      int count = (tot < BREADTH) ? tot++ : BREADTH;
+      while ((count > 0) && (ALT_GAIN[count - 1] < g1)) {
+        if (count < BREADTH) {
+          ALT[count] = ALT[count - 1];
+          ALT_GAIN[count] = ALT_GAIN[count - 1];
+        }
+        count--;
+      }
+      if (count < BREADTH) {
+        ALT[count] = t3.num;
+        ALT_GAIN[count] = g1;
+      }
+    }
+    for (int alt = 0; alt < tot; alt++) {
+      t3 = citiesVector[ALT[alt]];
+      t4 = step(t3, !lkSucc);
+      g1 = gain - dist(t2.num, t3.num);
+      dt3t4 = dist(t3.num, t4.num);
+      delta = lkDelta;
+
+      //
+      //  Esegue lo scambio: (t1, t2) e (t4, t3) vengono sostituiti da
+      //  (t2, t3) e (t1, t4).
+      //
+      reverse(t2, t4, lkSucc);
+      lkT2[lkDepth] = t2.num;
+      lkT3[lkDepth] = t3.num;
+      lkT4[lkDepth] = t4.num;
+      lkDepth++;
+      lkDelta += dist(t2.num, t3.num) + dist(t1.num, t4.num) - dist(t1.num, t2.num) - dt3t4;
+      if (lkDelta < lkBestDelta) {
+        lkBestDelta = lkDelta;
+        lkBestDepth = lkDepth;
+      }
+      if ((lkDepth < LK_MAX_DEPTH) && lkStep(level + 1, g1 + dt3t4, t1, t4))
+        return true;
+      if (lkBestDepth > 0)
+        return true;
+
+      //
+      //  Nessun miglioramento: annulla lo scambio e prova il vicino
+      //  successivo.
+      //
+      lkDepth--;
+      lkDelta = delta;
+      reverse(t4, t2, lkSucc);
+    }
+    return false;
+  }
+
+  /**
+  *    Verifica se l'arco (a, b) e' stato aggiunto dalla mossa di
+  *    Lin-Kernighan in corso.
+  */
+  private boolean lkAdded(int a, int b) {
+    for (int count = 0; count < lkDepth; count++)
+      if (((lkT2[count] == a) && (lkT3[count] == b)) || ((lkT2[count] == b) && (lkT3[count] == a)))
+        return true;
+    return false;
+  }
+
+
+  /**
+  *    Variable neighbourhood descent (vedi: P. Hansen, N. Mladenovic,
+  *    "Variable neighborhood search: Principles and applications", 2001):
+  *    un'unica esecuzione che combina gli intorni di twoChange(), orOpt()
+  *    e threeChange() in ordine di costo (vedi localSearch()), con una
+  *    sola coda di citta' attive (don't-look bits condivisi) invece di
+  *    eseguire gli algoritmi uno dopo l'altro.
+  */
+  private void variableNeighbourhoodDescent() {
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      localSearch(queue);
+    }
+    finally {
+      endSearch();
+    }
+  }
+
+
+  /**
+  *    Ricerca locale iterata (vedi: H. R. Lourenco, O. C. Martin,
+  *    T. Stutzle, "Iterated Local Search", 2003): il circuito viene
+  *    portato in un ottimo locale combinando 2-Opt, Or-Opt e 3-Opt
+  *    (localSearch()), poi ripetutamente perturbato con una mossa
+  *    "double-bridge" locale (doubleBridge()) e riottimizzato a partire
+  *    dalle sole citta' toccate. Il nuovo circuito viene accettato solo
+  *    se e' piu' corto del migliore, altrimenti le mosse registrate nel
+  *    giornale vengono annullate.
+  *    La ricerca termina dopo timeLimit millisecondi (anche durante la
+  *    prima ricerca locale) o quando si raggiunge la lunghezza target
+  *    (impostati in TspArea); tourSize e il circuito visualizzato
+  *    cambiano solo quando si trova un nuovo circuito migliore.
+  */
+  private void iteratedLocalSearch(long timeLimit, double target) {
+    final long START = System.currentTimeMillis();
+    boolean improved = false;
+    double bestSize;
+    setDeadline(START + timeLimit);
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      if (!localSearch(queue) || (totCities < 8)) return;
+      bestSize = length;
+      showBest();
+      Random random = new Random();
+      while ((length > target) && !isExpired()) {
+        if (kick(citiesVector[random.nextInt(totCities)], random, queue) < bestSize - MIN_GAIN) {
+          bestSize = length;
+          improved = true;
+        }
+        if (showProgress(START, timeLimit) && improved) {
+          improved = false;
+          showBest();
+        }
+      }
+    }
+    finally {
+      journal = null;
+      endSearch();
+    }
+  }
+
+  /**
+  *    Un passo della ricerca locale iterata sul circuito di lavoro, in un
+  *    ottimo locale: perturbazione a partire dalla citta' p e nuova
+  *    ricerca locale. Se il circuito non diventa piu' corto le mosse
+  *    registrate nel giornale vengono annullate, tornando esattamente al
+  *    circuito di partenza. Restituisce la lunghezza del circuito di
+  *    lavoro.
+  */
+  final double kick(City p, Random random, ActiveQueue queue) {
+    final double BEFORE = length;
+    if (journal == null)
+      journal = new int[64];
+    journalSize = 0;
+    doubleBridge(p, random, queue);
+    localSearch(queue);
+    if (length >= BEFORE - MIN_GAIN) {
+      undoJournal();
+      length = BEFORE;
+    }
+    return length;
+  }
+
+  /**
+  *    Ricerca locale che combina le mosse di twoChange(), orOpt() e
+  *    threeChange(): per ogni citta' in coda prova le mosse in ordine di
+  *    costo, e dopo ogni mossa eseguita si riparte dall'intorno piu'
+  *    economico (2-Opt) con la citta' successiva, finche' la coda non e'
+  *    vuota. Restituisce false se il thread (o l'euristica per cui
+  *    lavora) e' stato fermato.
+  */
+  private boolean localSearch(ActiveQueue queue) {
+    City c;
+    while (!queue.isEmpty()) {
+      if (owner.isExpired()) return false;
+      c = citiesVector[queue.pop()];
+      if (!twoChangeMove(c, queue) && !orOptMove(c, queue) &&
+        !threeChangeMove(prev(c), true, queue))
+        threeChangeMove(next(c), false, queue);
+    }
+    return true;
+  }
+
+  /**
+  *    Perturbazione "double-bridge" locale: scambia due segmenti
+  *    consecutivi B e C, di al massimo KICK_MAX_LEN citta' ciascuno, che
+  *    seguono la citta' p. Il circuito p B C n diventa p C B n (i segmenti
+  *    non vengono invertiti, per cui la mossa non puo' essere annullata
+  *    da una singola mossa 2-Opt o 3-Opt) con tre inversioni, e le citta'
+  *    alle estremita' degli archi modificati vengono messe in coda.
+
+        ..>(p)--X-->(b1)...(b2)--X-->(c1)...(c2)--X-->(n)...
+
+  */
+  private void doubleBridge(City p, Random random, ActiveQueue queue) {
+    final int MAX_LEN = Math.min(KICK_MAX_LEN, (totCities - 3) >> 1);
+    City b1 = next(p), b2 = b1, c1, c2;
+    for (int count = random.nextInt(MAX_LEN); count > 0; count--)
+      b2 = next(b2);
+    c1 = next(b2);
+    c2 = c1;
+    for (int count = random.nextInt(MAX_LEN); count > 0; count--)
+      c2 = next(c2);
+    City n = next(c2);
+    length += dist(p.num, c1.num) + dist(c2.num, b1.num) + dist(b2.num, n.num) -
+      dist(p.num, b1.num) - dist(b2.num, c1.num) - dist(c2.num, n.num);
+    reverse(b1, c2);
+    reverse(c2, c1);
+    reverse(b2, b1);
+    queue.push(p.num);
+    queue.push(b1.num);
+    queue.push(b2.num);
+    queue.push(c1.num);
+    queue.push(c2.num);
+    queue.push(n.num);
+  }
+
+  /**
+  *    Ricerca locale guidata (vedi: C. Voudouris, E. Tsang, "Guided Local
+  *    Search and its Application to the Traveling Salesman Problem",
+  *    1999): il circuito viene portato in un ottimo locale 2-Opt, poi ad
+  *    ogni passo si penalizza l'arco del circuito con utilita' massima
+  *    (penalize()) e si riprende la ricerca con la distanza aumentata
+  *    (cost()) a partire dalle sole estremita' dell'arco, come nella
+  *    "fast local search". Le penalita' sono in una tabella hash
+  *    dimensionata sugli archi delle neighbours list.
+  *    Termina come iteratedLocalSearch(); il circuito corrente contiene
+  *    sempre il migliore trovato (con la distanza reale).
+  */
+  private void guidedLocalSearch(long timeLimit, double target) {
+    final long START = System.currentTimeMillis();
+    boolean improved = false;
+    double bestSize;
+    setDeadline(START + timeLimit);
+    beginSearch();
+    try {
+      ActiveQueue queue = new ActiveQueue(totCities);
+      queue.pushTour(work, startCity);
+      if (!twoChangeSearch(queue) || (totCities < 8)) return;
+      bestSize = length;
+      showBest();
+      int edges = 0;
+      for (int count = 0; count < totCities; count++)
+        edges += citiesVector[count].neighboursSize;
+      penalties = new LongIntMap(edges);
+      lambda = GLS_ALPHA * length / totCities;
+      utilities = new EdgeHeap(totCities << 1);
+      fillUtilities();
+      while ((bestSize > target) && !isExpired()) {
+        penalize(queue);
+        if (!twoChangeSearch(queue)) break;
+        if (length < bestSize - MIN_GAIN) {
+          bestSize = length;
+          tourSize = length;
+          syncTour();
+          improved = true;
+        }
+        if (showProgress(START, timeLimit) && improved) {
+          improved = false;
+          showTour();
+        }
+      }
+
+      //  Il circuito corrente contiene gia' il migliore: quello di
+      //  lavoro viene abbandonato.
+      length = bestSize;
+      useTour(tourArray);
+    }
+    finally {
+      penalties = null;
+      utilities = null;
+      endSearch();
+    }
+  }
+
+  /**
+  *    Penalizza l'arco del circuito di lavoro con utilita' massima
+  *    (distanza / (1 + penalita')) e rimette in coda le sue estremita'.
+  *    L'arco si trova in cima a utilities, dopo aver scartato gli
+  *    elementi non piu' validi, invece di esaminare tutti gli n archi del
+  *    circuito; quando gli elementi diventano troppi (piu' di 4n) la coda
+  *    viene ricostruita dal circuito.
+  */
+  private void penalize(ActiveQueue queue) {
+    if (utilities.size() > (totCities << 2))
+      fillUtilities();
+    int a, b;
+    while (true) {
+      a = utilities.topA();
+      b = utilities.topB();
+      double value = utilities.topValue();
+      utilities.pop();
+      if (((work.next(a) == b) || (work.prev(a) == b)) && (value == utility(a, b)))
+        break;
+    }
+    long key = LongIntMap.edgeKey(a, b);
+    penalties.put(key, penalties.get(key, 0) + 1);
+    utilities.push(a, b, utility(a, b));
+    queue.push(a);
+    queue.push(b);
+  }
+
+  /**
+  *    Utilita' dell'arco (a, b) per la penalizzazione: distanza /
+  *    (1 + penalita').
+  */
+  private double utility(int a, int b) {
+    return dist(a, b) / (1 + penalties.get(LongIntMap.edgeKey(a, b), 0));
+  }
+
+  /**
+  *    Ricostruisce utilities con gli archi del circuito di lavoro.
+  */
+  private void fillUtilities() {
+    utilities.clear();
+    for (int c = 0; c < totCities; c++) {
+      int n = work.next(c);
+      utilities.push(c, n, utility(c, n));
+    }
+  }
+
+  /**
+  *    Visualizza il circuito di lavoro (il migliore trovato) e la sua
+  *    lunghezza.
+  */
+  private void showBest() {
+    tourSize = length;
+    syncTour();
+    showTour();
+  }
+
+
+  /**
+  *    Verifica se le mosse vanno animate: non quando si lavora su un
+  *    circuito privato (localOptimum()) ne' nelle metaeuristiche (ricerca
+  *    locale iterata e guidata), che visualizzano solo i circuiti
+  *    migliori.
+  */
+  private boolean animateMoves() {
+    return isAnimated() && (work == tour) && (journal == null) && (penalties == null);
+  }
+
+  /**
+  *    Animazione di una mossa, dopo che i nuovi archi sono stati passati a
+  *    addOptEdges(): se il thread viene fermato l'animazione si interrompe,
+  *    e la ricerca termina al passo successivo (che controlla lo stop).
+  */
+  private void animateMove() {
+    pausing();
+    if (isStopped()) return;
+    syncTour();
+    tspFrame.workArea.repaintOpt(true);
+    pausing();
+    if (isStopped()) return;
+    tourSize = length;
+    tspFrame.tspArea.setTourLength();
+    tspFrame.workArea.enableExtraEdges(false);
+    tspFrame.workArea.repaintOpt(false);
+  }
+
+
+  /**
+  *    Inizia la ricerca sul circuito corrente, in una rappresentazione
+  *    adatta alle mosse (vedi Heuristic.createTour()).
+  */
+  private void beginSearch() {
+    useTour(createTour());
+    work = tour;
+    length = tourSize;
+  }
+
+  /**
+  *    Termina la ricerca iniziata con beginSearch(), ricopiando nel
+  *    circuito corrente il risultato e la sua lunghezza.
+  */
+  private void endSearch() {
+    tourSize = length;
+    releaseTour();
+  }
+
+  /**
+  *    Porta in un ottimo locale (mosse di twoChange(), orOpt() e
+  *    threeChange()) il circuito "t", lungo "len", esaminando le citta'
+  *    in coda. Il circuito corrente non viene modificato, per cui altre
+  *    euristiche possono usarlo su circuiti propri, anche in parallelo
+  *    con un oggetto per ogni thread (creato con il costruttore che
+  *    riceve l'euristica "owner": la ricerca termina in anticipo, con un
+  *    circuito valido, se owner viene fermata o scade il suo tempo).
+  *    Restituisce la nuova lunghezza.
+  */
+  final double localOptimum(Tour t, double len, ActiveQueue queue) {
+    work = t;
+    length = len;
+    localSearch(queue);
+    return length;
+  }
+
+  /**
+  *    Come localOptimum(), ma con le sole mosse di twoChange().
+  */
+  final double twoOptimum(Tour t, double len, ActiveQueue queue) {
+    work = t;
+    length = len;
+    twoChangeSearch(queue);
+    return length;
+  }
+
+  /**
+  *    Distanza aumentata dell'arco (a, b): la distanza reale piu' lambda
+  *    volte la penalita' dell'arco, durante la ricerca locale guidata.
+  */
+  private double cost(int a, int b) {
+    if (penalties == null) return dist(a, b);
+    return dist(a, b) + lambda * penalties.get(LongIntMap.edgeKey(a, b), 0);
+  }
+
+  /**
+  *    Restituisce la citta' successiva a c nel circuito di lavoro.
+  */
+  private City next(City c) {
+    return citiesVector[work.next(c.num)];
+  }
+
+  /**
+  *    Restituisce la citta' precedente a c nel circuito di lavoro.
+  */
+  private City prev(City c) {
+    return citiesVector[work.prev(c.num)];
+  }
+
+  /**
+  *    Restituisce la citta' successiva a c (o la precedente, se succ e'
+  *    false).
+  */
+  private City step(City c, boolean succ) {
+    return succ ? next(c) : prev(c);
+  }
+
+  /**
+  *    Inverte il cammino da a a b (percorrendo il circuito all'indietro,
+  *    se succ e' false).
+  */
+  private void reverse(City a, City b, boolean succ) {
+    if (succ)
+      reverse(a, b);
+    else
+      reverse(b, a);
+  }
+
+  /**
+  *    Inverte il cammino da a a b, registrando l'inversione se e' attivo
+  *    il giornale (vedi undoJournal()).
+  */
+  private void reverse(City a, City b) {
+    work.reverse(a.num, b.num);
+    if (journal == null)
+      return;
+    if (journalSize + 2 > journal.length)
+      journal = Arrays.copyOf(journal, journal.length << 1);
+    journal[journalSize++] = a.num;
+    journal[journalSize++] = b.num;
+  }
+
+  /**
+  *    Annulla le mosse registrate nel giornale, dall'ultima alla prima:
+  *    dopo l'inversione del cammino da a a b, quello da b ad a contiene le
+  *    stesse citta'. Gli spostamenti di segmento occupano cinque posizioni
+  *    e terminano con un valore negativo (~1 se il segmento non e' stato
+  *    invertito, altrimenti ~0).
+  */
+  private void undoJournal() {
+    while (journalSize > 0) {
+      int last = journal[journalSize - 1];
+      if (last < 0) {
+        journalSize -= 5;
+        work.undoMoveSegment(journal[journalSize], journal[journalSize + 1],
+            journal[journalSize + 2], journal[journalSize + 3], last == ~1);
+      }
+      else {
+        journalSize -= 2;
+        work.reverse(journal[journalSize + 1], journal[journalSize]);
+      }
+    }
+  }
+
+
   /**
   *   Metodo necessario all'esecuzione di questo thread.
   */
@@ -302,6 +1113,23 @@ public class ImprovementHeuristic extends Heuristic {
       case THREE_CHANGE:
         threeChange();
         break;
+      case OR_OPT:
+        orOpt();
+        break;
+      case LIN_KERNIGHAN:
+        linKernighan();
+        break;
+      case VND:
+        variableNeighbourhoodDescent();
+        break;
+      case ITERATED_LS:
+        iteratedLocalSearch(Math.round(tspFrame.tspArea.getTimeLimit() * 1000),
+          tspFrame.tspArea.getTargetLength());
+        break;
+      case GUIDED_LS:
+        guidedLocalSearch(Math.round(tspFrame.tspArea.getTimeLimit() * 1000),
+          tspFrame.tspArea.getTargetLength());
+        break;
     }
     tspFrame.workArea.enableExtraEdges(false);
     tspFrame.chgTour(true);
@@ -388,8 +1216,8 @@ public class ImprovementHeuristic extends Heuristic {
 		nodeLB node2 = null;
 		nodeLB[] h = new nodeLB[totCities];
 		double[] pi = new double[totCities];
+		double[] bestPi = null;
 		double piIndexMin;
-		double[] adjMatrixIndexMin;
 		for (count = 0; count < totCities; count++)
 			h[count] = new nodeLB(citiesVector[count]);
 
@@ -438,12 +1266,11 @@ public class ImprovementHeuristic extends Heuristic {
 				}
 				indexMin = h1.index;
 				piIndexMin = pi[indexMin];
-				adjMatrixIndexMin = adjMatrix[indexMin];
 				if (tot > 0) {
 					min = Double.POSITIVE_INFINITY;
 					for (count = 0; count < tot; count++) {
 						h2 = h[count];
-						wid = adjMatrixIndexMin[h2.index] + pi[h2.index] + piIndexMin;
+						wid = dist(indexMin, h2.index) + pi[h2.index] + piIndexMin;
 						if (wid < h2.key) {
 							h2.key = wid;
 							h2.father = h1;
@@ -475,7 +1302,6 @@ public class ImprovementHeuristic extends Heuristic {
 				if (h1.degree == 1) {
 					min = Double.POSITIVE_INFINITY;
 					indexMin = h1.index;
-					adjMatrixIndexMin = adjMatrix[indexMin];
 
 					//
 					// Cerca il nodo che ha la seconda distanza minima
@@ -484,7 +1310,7 @@ public class ImprovementHeuristic extends Heuristic {
 					//
 					for (count2 = 0; count2 < totCities; count2++) {
 						h2 = h[count2];
-						wid = adjMatrixIndexMin[h2.index] + pi[h2.index];
+						wid = dist(indexMin, h2.index) + pi[h2.index];
 						if ((min > wid) && (count2 != count)
 								&& (h1.father != h2)) {
 							min = wid;
@@ -512,8 +1338,10 @@ public class ImprovementHeuristic extends Heuristic {
 				h1.degree -= 2;
 			}
 			dimMax1Tree += dimMST - (2 * piTot);
-			if (dimMax1Tree > lowBound)
+			if (dimMax1Tree > lowBound) {
 				lowBound = dimMax1Tree;
+				bestPi = pi.clone();
+			}
 
 			tspFrame.statusArea.setProgress(Math.round(((float) k / MAX_ITERATIONS) * 100));
 
@@ -561,6 +1389,11 @@ public class ImprovementHeuristic extends Heuristic {
 				t *= LAMBDA;
 			}
 		} while (true);
+
+		//
+		// Le penalità del miglior 1-tree servono per l'alpha-nearness.
+		//
+		setPenalties(bestPi, tspFrame);
 		return lowBound;
 	}
 }  
\ No newline at end of file
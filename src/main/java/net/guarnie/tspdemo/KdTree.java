@@ -0,0 +1,582 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Albero k-d (bidimensionale) bilanciato sulle città di un'istanza EUC_2D.
+ * Viene costruito una sola volta in O(n log n) e permette di calcolare i
+ * vicini di una città visitando solo le regioni del piano che possono
+ * contenerne, invece di confrontarla con tutte le altre.
+ *
+ * L'albero e' implicito: il nodo che rappresenta l'intervallo [lo, hi) del
+ * vettore e' l'elemento mediano (lo + hi) / 2, i due sottoalberi sono le
+ * due meta' dell'intervallo.
+ *
+ * Oltre ai K nodi piu' vicini permette di calcolare i piu' vicini in
+ * ciascuno dei quattro quadranti attorno a una città.
+ *
+ * L'albero puo' essere modificato quando si aggiungono, spostano o
+ * cancellano città: le città rimosse vengono solo marcate, quelle aggiunte
+ * finiscono in un vettore esterno scandito sequenzialmente; quando le une o
+ * le altre diventano troppe l'albero viene ricostruito.
+ */
+public class KdTree {
+	/**
+	 * Numero massimo di città in una foglia (le foglie vengono scandite
+	 * sequenzialmente).
+	 */
+	private final static int BUCKET_SIZE = 8;
+
+	/**
+	 * Città e relative coordinate, nell'ordine dell'albero.
+	 */
+	private City[] nodes;
+	private double[] px, py;
+
+	/**
+	 * Coordinata usata per la suddivisione in ciascun nodo interno (true = x).
+	 */
+	private boolean[] splitX;
+
+	/**
+	 * Città rimosse dall'albero dopo la sua costruzione.
+	 */
+	private boolean[] removed;
+	private int totRemoved;
+
+	/**
+	 * Massimo valore di "farthestDist" tra le città di ciascun sottoalbero
+	 * (memorizzato nella posizione del nodo mediano, anche per le foglie):
+	 * una città lontana piu' di questo valore da un punto non puo' avere un
+	 * vicino in quel punto. Il valore puo' essere maggiore di quello
+	 * effettivo, mai minore.
+	 */
+	private double[] reach;
+
+	/**
+	 * Numero di posizioni dell'albero (comprese quelle delle città rimosse).
+	 */
+	private int size;
+
+	/**
+	 * Città aggiunte dopo la costruzione dell'albero (le loro coordinate
+	 * sono lette direttamente dalla città).
+	 */
+	private City[] extra = new City[BUCKET_SIZE];
+	private int totExtra;
+
+	/**
+	 * Città trovata da nearest(x, y) e quadrato della sua distanza dal
+	 * punto.
+	 */
+	private City found;
+	private double foundDist;
+
+	/**
+	 * Costruisce l'albero sulle prime "tot" città del vettore "cities".
+	 */
+	public KdTree(City[] cities, int tot) {
+		build(cities, tot);
+	}
+
+	/**
+	 * Inizializza i vettori dell'albero con le prime "tot" città del
+	 * vettore "cities" e costruisce l'albero.
+	 */
+	private void build(City[] cities, int tot) {
+		size = tot;
+		nodes = new City[tot];
+		px = new double[tot];
+		py = new double[tot];
+		splitX = new boolean[tot];
+		removed = new boolean[tot];
+		reach = new double[tot];
+		totRemoved = 0;
+		totExtra = 0;
+		System.arraycopy(cities, 0, nodes, 0, tot);
+		for (int count = 0; count < tot; count++) {
+			px[count] = nodes[count].x;
+			py[count] = nodes[count].y;
+		}
+		build(0, tot);
+	}
+
+	/**
+	 * Restituisce il numero di città contenute nell'albero.
+	 */
+	public final int size() {
+		return size - totRemoved + totExtra;
+	}
+
+	/**
+	 * Aggiunge la città "c" (con le sue coordinate attuali).
+	 */
+	public final void insert(City c) {
+		if (totExtra == extra.length)
+			extra = Arrays.copyOf(extra, totExtra * 2);
+		extra[totExtra++] = c;
+		if (totExtra * totExtra > size + BUCKET_SIZE * BUCKET_SIZE)
+			rebuild();
+	}
+
+	/**
+	 * Rimuove la città "c", che deve avere ancora le coordinate con cui e'
+	 * stata inserita. Restituisce false se la città non e' presente.
+	 */
+	public final boolean remove(City c) {
+		for (int count = 0; count < totExtra; count++)
+			if (extra[count] == c) {
+				extra[count] = extra[--totExtra];
+				extra[totExtra] = null;
+				return true;
+			}
+		int pos = find(c, 0, size);
+		if (pos < 0)
+			return false;
+		removed[pos] = true;
+		if (++totRemoved * 2 > size)
+			rebuild();
+		return true;
+	}
+
+	/**
+	 * Cerca la posizione della città "c" nel sottoalbero [lo, hi) (-1 se non
+	 * e' presente); con coordinate uguali al piano di suddivisione la città
+	 * puo' trovarsi in entrambi i sottoalberi.
+	 */
+	private int find(City c, int lo, int hi) {
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				if ((nodes[count] == c) && !removed[count])
+					return count;
+			return -1;
+		}
+		int mid = (lo + hi) >>> 1;
+		if ((nodes[mid] == c) && !removed[mid])
+			return mid;
+		double diff = splitX[mid] ? c.x - px[mid] : c.y - py[mid];
+		int pos = -1;
+		if (diff <= 0)
+			pos = find(c, lo, mid);
+		if ((pos < 0) && (diff >= 0))
+			pos = find(c, mid + 1, hi);
+		return pos;
+	}
+
+	/**
+	 * Ricostruisce l'albero con le città presenti.
+	 */
+	private void rebuild() {
+		City[] cities = new City[size()];
+		int tot = 0;
+		for (int count = 0; count < size; count++)
+			if (!removed[count])
+				cities[tot++] = nodes[count];
+		for (int count = 0; count < totExtra; count++)
+			cities[tot++] = extra[count];
+		extra = new City[BUCKET_SIZE];
+		build(cities, tot);
+		updateReach();
+	}
+
+	/**
+	 * Ricalcola il massimo valore di "farthestDist" di ciascun sottoalbero
+	 * (va chiamato dopo aver calcolato le neighbours list).
+	 */
+	public final void updateReach() {
+		updateReach(0, size);
+	}
+
+	/**
+	 * Ricalcola il massimo valore di "farthestDist" del sottoalbero [lo, hi)
+	 * e lo restituisce.
+	 */
+	private double updateReach(int lo, int hi) {
+		if (lo >= hi)
+			return 0;
+		int mid = (lo + hi) >>> 1;
+		double max = 0;
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				max = Math.max(max, nodes[count].farthestDist);
+		} else
+			max = Math.max(nodes[mid].farthestDist, Math.max(updateReach(lo, mid), updateReach(mid + 1, hi)));
+		reach[mid] = max;
+		return max;
+	}
+
+	/**
+	 * Aggiorna i valori di "reach" sul cammino che porta alla città "c", la
+	 * cui neighbours list e' stata ricalcolata.
+	 */
+	public final void raiseReach(City c) {
+		raiseReach(c, 0, size);
+	}
+
+	/**
+	 * Cerca la città "c" nel sottoalbero [lo, hi) aggiornandone "reach" se la
+	 * trova; restituisce true se la città e' stata trovata.
+	 */
+	private boolean raiseReach(City c, int lo, int hi) {
+		if (lo >= hi)
+			return false;
+		int mid = (lo + hi) >>> 1;
+		boolean found = false;
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; (count < hi) && !found; count++)
+				found = (nodes[count] == c) && !removed[count];
+		} else {
+			found = (nodes[mid] == c) && !removed[mid];
+			double diff = splitX[mid] ? c.x - px[mid] : c.y - py[mid];
+			if (!found && (diff <= 0))
+				found = raiseReach(c, lo, mid);
+			if (!found && (diff >= 0))
+				found = raiseReach(c, mid + 1, hi);
+		}
+		if (found && (c.farthestDist > reach[mid]))
+			reach[mid] = c.farthestDist;
+		return found;
+	}
+
+	/**
+	 * Aggiunge a "result" le città che hanno nella propria neighbours list
+	 * un posto per una città nel punto (x, y), cioe' quelle a distanza non
+	 * superiore alla propria "farthestDist".
+	 */
+	public final void reverseNearest(double x, double y, List<City> result) {
+		for (int count = 0; count < totExtra; count++) {
+			City c = extra[count];
+			if (Math.sqrt((c.x - x) * (c.x - x) + (c.y - y) * (c.y - y)) <= c.farthestDist)
+				result.add(c);
+		}
+		reverseNearest(x, y, 0, size, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, result);
+	}
+
+	/**
+	 * Visita il sottoalbero [lo, hi), contenuto nel rettangolo [minX, maxX] x
+	 * [minY, maxY], per reverseNearest(); il sottoalbero viene scartato se il
+	 * rettangolo e' piu' lontano del suo valore di "reach".
+	 */
+	private void reverseNearest(double x, double y, int lo, int hi, double minX, double maxX,
+			double minY, double maxY, List<City> result) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		double dx = (x < minX) ? minX - x : ((x > maxX) ? x - maxX : 0);
+		double dy = (y < minY) ? minY - y : ((y > maxY) ? y - maxY : 0);
+		if (Math.sqrt(dx * dx + dy * dy) > reach[mid])
+			return;
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				reachable(x, y, count, result);
+			return;
+		}
+		reachable(x, y, mid, result);
+		if (splitX[mid]) {
+			reverseNearest(x, y, lo, mid, minX, px[mid], minY, maxY, result);
+			reverseNearest(x, y, mid + 1, hi, px[mid], maxX, minY, maxY, result);
+		} else {
+			reverseNearest(x, y, lo, mid, minX, maxX, minY, py[mid], result);
+			reverseNearest(x, y, mid + 1, hi, minX, maxX, py[mid], maxY, result);
+		}
+	}
+
+	/**
+	 * Aggiunge a "result" la città di posizione "pos" se e' presente e a
+	 * distanza non superiore alla propria "farthestDist" dal punto (x, y).
+	 */
+	private void reachable(double x, double y, int pos, List<City> result) {
+		double dx = px[pos] - x;
+		double dy = py[pos] - y;
+		if (!removed[pos] && (Math.sqrt(dx * dx + dy * dy) <= nodes[pos].farthestDist))
+			result.add(nodes[pos]);
+	}
+
+	/**
+	 * Costruisce ricorsivamente il sottoalbero dell'intervallo [lo, hi),
+	 * suddividendo lungo la coordinata con estensione maggiore.
+	 */
+	private void build(int lo, int hi) {
+		if (hi - lo <= BUCKET_SIZE)
+			return;
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int count = lo; count < hi; count++) {
+			if (px[count] < minX) minX = px[count];
+			if (px[count] > maxX) maxX = px[count];
+			if (py[count] < minY) minY = py[count];
+			if (py[count] > maxY) maxY = py[count];
+		}
+		int mid = (lo + hi) >>> 1;
+		boolean byX = (maxX - minX) >= (maxY - minY);
+		select(lo, hi - 1, mid, byX);
+		splitX[mid] = byX;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	/**
+	 * Riordina l'intervallo [lo, hi] in modo che l'elemento di posizione "k"
+	 * sia quello che occuperebbe tale posizione nell'ordinamento secondo la
+	 * coordinata scelta (quickselect, tempo medio lineare).
+	 */
+	private void select(int lo, int hi, int k, boolean byX) {
+		double[] v = byX ? px : py;
+		while (hi > lo) {
+			double pivot = v[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (v[i] < pivot) i++;
+				while (v[j] > pivot) j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Scambia due elementi dell'albero.
+	 */
+	private void swap(int i, int j) {
+		City c = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = c;
+		double tmp = px[i];
+		px[i] = px[j];
+		px[j] = tmp;
+		tmp = py[i];
+		py[i] = py[j];
+		py[j] = tmp;
+	}
+
+	/**
+	 * Ricalcola la neighbours list della città "c" con le città piu' vicine
+	 * contenute nell'albero.
+	 */
+	public final void nearest(City c) {
+		c.clearNeighbours();
+		for (int count = 0; count < totExtra; count++) {
+			City other = extra[count];
+			if (other != c)
+				c.addNeighbour(other.num, Math.sqrt((c.x - other.x) * (c.x - other.x) + (c.y - other.y) * (c.y - other.y)));
+		}
+		nearest(c, 0, size);
+	}
+
+	/**
+	 * Visita il sottoalbero [lo, hi) aggiungendo alla neighbours list di "c"
+	 * le città candidate; un sottoalbero viene scartato se il piano di
+	 * suddivisione e' piu' lontano della città piu' lontana della lista
+	 * (quando la lista e' piena).
+	 */
+	private void nearest(City c, int lo, int hi) {
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				offer(c, count);
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double diff = splitX[mid] ? c.x - px[mid] : c.y - py[mid];
+		if (diff < 0) {
+			nearest(c, lo, mid);
+			offer(c, mid);
+			if (!isFull(c) || (diff * diff <= c.farthestDist * c.farthestDist))
+				nearest(c, mid + 1, hi);
+		} else {
+			nearest(c, mid + 1, hi);
+			offer(c, mid);
+			if (!isFull(c) || (diff * diff <= c.farthestDist * c.farthestDist))
+				nearest(c, lo, mid);
+		}
+	}
+
+	/**
+	 * Restituisce la città dell'albero piu' vicina al punto (x, y), oppure
+	 * null se l'albero e' vuoto. Usa i campi "found" e "foundDist", per cui
+	 * lo stesso albero non puo' essere interrogato da piu' thread insieme.
+	 */
+	public final City nearest(double x, double y) {
+		found = null;
+		foundDist = Double.POSITIVE_INFINITY;
+		for (int count = 0; count < totExtra; count++) {
+			City other = extra[count];
+			double d = (other.x - x) * (other.x - x) + (other.y - y) * (other.y - y);
+			if (d < foundDist) {
+				found = other;
+				foundDist = d;
+			}
+		}
+		nearest(x, y, 0, size);
+		return found;
+	}
+
+	/**
+	 * Visita il sottoalbero [lo, hi) per nearest(x, y), scartando le metà
+	 * il cui piano di suddivisione e' piu' lontano della città trovata.
+	 */
+	private void nearest(double x, double y, int lo, int hi) {
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				offer(x, y, count);
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double diff = splitX[mid] ? x - px[mid] : y - py[mid];
+		if (diff < 0) {
+			nearest(x, y, lo, mid);
+			offer(x, y, mid);
+			if (diff * diff < foundDist)
+				nearest(x, y, mid + 1, hi);
+		} else {
+			nearest(x, y, mid + 1, hi);
+			offer(x, y, mid);
+			if (diff * diff < foundDist)
+				nearest(x, y, lo, mid);
+		}
+	}
+
+	/**
+	 * Sostituisce la città trovata da nearest(x, y) con quella di posizione
+	 * "pos", se e' presente e piu' vicina.
+	 */
+	private void offer(double x, double y, int pos) {
+		if (removed[pos])
+			return;
+		double dx = x - px[pos];
+		double dy = y - py[pos];
+		double d = dx * dx + dy * dy;
+		if (d < foundDist) {
+			found = nodes[pos];
+			foundDist = d;
+		}
+	}
+
+	/**
+	 * Propone alla neighbours list di "c" la città di posizione "pos".
+	 */
+	private void offer(City c, int pos) {
+		City other = nodes[pos];
+		if ((other != c) && !removed[pos]) {
+			double dx = c.x - px[pos];
+			double dy = c.y - py[pos];
+			c.addNeighbour(other.num, Math.sqrt(dx * dx + dy * dy));
+		}
+	}
+
+	/**
+	 * Ricalcola la neighbours list della città "c" con le "k" città piu'
+	 * vicine in ciascuno dei quattro quadranti centrati su "c" (le città
+	 * coincidenti con "c" appartengono al primo quadrante). La lista e'
+	 * ordinata per distanza crescente e contiene al piu' 4 * k città.
+	 */
+	public final void quadrantNearest(City c, int k) {
+		int[][] ids = new int[4][k];
+		double[][] dists = new double[4][k];
+		int[] sizes = new int[4];
+		for (int count = 0; count < totExtra; count++)
+			offerQuadrant(c, k, extra[count], extra[count].x, extra[count].y, ids, dists, sizes);
+		quadrantNearest(c, k, 0, size, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ids, dists, sizes);
+		c.clearNeighbours();
+		for (int q = 0; q < 4; q++)
+			for (int count = 0; count < sizes[q]; count++)
+				c.addCandidate(ids[q][count], dists[q][count]);
+	}
+
+	/**
+	 * Visita il sottoalbero [lo, hi), contenuto nel rettangolo [minX, maxX] x
+	 * [minY, maxY], aggiornando le liste dei quattro quadranti. Il sottoalbero
+	 * viene scartato se, per ogni quadrante che interseca il rettangolo, la
+	 * lista e' piena e il rettangolo e' piu' lontano della città piu' lontana
+	 * della lista.
+	 */
+	private void quadrantNearest(City c, int k, int lo, int hi, double minX, double maxX,
+			double minY, double maxY, int[][] ids, double[][] dists, int[] sizes) {
+		double dx = (c.x < minX) ? minX - c.x : ((c.x > maxX) ? c.x - maxX : 0);
+		double dy = (c.y < minY) ? minY - c.y : ((c.y > maxY) ? c.y - maxY : 0);
+		double boxDist = dx * dx + dy * dy;
+		boolean visit = false;
+		for (int q = 0; (q < 4) && !visit; q++) {
+			boolean right = (q & 1) == 0;
+			boolean up = (q & 2) == 0;
+			if ((right ? maxX >= c.x : minX < c.x) && (up ? maxY >= c.y : minY < c.y))
+				visit = (sizes[q] < k) || (boxDist <= dists[q][k - 1] * dists[q][k - 1]);
+		}
+		if (!visit)
+			return;
+		if (hi - lo <= BUCKET_SIZE) {
+			for (int count = lo; count < hi; count++)
+				if (!removed[count])
+					offerQuadrant(c, k, nodes[count], px[count], py[count], ids, dists, sizes);
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (!removed[mid])
+			offerQuadrant(c, k, nodes[mid], px[mid], py[mid], ids, dists, sizes);
+		if (splitX[mid]) {
+			quadrantNearest(c, k, lo, mid, minX, px[mid], minY, maxY, ids, dists, sizes);
+			quadrantNearest(c, k, mid + 1, hi, px[mid], maxX, minY, maxY, ids, dists, sizes);
+		} else {
+			quadrantNearest(c, k, lo, mid, minX, maxX, minY, py[mid], ids, dists, sizes);
+			quadrantNearest(c, k, mid + 1, hi, minX, maxX, py[mid], maxY, ids, dists, sizes);
+		}
+	}
+
+	/**
+	 * Propone la città "other" (con coordinate ox, oy) alla lista del
+	 * quadrante di "c" in cui si trova (ordinata per distanza e, a parita',
+	 * per indice).
+	 */
+	private static void offerQuadrant(City c, int k, City other, double ox, double oy, int[][] ids, double[][] dists, int[] sizes) {
+		if (other == c)
+			return;
+		double dx = ox - c.x;
+		double dy = oy - c.y;
+		int q = ((dx >= 0) ? 0 : 1) + ((dy >= 0) ? 0 : 2);
+		double d = Math.sqrt(dx * dx + dy * dy);
+		int[] qIds = ids[q];
+		double[] qDists = dists[q];
+		int count = sizes[q];
+		if ((count == k) && ((d > qDists[k - 1]) || ((d == qDists[k - 1]) && (other.num > qIds[k - 1]))))
+			return;
+		if (count < k)
+			sizes[q]++;
+		else
+			count--;
+		while ((count > 0) && ((qDists[count - 1] > d) || ((qDists[count - 1] == d) && (qIds[count - 1] > other.num)))) {
+			qIds[count] = qIds[count - 1];
+			qDists[count] = qDists[count - 1];
+			count--;
+		}
+		qIds[count] = other.num;
+		qDists[count] = d;
+	}
+
+	/**
+	 * Verifica se la neighbours list di "c" e' piena.
+	 */
+	private static boolean isFull(City c) {
+		return c.neighboursSize == City.NEIGHBOURS_LIST_SIZE;
+	}
+}
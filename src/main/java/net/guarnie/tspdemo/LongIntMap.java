@@ -0,0 +1,138 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Arrays;
+
+/**
+ * Tabella hash da chiavi long a valori int, su vettori di tipi primitivi
+ * (indirizzamento aperto con scansione lineare), per le euristiche che
+ * associano un valore agli archi (vedi edgeKey()) o ai circuiti: non alloca
+ * oggetti per le chiavi e non contiene puntatori da seguire.
+ *
+ * La chiave Long.MIN_VALUE indica una posizione libera e non puo' essere
+ * usata.
+ */
+public class LongIntMap {
+	/**
+	 * Chiave delle posizioni libere.
+	 */
+	private final static long EMPTY = Long.MIN_VALUE;
+
+	/**
+	 * Chiavi e valori (la dimensione e' una potenza di 2).
+	 */
+	private long[] keys;
+	private int[] values;
+
+	/**
+	 * Numero di chiavi presenti.
+	 */
+	private int size;
+
+	/**
+	 * Costruttore della classe: tabella vuota che puo' contenere "expected"
+	 * chiavi senza essere ingrandita.
+	 */
+	public LongIntMap(int expected) {
+		int capacity = 16;
+		while (capacity < 2 * expected)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Chiave dell'arco (a, b), indipendente dal verso.
+	 */
+	public final static long edgeKey(int a, int b) {
+		return (a < b) ? ((long) a << 32) | b : ((long) b << 32) | a;
+	}
+
+	/**
+	 * Funzione di mescolamento dei bit (finalizzatore di "splitmix64"):
+	 * trasforma chiavi vicine in valori indipendenti e uniformi.
+	 */
+	public final static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+		x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+		return x ^ (x >>> 31);
+	}
+
+	/**
+	 * Restituisce il valore associato a "key", oppure "def" se la chiave non
+	 * c'e'.
+	 */
+	public final int get(long key, int def) {
+		final int MASK = keys.length - 1;
+		for (int pos = (int) mix(key) & MASK; keys[pos] != EMPTY; pos = (pos + 1) & MASK)
+			if (keys[pos] == key)
+				return values[pos];
+		return def;
+	}
+
+	/**
+	 * Associa "value" a "key".
+	 */
+	public final void put(long key, int value) {
+		final int MASK = keys.length - 1;
+		int pos = (int) mix(key) & MASK;
+		for (; keys[pos] != EMPTY; pos = (pos + 1) & MASK)
+			if (keys[pos] == key) {
+				values[pos] = value;
+				return;
+			}
+		keys[pos] = key;
+		values[pos] = value;
+		if (++size * 2 > keys.length)
+			rehash(keys.length * 2, Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Restituisce il numero di chiavi presenti.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * Toglie le chiavi con valore minore di "min" (ad esempio quelle scadute,
+	 * se i valori sono numeri di iterazione).
+	 */
+	public final void purge(int min) {
+		rehash(keys.length, min);
+	}
+
+	/**
+	 * Alloca vettori vuoti con "capacity" posizioni.
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Ricostruisce la tabella con "capacity" posizioni, tenendo solo le
+	 * chiavi con valore almeno uguale a "min".
+	 */
+	private void rehash(int capacity, int min) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int pos = 0; pos < oldKeys.length; pos++)
+			if ((oldKeys[pos] != EMPTY) && (oldValues[pos] >= min))
+				put(oldKeys[pos], oldValues[pos]);
+	}
+}
@@ -0,0 +1,319 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Triangolo inferiore delle distanze esplicite memorizzato in un file mappato
+ * in memoria (fuori dallo heap), per le istanze che non entrano nello heap
+ * neanche in forma compatta. Le pagine vengono gestite dalla cache del
+ * sistema operativo e non dal garbage collector.
+ *
+ * Il file viene costruito una sola volta a partire da EDGE_WEIGHT_SECTION
+ * (con estensione ".part" finche' non e' completo) e viene riutilizzato nei
+ * caricamenti successivi della stessa istanza. La data di modifica dei file
+ * della cache indica il loro ultimo utilizzo: prima di costruire un nuovo
+ * file vengono eliminati i file ".part" rimasti da caricamenti interrotti
+ * (non modificati da PART_STALE_MILLIS) e quelli usati meno di recente,
+ * finche' la cache non supera CACHE_MAX_BYTES.
+ */
+public final class MappedDistance extends PackedDistance {
+	/**
+	 * Identificativo del formato del file ("TSPDIST1").
+	 */
+	private final static long MAGIC = 0x5453504449535431L;
+
+	/**
+	 * Dimensione dell'intestazione del file (in byte).
+	 */
+	private final static int HEADER_SIZE = 64;
+
+	/**
+	 * Dimensione (in byte) di ciascuna porzione mappata del file.
+	 */
+	private final static int CHUNK_SHIFT = 30;
+
+	/**
+	 * Spazio massimo (in byte) occupato dai file della cache.
+	 */
+	private final static long CACHE_MAX_BYTES = 8L << 30;
+
+	/**
+	 * Tempo (in millisecondi) dopo il quale un file in costruzione non
+	 * modificato e' considerato abbandonato: le scritture nella mappatura
+	 * ne aggiornano la data di modifica, per cui quello di un caricamento
+	 * ancora in corso (anche di un'altra istanza del programma) e' recente.
+	 */
+	private final static long PART_STALE_MILLIS = 60L * 60 * 1000;
+
+	/**
+	 * File definitivo e file in costruzione (null se il file e' completo).
+	 */
+	private final File file;
+	private File partFile;
+
+	/**
+	 * Impronta dell'istanza e dimensione in byte di ciascun elemento
+	 * (4 = float, 8 = double).
+	 */
+	private final long fingerprint;
+	private final int width;
+
+	/**
+	 * Porzioni mappate del file, ciascuna di 2^CHUNK_SHIFT byte.
+	 */
+	private final MappedByteBuffer[] chunks;
+	private final int elemShift, elemMask, widthShift;
+
+	/**
+	 * Costruttore della classe: mappa "mapFile" (gia' dimensionato).
+	 */
+	private MappedDistance(File file, File mapFile, long fingerprint, int dimension, int width, boolean readOnly) throws IOException {
+		super(dimension);
+		this.file = file;
+		this.partFile = readOnly ? null : mapFile;
+		this.fingerprint = fingerprint;
+		this.width = width;
+		widthShift = (width == 8) ? 3 : 2;
+		elemShift = CHUNK_SHIFT - widthShift;
+		elemMask = (1 << elemShift) - 1;
+
+		long bytes = size(dimension) << widthShift;
+		int totChunks = (int) ((bytes + (1L << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT);
+		chunks = new MappedByteBuffer[totChunks];
+		RandomAccessFile raf = new RandomAccessFile(mapFile, readOnly ? "r" : "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+			for (int count = 0; count < totChunks; count++) {
+				long offset = (long) count << CHUNK_SHIFT;
+				long length = Math.min(1L << CHUNK_SHIFT, bytes - offset);
+				chunks[count] = channel.map(mode, HEADER_SIZE + offset, length);
+			}
+		} finally {
+			//
+			// La mappatura resta valida anche dopo la chiusura del file.
+			//
+			raf.close();
+		}
+	}
+
+	/**
+	 * Calcola l'impronta (FNV-1a a 64 bit) della stringa che identifica
+	 * un'istanza.
+	 */
+	public static long fingerprint(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int count = 0; count < key.length(); count++) {
+			hash ^= key.charAt(count);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Restituisce il file della cache associato all'istanza "name" con
+	 * impronta "fingerprint".
+	 */
+	public static File cacheFile(String name, long fingerprint) {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "tspdemo");
+		dir.mkdirs();
+		String safeName = name.replaceAll("[^A-Za-z0-9._-]", "_");
+		return new File(dir, safeName + "-" + Long.toHexString(fingerprint) + ".dist");
+	}
+
+	/**
+	 * Apre il file "file" costruito in un caricamento precedente. Restituisce
+	 * null se il file non esiste o non corrisponde all'istanza.
+	 */
+	public static MappedDistance open(File file, long fingerprint, int dimension) {
+		if (!file.isFile())
+			return null;
+		try {
+			int width;
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				if (raf.readLong() != MAGIC || raf.readLong() != fingerprint || raf.readInt() != dimension)
+					return null;
+				width = raf.readInt();
+				if ((width != 4 && width != 8) || raf.length() != HEADER_SIZE + size(dimension) * width)
+					return null;
+			} finally {
+				raf.close();
+			}
+			MappedDistance result = new MappedDistance(file, file, fingerprint, dimension, width, true);
+			file.setLastModified(System.currentTimeMillis());
+			return result;
+		} catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Crea il file (inizialmente a 32 bit) per un'istanza di dimensione
+	 * "dimension"; diventa riutilizzabile solo dopo la chiamata a complete().
+	 */
+	public static MappedDistance create(File file, long fingerprint, int dimension) throws IOException {
+		evict(file.getParentFile(), HEADER_SIZE + size(dimension) * 4);
+		return create(file, fingerprint, dimension, 4);
+	}
+
+	/**
+	 * Fa posto nella cartella della cache "dir" per un file di "needed"
+	 * byte: elimina i file in costruzione rimasti da caricamenti interrotti
+	 * e i file completi piu' vecchi di quelli che, dal piu' recente,
+	 * stanno in CACHE_MAX_BYTES insieme al nuovo. I file in costruzione
+	 * recenti occupano spazio ma non vengono eliminati.
+	 */
+	private static void evict(File dir, long needed) {
+		File[] files = (dir == null) ? null : dir.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				return Long.compare(f2.lastModified(), f1.lastModified());
+			}
+		});
+		final long STALE = System.currentTimeMillis() - PART_STALE_MILLIS;
+		long used = needed;
+		for (File f : files) {
+			String name = f.getName();
+			if (name.endsWith(".part4") || name.endsWith(".part8")) {
+				if (f.lastModified() < STALE)
+					f.delete();
+				else
+					used += f.length();
+			} else if (name.endsWith(".dist")) {
+				used += f.length();
+				if (used > CACHE_MAX_BYTES)
+					f.delete();
+			}
+		}
+	}
+
+	/**
+	 * Crea e dimensiona il file in costruzione, scrivendone l'intestazione.
+	 */
+	private static MappedDistance create(File file, long fingerprint, int dimension, int width) throws IOException {
+		File mapFile = new File(file.getPath() + ".part" + width);
+		RandomAccessFile raf = new RandomAccessFile(mapFile, "rw");
+		try {
+			raf.setLength(HEADER_SIZE + size(dimension) * width);
+			raf.writeLong(MAGIC);
+			raf.writeLong(fingerprint);
+			raf.writeInt(dimension);
+			raf.writeInt(width);
+		} finally {
+			raf.close();
+		}
+		return new MappedDistance(file, mapFile, fingerprint, dimension, width, false);
+	}
+
+	/**
+	 * Restituisce la distanza tra i nodi di indice i e j.
+	 */
+	public final double dist(int i, int j) {
+		if (i == j)
+			return 0;
+		long pos = index(i, j);
+		MappedByteBuffer chunk = chunks[(int) (pos >>> elemShift)];
+		int offset = ((int) pos & elemMask) << widthShift;
+		return (width == 4) ? chunk.getFloat(offset) : chunk.getDouble(offset);
+	}
+
+	/**
+	 * Memorizza la distanza tra i nodi di indice i e j.
+	 */
+	public final boolean set(int i, int j, double d) {
+		if (width == 4 && (float) d != d)
+			return false;
+		if (i != j) {
+			long pos = index(i, j);
+			MappedByteBuffer chunk = chunks[(int) (pos >>> elemShift)];
+			int offset = ((int) pos & elemMask) << widthShift;
+			if (width == 4)
+				chunk.putFloat(offset, (float) d);
+			else
+				chunk.putDouble(offset, d);
+		}
+		return true;
+	}
+
+	/**
+	 * Converte il file in costruzione a 64 bit (il file a 32 bit viene
+	 * eliminato).
+	 */
+	public final PackedDistance toDouble() {
+		if (width == 8)
+			return this;
+		try {
+			MappedDistance result = create(file, fingerprint, dim, 8);
+			long tot = size(dim);
+			for (long pos = 0; pos < tot; pos++) {
+				MappedByteBuffer chunk = chunks[(int) (pos >>> elemShift)];
+				int offset = ((int) pos & elemMask) << 2;
+				result.putDouble(pos, chunk.getFloat(offset));
+			}
+			discard();
+			return result;
+		} catch (IOException ioe) {
+			throw new IllegalArgumentException("Can't create distance file " + file.getName() + ".");
+		}
+	}
+
+	/**
+	 * Memorizza il valore "d" alla posizione "pos" (solo per i file a 64 bit).
+	 */
+	private void putDouble(long pos, double d) {
+		chunks[(int) (pos >>> elemShift)].putDouble(((int) pos & elemMask) << 3, d);
+	}
+
+	/**
+	 * Rende il file riutilizzabile nei caricamenti successivi.
+	 */
+	final void complete() {
+		if (partFile == null)
+			return;
+		for (int count = 0; count < chunks.length; count++)
+			chunks[count].force();
+		try {
+			Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ioe) {
+			//
+			// Il file resta utilizzabile per l'istanza corrente
+			// ma non verra' riutilizzato.
+			//
+		}
+		partFile = null;
+	}
+
+	/**
+	 * Elimina il file se non e' stato completato.
+	 */
+	final void discard() {
+		if (partFile != null) {
+			partFile.delete();
+			partFile = null;
+		}
+	}
+}
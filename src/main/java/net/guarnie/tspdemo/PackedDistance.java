@@ -0,0 +1,200 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Distanze esplicite (EDGE_WEIGHT_TYPE : EXPLICIT) memorizzate sfruttando la
+ * simmetria della matrice: viene conservato solo il triangolo inferiore
+ * (senza la diagonale, che e' sempre nulla) in un unico vettore.
+ *
+ * L'elemento (i, j) con i > j si trova alla posizione i * (i - 1) / 2 + j.
+ */
+public abstract class PackedDistance implements DistanceStore {
+	/**
+	 * Massimo numero di elementi di un vettore Java.
+	 */
+	final static long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Dimensione dell'istanza.
+	 */
+	protected final int dim;
+
+	/**
+	 * Costruttore della classe.
+	 */
+	protected PackedDistance(int dimension) {
+		dim = dimension;
+	}
+
+	/**
+	 * Crea la rappresentazione compatta (inizialmente a 32 bit) per
+	 * un'istanza di dimensione "dimension".
+	 */
+	public static PackedDistance create(int dimension) {
+		if (size(dimension) > MAX_ARRAY_SIZE)
+			throw new IllegalArgumentException("Instance too large.");
+		return new PackedFloatDistance(dimension);
+	}
+
+	/**
+	 * Verifica se la rappresentazione compatta a 32 bit per un'istanza di
+	 * dimensione "dimension" puo' essere allocata nello heap (lasciando spazio
+	 * per l'eventuale conversione a 64 bit); in caso contrario si usa
+	 * MappedDistance.
+	 */
+	public static boolean fitsInHeap(int dimension) {
+		Runtime runtime = Runtime.getRuntime();
+		long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long tot = size(dimension);
+		return (tot <= MAX_ARRAY_SIZE) && (tot * 12 < available);
+	}
+
+	/**
+	 * Numero di elementi del triangolo inferiore per un'istanza di dimensione
+	 * "dimension".
+	 */
+	final static long size(int dimension) {
+		return ((long) dimension * (dimension - 1)) >> 1;
+	}
+
+	/**
+	 * Posizione nel vettore dell'elemento (i, j), con i diverso da j.
+	 */
+	final static long index(int i, int j) {
+		return (i > j) ? ((((long) i * (i - 1)) >> 1) + j) : ((((long) j * (j - 1)) >> 1) + i);
+	}
+
+	/**
+	 * Restituisce la dimensione dell'istanza.
+	 */
+	public final int getDimension() {
+		return dim;
+	}
+
+	/**
+	 * Memorizza la distanza tra i nodi di indice i e j (gli elementi della
+	 * diagonale vengono ignorati). Restituisce false se il valore non puo'
+	 * essere rappresentato esattamente, in tal caso non viene memorizzato.
+	 */
+	public abstract boolean set(int i, int j, double d);
+
+	/**
+	 * Restituisce una copia delle distanze a 64 bit (se le distanze sono gia'
+	 * a 64 bit restituisce se stessa).
+	 */
+	public abstract PackedDistance toDouble();
+
+	/**
+	 * Chiamato al termine della lettura delle distanze (le rappresentazioni
+	 * nello heap non devono fare nulla).
+	 */
+	void complete() {
+	}
+
+	/**
+	 * Chiamato se la lettura delle distanze non va a buon fine.
+	 */
+	void discard() {
+	}
+}
+
+/**
+ * Triangolo inferiore a 32 bit: i valori interi (come quelli della TSPLIB)
+ * fino a 2^24 sono rappresentati esattamente.
+ */
+final class PackedFloatDistance extends PackedDistance {
+	/**
+	 * Triangolo inferiore della matrice delle distanze.
+	 */
+	private final float[] weights;
+
+	/**
+	 * Costruttore della classe.
+	 */
+	PackedFloatDistance(int dimension) {
+		super(dimension);
+		weights = new float[(int) size(dimension)];
+	}
+
+	/**
+	 * Restituisce la distanza tra i nodi di indice i e j.
+	 */
+	public final double dist(int i, int j) {
+		return (i == j) ? 0 : weights[(int) index(i, j)];
+	}
+
+	/**
+	 * Memorizza la distanza tra i nodi di indice i e j.
+	 */
+	public final boolean set(int i, int j, double d) {
+		if ((float) d != d)
+			return false;
+		if (i != j)
+			weights[(int) index(i, j)] = (float) d;
+		return true;
+	}
+
+	/**
+	 * Converte le distanze a 64 bit.
+	 */
+	public final PackedDistance toDouble() {
+		PackedDoubleDistance result = new PackedDoubleDistance(dim);
+		for (int count = 0; count < weights.length; count++)
+			result.weights[count] = weights[count];
+		return result;
+	}
+}
+
+/**
+ * Triangolo inferiore a 64 bit, usato quando le distanze non sono
+ * rappresentabili esattamente a 32 bit.
+ */
+final class PackedDoubleDistance extends PackedDistance {
+	/**
+	 * Triangolo inferiore della matrice delle distanze.
+	 */
+	final double[] weights;
+
+	/**
+	 * Costruttore della classe.
+	 */
+	PackedDoubleDistance(int dimension) {
+		super(dimension);
+		weights = new double[(int) size(dimension)];
+	}
+
+	/**
+	 * Restituisce la distanza tra i nodi di indice i e j.
+	 */
+	public final double dist(int i, int j) {
+		return (i == j) ? 0 : weights[(int) index(i, j)];
+	}
+
+	/**
+	 * Memorizza la distanza tra i nodi di indice i e j.
+	 */
+	public final boolean set(int i, int j, double d) {
+		if (i != j)
+			weights[(int) index(i, j)] = d;
+		return true;
+	}
+
+	/**
+	 * Le distanze sono gia' a 64 bit.
+	 */
+	public final PackedDistance toDouble() {
+		return this;
+	}
+}
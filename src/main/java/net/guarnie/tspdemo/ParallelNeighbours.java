@@ -0,0 +1,103 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Esegue in parallelo (fork/join) un'operazione su tutte le città, ad
+ * esempio il calcolo delle neighbours list. L'intervallo delle città viene
+ * diviso a meta' finche' non e' abbastanza piccolo; l'operazione deve
+ * modificare solo la città che riceve e leggere dati condivisi che non
+ * cambiano, in modo che il risultato non dipenda dall'ordine di esecuzione.
+ *
+ * L'avanzamento viene segnalato alla barra di stato solo ogni 1/PROGRESS_STEPS
+ * del totale.
+ */
+public class ParallelNeighbours extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Operazione da eseguire su ciascuna città.
+	 */
+	interface Action {
+		void compute(City c);
+	}
+
+	/**
+	 * Numero massimo di città elaborate sequenzialmente da un singolo task.
+	 */
+	private final static int CHUNK_SIZE = 128;
+
+	/**
+	 * Numero di aggiornamenti della barra di avanzamento.
+	 */
+	private final static int PROGRESS_STEPS = 50;
+
+	private final City[] cities;
+	private final int lo, hi, tot;
+	private final Action action;
+	private final TspFrame tspFrame;
+
+	/**
+	 * Città gia' elaborate (condiviso da tutti i task).
+	 */
+	private final AtomicInteger done;
+
+	/**
+	 * Costruttore della classe: task per le città dell'intervallo [lo, hi).
+	 */
+	private ParallelNeighbours(City[] cities, int lo, int hi, int tot, Action action, TspFrame tspFrame, AtomicInteger done) {
+		this.cities = cities;
+		this.lo = lo;
+		this.hi = hi;
+		this.tot = tot;
+		this.action = action;
+		this.tspFrame = tspFrame;
+		this.done = done;
+	}
+
+	/**
+	 * Esegue "action" sulle prime "tot" città del vettore "cities" e attende
+	 * la fine dell'elaborazione (tspFrame puo' essere null se non si vuole
+	 * visualizzare l'avanzamento).
+	 */
+	public static void forEach(City[] cities, int tot, Action action, TspFrame tspFrame) {
+		if (tot > 0)
+			ForkJoinPool.commonPool().invoke(new ParallelNeighbours(cities, 0, tot, tot, action, tspFrame, new AtomicInteger()));
+	}
+
+	/**
+	 * Elabora l'intervallo di città del task (dividendolo se e' troppo
+	 * grande).
+	 */
+	protected void compute() {
+		if (hi - lo <= CHUNK_SIZE) {
+			for (int count = lo; count < hi; count++)
+				action.compute(cities[count]);
+			if (tspFrame != null) {
+				long before = done.getAndAdd(hi - lo);
+				long after = before + hi - lo;
+				if ((before * PROGRESS_STEPS) / tot != (after * PROGRESS_STEPS) / tot)
+					tspFrame.statusArea.setProgress((int) ((after * 100) / tot));
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		invokeAll(new ParallelNeighbours(cities, lo, mid, tot, action, tspFrame, done),
+				new ParallelNeighbours(cities, mid, hi, tot, action, tspFrame, done));
+	}
+}
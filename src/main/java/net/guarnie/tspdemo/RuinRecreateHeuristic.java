@@ -0,0 +1,400 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Random;
+
+/**
+ * Large neighbourhood search "ruin and recreate" (vedi: G. Schrimpf, J.
+ * Schneider, H. Stamm-Wilbrandt, G. Dueck, "Record Breaking Optimization
+ * Results Using the Ruin and Recreate Principle", 2000) a partire dal
+ * circuito corrente.
+ *
+ * Ad ogni iterazione si tolgono dal circuito da MIN_RUIN a MAX_RUIN città
+ * (al massimo un quarto del totale) vicine tra loro, visitando le neighbours
+ * list a partire da una città casuale, e le si reinseriscono una alla
+ * volta, in ordine casuale, nella posizione che costa meno (come nel
+ * "cheapest insertion", vedi ConstructionHeuristic.insertionCost()) tra gli
+ * archi incidenti nei loro vicini. Il nuovo circuito viene accettato se non
+ * e' piu' lungo del precedente di una soglia che decresce linearmente fino a
+ * zero nel tempo massimo ("threshold accepting", vedi: G. Dueck, T.
+ * Scheuer, 1990), altrimenti le operazioni vengono annullate.
+ *
+ * Il circuito di lavoro e' una lista doppiamente concatenata (vettori dei
+ * successori e dei predecessori), per cui un'iterazione costa O(k), con k
+ * città tolte, indipendentemente dal numero di città dell'istanza. Anche il
+ * circuito migliore e' una lista, aggiornata con il registro delle
+ * modifiche fatte dopo il migliore precedente (vedi saveLog()), e viene
+ * ricopiato nel circuito corrente solo quando viene visualizzato.
+ */
+public class RuinRecreateHeuristic extends Heuristic {
+
+	/**
+	 * Codice di riconoscimento dell'algoritmo.
+	 */
+	final static int RUIN_RECREATE = 17;
+
+	/**
+	 * Numero minimo e massimo di città tolte ad ogni iterazione.
+	 */
+	private final static int MIN_RUIN = 5;
+	private final static int MAX_RUIN = 30;
+
+	/**
+	 * Soglia iniziale di accettazione, in rapporto alla lunghezza media di
+	 * un arco del circuito di partenza.
+	 */
+	private final static double START_THRESHOLD = 5.0;
+
+	/**
+	 * Circuito di lavoro (successore e predecessore di ogni città) e sua
+	 * lunghezza.
+	 */
+	int[] succ, pred;
+	double length;
+
+	/**
+	 * Città tolte dal circuito (e loro predecessore al momento della
+	 * rimozione), nell'ordine in cui sono state tolte.
+	 */
+	private final int[] ruined = new int[MAX_RUIN];
+	private final int[] ruinedPred = new int[MAX_RUIN];
+	private int ruinTot;
+
+	/**
+	 * Lunghezza del circuito e dimensione del registro all'inizio
+	 * dell'iterazione, ripristinate da undo().
+	 */
+	private double undoLength;
+	private int undoLogSize;
+
+	/**
+	 * Città ancora da reinserire e città reinserite (nell'ordine di
+	 * inserimento).
+	 */
+	private final int[] pending = new int[MAX_RUIN];
+	private final int[] inserted = new int[MAX_RUIN];
+
+	/**
+	 * Città fuori dal circuito.
+	 */
+	private boolean[] out;
+
+	/**
+	 * Circuito migliore trovato (successore e predecessore di ogni città).
+	 */
+	int[] bestSucc, bestPred;
+
+	/**
+	 * Registro delle modifiche del circuito di lavoro successive al circuito
+	 * migliore: coppie (c, -1) per una città tolta e (c, a) per una città
+	 * inserita dopo "a". Se si riempie (piu' di 2n modifiche) non viene piu'
+	 * aggiornato e il circuito migliore verra' ricopiato per intero.
+	 */
+	private int[] log;
+	private int logSize;
+	private boolean logFull;
+
+	/**
+	 * Vettore per ricopiare il circuito migliore nel circuito corrente.
+	 */
+	private int[] order;
+
+	private final Random random = new Random();
+
+	/**
+	 * Costruttore della classe.
+	 */
+	public RuinRecreateHeuristic(TspFrame tFrame, int eID) {
+		super(tFrame, eID, -1, -1, -1, null);
+	}
+
+	/**
+	 * Ruin and recreate, per al massimo "timeLimit" millisecondi o finche'
+	 * il circuito non e' lungo al piu' "target". tourSize e il circuito
+	 * visualizzato cambiano solo quando si trova un nuovo circuito migliore.
+	 */
+	private void ruinRecreate(long timeLimit, double target) {
+		final long START = System.currentTimeMillis();
+		long now = START;
+		final int MAX_K = Math.min(MAX_RUIN, totCities / 4);
+		final int MIN_K = Math.min(MIN_RUIN, MAX_K);
+		boolean improved = false;
+		if (totCities < 8)
+			return;
+		order = tourOrder();
+		init(order, tourSize);
+		double bestSize = length;
+		final double START_T = START_THRESHOLD * length / totCities;
+		double threshold = START_T;
+		while ((bestSize > target) && (now - START < timeLimit) && !isStopped()) {
+			double old = length;
+			ruin(MIN_K + random.nextInt(MAX_K - MIN_K + 1));
+			recreate();
+			if (length < bestSize - MIN_GAIN) {
+				bestSize = length;
+				saveLog();
+				improved = true;
+			} else if (length >= old + threshold)
+				undo();
+			now = System.currentTimeMillis();
+			threshold = START_T * Math.max(0, 1 - (double) (now - START) / Math.max(1, timeLimit));
+			if (showProgress(START, timeLimit) && improved) {
+				improved = false;
+				saveBest(bestSize);
+				showTour();
+			}
+		}
+		if (improved)
+			saveBest(bestSize);
+	}
+
+	/**
+	 * Prepara il circuito di lavoro e quello migliore con l'ordine di visita
+	 * "order", lungo "len".
+	 */
+	void init(int[] order, double len) {
+		final int TOT = order.length;
+		succ = new int[TOT];
+		pred = new int[TOT];
+		out = new boolean[TOT];
+		for (int count = 0; count < TOT; count++) {
+			int c = order[count];
+			int n = order[(count + 1 < TOT) ? count + 1 : 0];
+			succ[c] = n;
+			pred[n] = c;
+		}
+		bestSucc = succ.clone();
+		bestPred = pred.clone();
+		log = new int[4 * TOT];
+		logSize = 0;
+		logFull = false;
+		length = len;
+	}
+
+	/**
+	 * Inizia un'iterazione togliendo dal circuito "k" città vicine tra loro,
+	 * visitando in ampiezza le neighbours list a partire da una città
+	 * casuale.
+	 */
+	void ruin(int k) {
+		undoLength = length;
+		undoLogSize = logSize;
+		ruinTot = 0;
+		int seed = random.nextInt(totCities);
+		remove(seed);
+		for (int count = 0; (count < ruinTot) && (ruinTot < k); count++) {
+			City c = citiesVector[ruined[count]];
+			for (int ind = 0; (ind < c.neighboursSize) && (ruinTot < k); ind++)
+				if (!out[c.neighbourIds[ind]])
+					remove(c.neighbourIds[ind]);
+		}
+	}
+
+	/**
+	 * Toglie la città "c" dal circuito.
+	 */
+	private void remove(int c) {
+		int p = pred[c], n = succ[c];
+		succ[p] = n;
+		pred[n] = p;
+		length -= ConstructionHeuristic.insertionCost(p, n, c);
+		out[c] = true;
+		ruined[ruinTot] = c;
+		ruinedPred[ruinTot++] = p;
+		addLog(c, -1);
+	}
+
+	/**
+	 * Reinserisce nel circuito le città tolte, in ordine casuale, ciascuna
+	 * nella posizione che costa meno tra gli archi incidenti nei suoi vicini.
+	 * Se i vicini sono tutti fuori dal circuito la città viene rimandata, e
+	 * se nessuna delle città rimaste ha vicini nel circuito si cerca la
+	 * posizione su tutto il circuito (O(n), ma succede raramente).
+	 */
+	void recreate() {
+		int tot = ruinTot;
+		System.arraycopy(ruined, 0, pending, 0, tot);
+		int insertedTot = 0;
+		int skipped = 0;
+		int ind = random.nextInt(tot);
+		while (tot > 0) {
+			int c = pending[ind];
+			int at = bestPosition(c, skipped >= tot);
+			if (at < 0) {
+				skipped++;
+				ind = (ind + 1 < tot) ? ind + 1 : 0;
+				continue;
+			}
+			insert(c, at);
+			inserted[insertedTot++] = c;
+			pending[ind] = pending[--tot];
+			skipped = 0;
+			if (tot > 0)
+				ind = random.nextInt(tot);
+		}
+	}
+
+	/**
+	 * Restituisce la città dopo la quale conviene inserire "c": cerca tra gli
+	 * archi incidenti nei vicini di "c" che sono nel circuito, oppure (se
+	 * "all" e' true) tra tutti gli archi del circuito. Restituisce -1 se non
+	 * ci sono vicini nel circuito e "all" e' false.
+	 */
+	private int bestPosition(int c, boolean all) {
+		double min = Double.POSITIVE_INFINITY;
+		int at = -1;
+		if (all) {
+			int start = 0;
+			while (out[start])
+				start++;
+			int a = start;
+			do {
+				double cost = ConstructionHeuristic.insertionCost(a, succ[a], c);
+				if (cost < min) {
+					min = cost;
+					at = a;
+				}
+				a = succ[a];
+			} while (a != start);
+			return at;
+		}
+		City city = citiesVector[c];
+		for (int ind = 0; ind < city.neighboursSize; ind++) {
+			int x = city.neighbourIds[ind];
+			if (out[x])
+				continue;
+			double cost = ConstructionHeuristic.insertionCost(x, succ[x], c);
+			if (cost < min) {
+				min = cost;
+				at = x;
+			}
+			cost = ConstructionHeuristic.insertionCost(pred[x], x, c);
+			if (cost < min) {
+				min = cost;
+				at = pred[x];
+			}
+		}
+		return at;
+	}
+
+	/**
+	 * Inserisce la città "c" dopo la città "a".
+	 */
+	private void insert(int c, int a) {
+		int n = succ[a];
+		length += ConstructionHeuristic.insertionCost(a, n, c);
+		succ[a] = c;
+		pred[c] = a;
+		succ[c] = n;
+		pred[n] = c;
+		out[c] = false;
+		addLog(c, a);
+	}
+
+	/**
+	 * Annulla l'ultima iterazione: toglie le città reinserite (in ordine
+	 * inverso) e rimette le città tolte dopo il loro predecessore originale
+	 * (anche queste in ordine inverso), ripristinando lunghezza e registro.
+	 */
+	void undo() {
+		for (int count = ruinTot - 1; count >= 0; count--) {
+			int c = inserted[count];
+			int p = pred[c], n = succ[c];
+			succ[p] = n;
+			pred[n] = p;
+		}
+		for (int count = ruinTot - 1; count >= 0; count--) {
+			int c = ruined[count];
+			int p = ruinedPred[count];
+			int n = succ[p];
+			succ[p] = c;
+			pred[c] = p;
+			succ[c] = n;
+			pred[n] = c;
+		}
+		length = undoLength;
+		if (!logFull)
+			logSize = undoLogSize;
+	}
+
+	/**
+	 * Registra la città "c" tolta dal circuito di lavoro (a = -1) o
+	 * inserita dopo la città "a".
+	 */
+	private void addLog(int c, int a) {
+		if (logFull)
+			return;
+		if (logSize + 2 > log.length) {
+			logFull = true;
+			return;
+		}
+		log[logSize++] = c;
+		log[logSize++] = a;
+	}
+
+	/**
+	 * Il circuito di lavoro e' il nuovo circuito migliore: gli applica le
+	 * modifiche registrate, in O(k) per ogni iterazione che le ha fatte
+	 * (oppure lo ricopia, se il registro e' pieno).
+	 */
+	void saveLog() {
+		if (logFull) {
+			System.arraycopy(succ, 0, bestSucc, 0, succ.length);
+			System.arraycopy(pred, 0, bestPred, 0, pred.length);
+			logFull = false;
+		} else for (int count = 0; count < logSize; count += 2) {
+			int c = log[count], a = log[count + 1];
+			if (a < 0) {
+				int p = bestPred[c], n = bestSucc[c];
+				bestSucc[p] = n;
+				bestPred[n] = p;
+			} else {
+				int n = bestSucc[a];
+				bestSucc[a] = c;
+				bestPred[c] = a;
+				bestSucc[c] = n;
+				bestPred[n] = c;
+			}
+		}
+		logSize = 0;
+	}
+
+	/**
+	 * Ricopia il circuito migliore, lungo "size", nel circuito corrente
+	 * (mantenendo la stessa prima città).
+	 */
+	private void saveBest(double size) {
+		int c = order[0];
+		for (int count = 0; count < order.length; count++) {
+			order[count] = c;
+			c = bestSucc[c];
+		}
+		setTour(size, order);
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		if (execID == RUIN_RECREATE)
+			ruinRecreate(Math.round(tspFrame.tspArea.getTimeLimit() * 1000), tspFrame.tspArea.getTargetLength());
+		endRun();
+	}
+}
@@ -0,0 +1,285 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Circuito memorizzato in uno splay tree con chiave implicita: la visita
+ * simmetrica dell'albero da' l'ordine delle città e ogni nodo conosce la
+ * dimensione del suo sottoalbero, per cui la posizione di una città si
+ * ottiene portandola alla radice. L'inversione di un cammino separa l'albero
+ * in tre parti, segna come invertita quella centrale (il bit viene propagato
+ * ai figli solo quando serve) e le riunisce.
+ *
+ * Tutte le operazioni costano O(log n) ammortizzato: per istanze molto grandi
+ * e' preferibile a TwoLevelTour, che richiede O(sqrt(n)) per ogni inversione
+ * ma ha successore e predecessore in tempo costante.
+ */
+public class SplayTour extends Tour {
+	/**
+	 * Numero di città.
+	 */
+	private final int n;
+
+	/**
+	 * Per ogni città: figli e padre nell'albero (-1 se non ci sono),
+	 * dimensione del sottoalbero e bit di inversione del sottoalbero.
+	 */
+	private final int[] left, right, parent, size;
+	private final boolean[] flip;
+
+	/**
+	 * Radice dell'albero.
+	 */
+	private int root;
+
+	/**
+	 * Vettore di appoggio per la propagazione dei bit di inversione.
+	 */
+	private final int[] path;
+
+	/**
+	 * Costruttore della classe: il circuito visita le città nell'ordine del
+	 * vettore "order" (che deve contenere tutti gli indici da 0 a
+	 * order.length - 1).
+	 */
+	public SplayTour(int[] order) {
+		n = order.length;
+		left = new int[n];
+		right = new int[n];
+		parent = new int[n];
+		size = new int[n];
+		flip = new boolean[n];
+		path = new int[n];
+		root = build(order, 0, n - 1, -1);
+	}
+
+	/**
+	 * Costruisce un albero bilanciato con le città order[lo..hi].
+	 */
+	private int build(int[] order, int lo, int hi, int dad) {
+		if (lo > hi)
+			return -1;
+		int mid = (lo + hi) >>> 1;
+		int x = order[mid];
+		parent[x] = dad;
+		left[x] = build(order, lo, mid - 1, x);
+		right[x] = build(order, mid + 1, hi, x);
+		update(x);
+		return x;
+	}
+
+	/**
+	 * Restituisce il numero di città del circuito.
+	 */
+	public final int size() {
+		return n;
+	}
+
+	/**
+	 * Dimensione del sottoalbero di "x" (0 se "x" non esiste).
+	 */
+	private int sizeOf(int x) {
+		return (x < 0) ? 0 : size[x];
+	}
+
+	/**
+	 * Ricalcola la dimensione del sottoalbero di "x".
+	 */
+	private void update(int x) {
+		size[x] = 1 + sizeOf(left[x]) + sizeOf(right[x]);
+	}
+
+	/**
+	 * Propaga ai figli il bit di inversione di "x".
+	 */
+	private void push(int x) {
+		if (!flip[x])
+			return;
+		int tmp = left[x];
+		left[x] = right[x];
+		right[x] = tmp;
+		if (left[x] >= 0)
+			flip[left[x]] = !flip[left[x]];
+		if (right[x] >= 0)
+			flip[right[x]] = !flip[right[x]];
+		flip[x] = false;
+	}
+
+	/**
+	 * Ruota "x" con il suo padre.
+	 */
+	private void rotate(int x) {
+		int p = parent[x];
+		int g = parent[p];
+		if (left[p] == x) {
+			left[p] = right[x];
+			if (right[x] >= 0)
+				parent[right[x]] = p;
+			right[x] = p;
+		} else {
+			right[p] = left[x];
+			if (left[x] >= 0)
+				parent[left[x]] = p;
+			left[x] = p;
+		}
+		parent[p] = x;
+		parent[x] = g;
+		if (g >= 0) {
+			if (left[g] == p)
+				left[g] = x;
+			else
+				right[g] = x;
+		}
+		update(p);
+		update(x);
+	}
+
+	/**
+	 * Porta "x" alla radice del suo albero, dopo aver propagato i bit di
+	 * inversione lungo il cammino dalla radice.
+	 */
+	private void splay(int x) {
+		int tot = 0;
+		for (int y = x; y >= 0; y = parent[y])
+			path[tot++] = y;
+		while (tot > 0)
+			push(path[--tot]);
+		while (parent[x] >= 0) {
+			int p = parent[x];
+			int g = parent[p];
+			if (g >= 0)
+				rotate(((left[g] == p) == (left[p] == x)) ? p : x);
+			rotate(x);
+		}
+	}
+
+	/**
+	 * Restituisce la posizione della città "c" nella visita simmetrica
+	 * (portandola alla radice).
+	 */
+	private int position(int c) {
+		splay(c);
+		root = c;
+		return sizeOf(left[c]);
+	}
+
+	/**
+	 * Restituisce la città nella posizione "k" dell'albero con radice "x",
+	 * portandola alla radice.
+	 */
+	private int select(int x, int k) {
+		while (true) {
+			push(x);
+			int s = sizeOf(left[x]);
+			if (k < s)
+				x = left[x];
+			else if (k > s) {
+				k -= s + 1;
+				x = right[x];
+			} else
+				break;
+		}
+		splay(x);
+		return x;
+	}
+
+	/**
+	 * Restituisce la città successiva alla città "c".
+	 */
+	public final int next(int c) {
+		int k = position(c) + 1;
+		root = select(root, (k < n) ? k : 0);
+		return root;
+	}
+
+	/**
+	 * Restituisce la città precedente alla città "c".
+	 */
+	public final int prev(int c) {
+		int k = position(c) - 1;
+		root = select(root, (k >= 0) ? k : n - 1);
+		return root;
+	}
+
+	/**
+	 * Verifica se la città "b" si trova sul cammino che va da "a" a "c".
+	 */
+	public final boolean between(int a, int b, int c) {
+		int pa = position(a);
+		int pb = position(b);
+		int pc = position(c);
+		if (pa <= pc)
+			return (pa <= pb) && (pb <= pc);
+		return (pa <= pb) || (pb <= pc);
+	}
+
+	/**
+	 * Inverte il cammino che va da "a" a "b": se il cammino passa per
+	 * l'ultima posizione dell'albero viene invertito il cammino
+	 * complementare e poi l'intero circuito.
+	 */
+	public final void reverse(int a, int b) {
+		int pa = position(a);
+		int pb = position(b);
+		if (pa <= pb)
+			reverseRange(pa, pb);
+		else {
+			if (pb + 1 <= pa - 1)
+				reverseRange(pb + 1, pa - 1);
+			flip[root] = !flip[root];
+		}
+	}
+
+	/**
+	 * Inverte le città dalla posizione "lo" alla posizione "hi".
+	 */
+	private void reverseRange(int lo, int hi) {
+		int mid = root;
+		int before = -1;
+		if (lo > 0) {
+			before = select(mid, lo - 1);
+			mid = right[before];
+			right[before] = -1;
+			parent[mid] = -1;
+			update(before);
+		}
+		int after = -1;
+		if (hi - lo + 1 < size[mid]) {
+			int last = select(mid, hi - lo);
+			after = right[last];
+			right[last] = -1;
+			parent[after] = -1;
+			update(last);
+			mid = last;
+		}
+		flip[mid] = !flip[mid];
+		root = join(join(before, mid), after);
+	}
+
+	/**
+	 * Unisce due alberi (tutte le città del primo precedono quelle del
+	 * secondo).
+	 */
+	private int join(int x, int y) {
+		if (x < 0)
+			return y;
+		if (y < 0)
+			return x;
+		x = select(x, size[x] - 1);
+		right[x] = y;
+		parent[y] = x;
+		update(x);
+		return x;
+	}
+}
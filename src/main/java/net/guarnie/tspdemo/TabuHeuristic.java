@@ -0,0 +1,386 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Random;
+
+/**
+ * Ricerca tabu (vedi: F. Glover, "Tabu Search - Part I", 1989) con mosse
+ * 2-Opt e Or-Opt a partire dal circuito corrente, dopo averlo portato in un
+ * ottimo locale (vedi ImprovementHeuristic.localOptimum()).
+ *
+ * Ad ogni iterazione si esegue la mossa migliore (anche se peggiorativa) tra
+ * quelle che partono da SAMPLE città casuali e dalle città toccate dalla
+ * mossa precedente, collegandole ai vicini delle neighbours list: il costo
+ * di un'iterazione non dipende dal numero di città. Gli archi tolti da una
+ * mossa non possono essere reinseriti per TENURE iterazioni, a meno che la
+ * mossa non porti ad un nuovo circuito migliore.
+ *
+ * Per evitare i cicli si ricordano i circuiti visitati (nelle ultime HISTORY
+ * iterazioni) con un hash alla Zobrist: lo XOR di un valore casuale per ogni
+ * arco del circuito, che una mossa aggiorna in O(1) con gli archi tolti e
+ * aggiunti. Archi tabu e circuiti visitati sono in tabelle hash di tipi
+ * primitivi (LongIntMap).
+ */
+public class TabuHeuristic extends Heuristic {
+
+	/**
+	 * Codice di riconoscimento dell'algoritmo.
+	 */
+	final static int TABU_SEARCH = 15;
+
+	/**
+	 * Numero di iterazioni in cui un arco tolto resta tabu.
+	 */
+	private final static int TENURE = 20;
+
+	/**
+	 * Numero di città casuali da cui partono le mosse di ogni iterazione.
+	 */
+	private final static int SAMPLE = 16;
+
+	/**
+	 * Numero di iterazioni in cui si ricorda un circuito visitato.
+	 */
+	private final static int HISTORY = 10000;
+
+	/**
+	 * Tipi di mossa.
+	 */
+	private final static int TWO_OPT = 0;
+	private final static int OR_OPT = 1;
+
+	/**
+	 * Circuito di lavoro, sua lunghezza e suo hash (vedi computeHash()).
+	 */
+	private Tour work;
+	double length;
+	long hash;
+
+	/**
+	 * Lunghezza del circuito migliore trovato.
+	 */
+	private double bestSize;
+
+	/**
+	 * Valore casuale da cui si ricavano quelli degli archi per l'hash.
+	 */
+	private final long zobristSeed;
+
+	/**
+	 * Iterazione fino alla quale un arco non puo' essere aggiunto, e ultima
+	 * iterazione in cui un circuito (indicato dal suo hash) e' stato
+	 * visitato.
+	 */
+	private final LongIntMap tabu = new LongIntMap(4 * TENURE);
+	private final LongIntMap visited = new LongIntMap(HISTORY);
+	private int iteration;
+
+	/**
+	 * Mossa migliore dell'iterazione: tipo, città coinvolte, variazione di
+	 * lunghezza e hash del circuito che si ottiene.
+	 */
+	private int moveType = -1;
+	private final int[] move = new int[7];
+	private double moveDelta;
+	private long moveHash;
+
+	/**
+	 * Città toccate dalla mossa precedente.
+	 */
+	private final int[] recent = new int[6];
+	private int recentTot;
+
+	private final Random random = new Random();
+
+	/**
+	 * Costruttore della classe.
+	 */
+	public TabuHeuristic(TspFrame tFrame, int eID) {
+		super(tFrame, eID, -1, -1, -1, null);
+		zobristSeed = random.nextLong();
+	}
+
+	/**
+	 * Ricerca tabu, per al massimo "timeLimit" millisecondi o finche' il
+	 * circuito non e' lungo al piu' "target". tourSize e il circuito
+	 * visualizzato cambiano solo quando si trova un nuovo circuito migliore.
+	 */
+	private void tabuSearch(long timeLimit, double target) {
+		final long START = System.currentTimeMillis();
+		boolean pending = false;
+		if (totCities < 8)
+			return;
+		setDeadline(START + timeLimit);
+		useTour(createTour());
+		try {
+			ActiveQueue queue = new ActiveQueue(totCities);
+			queue.pushTour(tour, startCity);
+			begin(tour, new ImprovementHeuristic(tspFrame, ImprovementHeuristic.TWO_CHANGE, this).localOptimum(tour, tourSize, queue));
+			tourSize = length;
+			syncTour();
+
+			while ((bestSize > target) && !isExpired()) {
+				if (choose()) {
+
+					//
+					// Prima di peggiorare il circuito, il migliore trovato
+					// viene ricopiato nel circuito corrente.
+					//
+					if (pending && (moveDelta >= 0)) {
+						pending = false;
+						tourSize = bestSize;
+						syncTour();
+					}
+					apply();
+					if (length < bestSize - MIN_GAIN) {
+						bestSize = length;
+						pending = true;
+					}
+				}
+				if (iteration % HISTORY == 0) {
+					tabu.purge(iteration);
+					visited.purge(iteration - HISTORY);
+				}
+				if (showProgress(START, timeLimit) && pending) {
+					pending = false;
+					tourSize = bestSize;
+					syncTour();
+					showTour();
+				}
+			}
+			if (pending) {
+				tourSize = bestSize;
+				syncTour();
+			}
+		} finally {
+			//
+			// Il circuito corrente contiene gia' il migliore: quello di
+			// lavoro viene abbandonato.
+			//
+			useTour(tourArray);
+		}
+	}
+
+	/**
+	 * Inizia la ricerca sul circuito "t", lungo "len".
+	 */
+	void begin(Tour t, double len) {
+		work = t;
+		length = len;
+		bestSize = len;
+		hash = computeHash();
+		visited.put(visitedKey(hash), iteration);
+	}
+
+	/**
+	 * Calcola da zero l'hash del circuito di lavoro: lo XOR dei valori
+	 * casuali dei suoi archi (la ricerca lo aggiorna mossa per mossa).
+	 */
+	long computeHash() {
+		long h = 0;
+		for (int c = 0; c < totCities; c++)
+			h ^= zobrist(c, work.next(c));
+		return h;
+	}
+
+	/**
+	 * Inizia una nuova iterazione e sceglie la mossa migliore tra quelle
+	 * che partono dalle città toccate dalla mossa precedente e da SAMPLE
+	 * città casuali: restituisce false se non ci sono mosse ammissibili.
+	 */
+	boolean choose() {
+		iteration++;
+		moveType = -1;
+		for (int count = 0; count < recentTot; count++)
+			evaluate(recent[count]);
+		for (int count = 0; count < SAMPLE; count++)
+			evaluate(random.nextInt(totCities));
+		return moveType >= 0;
+	}
+
+	/**
+	 * Valore casuale dell'arco (a, b) per l'hash del circuito.
+	 */
+	private long zobrist(int a, int b) {
+		return LongIntMap.mix(LongIntMap.edgeKey(a, b) ^ zobristSeed);
+	}
+
+	/**
+	 * Chiave in "visited" del circuito con hash "h": il valore
+	 * Long.MIN_VALUE, che LongIntMap riserva alle posizioni libere, viene
+	 * sostituito con Long.MAX_VALUE (come in una normale collisione).
+	 */
+	private static long visitedKey(long h) {
+		return (h == Long.MIN_VALUE) ? Long.MAX_VALUE : h;
+	}
+
+	/**
+	 * Verifica se l'arco (a, b) e' tabu.
+	 */
+	private boolean isTabu(int a, int b) {
+		return tabu.get(LongIntMap.edgeKey(a, b), 0) >= iteration;
+	}
+
+	/**
+	 * Valuta le mosse 2-Opt e Or-Opt che collegano la città "a" ad un suo
+	 * vicino, aggiornando la mossa migliore dell'iterazione.
+	 */
+	private void evaluate(int a) {
+		City ca = citiesVector[a];
+		for (int ind = 0; ind < ca.neighboursSize; ind++) {
+			int b = ca.neighbourIds[ind];
+
+			//
+			// Mossa 2-Opt: gli archi (a, a2) e (b, b2) vengono sostituiti
+			// da (a, b) e (a2, b2).
+			//
+			for (int dir = 0; dir < 2; dir++) {
+				boolean succ = (dir == 0);
+				int a2 = succ ? work.next(a) : work.prev(a);
+				int b2 = succ ? work.next(b) : work.prev(b);
+				if ((b == a2) || (b2 == a))
+					continue;
+				double delta = dist(a, b) + dist(a2, b2) - dist(a, a2) - dist(b, b2);
+				if (!admissible(delta, a, b, a2, b2, -1, -1))
+					continue;
+				long h = hash ^ zobrist(a, a2) ^ zobrist(b, b2) ^ zobrist(a, b) ^ zobrist(a2, b2);
+				if (visited.get(visitedKey(h), -1) >= 0)
+					continue;
+				moveType = TWO_OPT;
+				moveDelta = delta;
+				moveHash = h;
+				move[0] = a;
+				move[1] = a2;
+				move[2] = b;
+				move[3] = b2;
+				move[4] = dir;
+			}
+
+			//
+			// Mossa Or-Opt: il segmento s1..s2 (che inizia in a) viene
+			// tolto da tra p e n e inserito tra b e il suo successore c.
+			//
+			int s1 = a, s2 = a;
+			int p = work.prev(s1);
+			int c = work.next(b);
+			if ((c == s1) || (b == p))
+				continue;
+			for (int len = 1; len <= Tour.OR_OPT_MAX_LEN; len++) {
+				if (len > 1) {
+					s2 = work.next(s2);
+					if ((s2 == b) || (s2 == p))
+						break;
+				}
+				int n = work.next(s2);
+				if (n == p)
+					break;
+				double forward = dist(b, s1) + dist(s2, c);
+				double backward = dist(b, s2) + dist(s1, c);
+				boolean fw = forward <= backward;
+				int x = fw ? s1 : s2, y = fw ? s2 : s1;
+				double delta = Math.min(forward, backward) - dist(b, c)
+						+ dist(p, n) - dist(p, s1) - dist(s2, n);
+				if (!admissible(delta, p, n, b, x, y, c))
+					continue;
+				long h = hash ^ zobrist(p, s1) ^ zobrist(s2, n) ^ zobrist(b, c)
+						^ zobrist(p, n) ^ zobrist(b, x) ^ zobrist(y, c);
+				if (visited.get(visitedKey(h), -1) >= 0)
+					continue;
+				moveType = OR_OPT;
+				moveDelta = delta;
+				moveHash = h;
+				move[0] = s1;
+				move[1] = s2;
+				move[2] = p;
+				move[3] = n;
+				move[4] = b;
+				move[5] = c;
+				move[6] = fw ? 1 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Verifica se una mossa che cambia la lunghezza di "delta" e aggiunge
+	 * gli archi (a1, b1), (a2, b2) e (a3, b3) (quest'ultimo se a3 >= 0) e'
+	 * migliore della mossa scelta finora e non e' tabu (o porta ad un nuovo
+	 * circuito migliore).
+	 */
+	private boolean admissible(double delta, int a1, int b1, int a2, int b2, int a3, int b3) {
+		if ((moveType >= 0) && (delta >= moveDelta))
+			return false;
+		if (length + delta < bestSize - MIN_GAIN)
+			return true;
+		return !isTabu(a1, b1) && !isTabu(a2, b2) && ((a3 < 0) || !isTabu(a3, b3));
+	}
+
+	/**
+	 * Esegue la mossa migliore dell'iterazione: gli archi tolti diventano
+	 * tabu e il nuovo circuito viene ricordato.
+	 */
+	void apply() {
+		if (moveType == TWO_OPT) {
+			int a = move[0], a2 = move[1], b = move[2], b2 = move[3];
+			if (move[4] == 0)
+				work.reverse(a2, b);
+			else
+				work.reverse(b, a2);
+			setTabu(a, a2);
+			setTabu(b, b2);
+			recentTot = 0;
+			recent[recentTot++] = a;
+			recent[recentTot++] = a2;
+			recent[recentTot++] = b;
+			recent[recentTot++] = b2;
+		} else {
+			int s1 = move[0], s2 = move[1], p = move[2], n = move[3], b = move[4], c = move[5];
+			work.moveSegment(s1, s2, b, move[6] == 1);
+			setTabu(p, s1);
+			setTabu(s2, n);
+			setTabu(b, c);
+			recentTot = 0;
+			recent[recentTot++] = s1;
+			recent[recentTot++] = s2;
+			recent[recentTot++] = p;
+			recent[recentTot++] = n;
+			recent[recentTot++] = b;
+			recent[recentTot++] = c;
+		}
+		length += moveDelta;
+		hash = moveHash;
+		visited.put(visitedKey(hash), iteration);
+	}
+
+	/**
+	 * Rende tabu l'arco (a, b) per le prossime TENURE iterazioni.
+	 */
+	private void setTabu(int a, int b) {
+		tabu.put(LongIntMap.edgeKey(a, b), iteration + TENURE);
+	}
+
+	/**
+	 * Metodo necessario all'esecuzione di questo thread.
+	 */
+	public void run() {
+		//
+		// Setto la priorita' al minimo dato che questo thread
+		// e' decisamente CPU-INTENSIVE.
+		//
+		setPriority(MIN_PRIORITY);
+		if (execID == TABU_SEARCH)
+			tabuSearch(Math.round(tspFrame.tspArea.getTimeLimit() * 1000), tspFrame.tspArea.getTargetLength());
+		endRun();
+	}
+}
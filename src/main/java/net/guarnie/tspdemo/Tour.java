@@ -0,0 +1,103 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Rappresentazione di un circuito (su tutte le città dell'istanza, indicate
+ * con il loro indice nel vettore delle città) che permette alle euristiche
+ * di ricerca locale di conoscere successore e predecessore di una città, di
+ * confrontare la posizione di tre città e di invertire un cammino.
+ *
+ * L'inversione ha lo stesso effetto dell'inversione di un tratto di vettore:
+ * il resto del circuito mantiene il suo verso di percorrenza (le
+ * implementazioni possono comunque invertire il tratto complementare, se
+ * piu' corto, e invertire il verso dell'intero circuito).
+ */
+public abstract class Tour {
+	/**
+	 * Numero massimo di città del segmento spostato dalle mosse Or-Opt (vedi
+	 * moveSegment()).
+	 */
+	public final static int OR_OPT_MAX_LEN = 3;
+
+	/**
+	 * Restituisce il numero di città del circuito.
+	 */
+	public abstract int size();
+
+	/**
+	 * Restituisce la città successiva alla città "c".
+	 */
+	public abstract int next(int c);
+
+	/**
+	 * Restituisce la città precedente alla città "c".
+	 */
+	public abstract int prev(int c);
+
+	/**
+	 * Verifica se la città "b" si trova sul cammino che va da "a" a "c"
+	 * (estremi compresi) percorrendo il circuito in avanti.
+	 */
+	public abstract boolean between(int a, int b, int c);
+
+	/**
+	 * Inverte il cammino che va da "a" a "b" percorrendo il circuito in
+	 * avanti: gli archi (prev(a), a) e (b, next(b)) vengono sostituiti dagli
+	 * archi (prev(a), b) e (a, next(b)).
+	 */
+	public abstract void reverse(int a, int b);
+
+	/**
+	 * Sposta il segmento s1..s2 tra la città "u" e il suo successore v (che
+	 * non fanno parte del segmento), con s1 accanto a u se "forward" e' true,
+	 * altrimenti con s2 accanto a u. Detto T il cammino da n (successore di
+	 * s2) a u, il circuito p S T v diventa p T S v (o p T S' v con il
+	 * segmento invertito) con due o tre inversioni. Restituisce n, che serve
+	 * per annullare lo spostamento (vedi undoMoveSegment()).
+	 */
+	public final int moveSegment(int s1, int s2, int u, boolean forward) {
+		int n = next(s2);
+		reverse(s1, u);
+		reverse(u, n);
+		if (forward)
+			reverse(s2, s1);
+		return n;
+	}
+
+	/**
+	 * Annulla moveSegment(s1, s2, u, forward), che ha restituito "n",
+	 * eseguendo le inversioni opposte in ordine inverso (dopo l'inversione
+	 * del cammino da a a b, quello da b ad a contiene le stesse città).
+	 */
+	public final void undoMoveSegment(int s1, int s2, int u, int n, boolean forward) {
+		if (forward)
+			reverse(s1, s2);
+		reverse(n, u);
+		reverse(u, s1);
+	}
+
+	/**
+	 * Copia nel vettore "order" le città del circuito, a partire dalla città
+	 * "start".
+	 */
+	public void toArray(int start, int[] order) {
+		final int TOT = size();
+		int c = start;
+		for (int count = 0; count < TOT; count++) {
+			order[count] = c;
+			c = next(c);
+		}
+	}
+}
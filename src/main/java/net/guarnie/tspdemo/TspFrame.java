@@ -45,12 +45,14 @@ import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowEvent;
 import java.net.URL;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Stack;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
+import javax.swing.ButtonGroup;
 import javax.swing.ButtonModel;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -68,6 +70,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JProgressBar;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSlider;
@@ -75,6 +78,7 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.JViewport;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.MenuEvent;
@@ -85,8 +89,6 @@ import javax.swing.table.AbstractTableModel;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 
-import static net.guarnie.tspdemo.Heuristic.CITIES_VECTOR_CAPACITY;
-
 /**
  * Frame principale del progetto.
  */
@@ -129,6 +131,16 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 	 */
 	final static String INSTANCES_INDEX = "index.zip";
 
+	/**
+	 * Descrizioni e comandi dei tipi di candidati (nell'ordine dei codici
+	 * Heuristic.CAND_*).
+	 */
+	final static String[] CAND_STR = { "Nearest neighbors",
+			"Delaunay triangulation", "Nearest neighbors + Delaunay",
+			"Quadrant neighbors", "Alpha-nearness (Held-Karp)" };
+	final static String[] CAND_CMD = { "candnearest", "canddelaunay",
+			"candneardelaunay", "candquadrant", "candalpha" };
+
 	/**
 	 * Area di lavoro.
 	 */
@@ -222,7 +234,7 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 	private JMenuItem quit, loadRemote, about, random, undo, clrInstance, clrTour;
 	private JMenuItem normalView, table, loadLocal, saveLocalInst;
 	private JMenuItem saveLocalTour, saveAsLocalInst, saveAsLocalTour;
-	private JMenu fileMenu, editMenu, saveLocalMenu, saveAsLocalMenu;
+	private JMenu fileMenu, editMenu, saveLocalMenu, saveAsLocalMenu, candMenu;
 	private JCheckBoxMenuItem cityIDCheckB, coordCheckB, aspRatioCheckB, roundedlenCheckB;
 
 	/**
@@ -353,6 +365,22 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 		viewMenu.add(aspRatioCheckB);
 		princMenu.add(viewMenu);
 
+		//
+		// Menu Candidates
+		//
+		candMenu = new JMenu("Candidates");
+		ButtonGroup candGroup = new ButtonGroup();
+		for (int count = 0; count < CAND_STR.length; count++) {
+			JRadioButtonMenuItem candItem = new JRadioButtonMenuItem(CAND_STR[count], count == Heuristic.CAND_NEAREST);
+			candItem.setActionCommand(CAND_CMD[count]);
+			if (count == Heuristic.CAND_ALPHA)
+				candItem.setToolTipText("After a city edit the nearest neighbors are used until the next Held-Karp lower bound");
+			candItem.addActionListener(this);
+			candGroup.add(candItem);
+			candMenu.add(candItem);
+		}
+		princMenu.add(candMenu);
+
 		//
 		// Menu Help
 		//
@@ -447,6 +475,18 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 		tspArea.buttonOpt.setEnabled(b);
 		fileMenu.setEnabled(b);
 		editMenu.setEnabled(b);
+		candMenu.setEnabled(b);
+	}
+
+	/**
+	 * Fa partire un thread per il calcolo delle neighbours list con il tipo
+	 * di candidati scelto.
+	 */
+	private void setCandidates(int type) {
+		statusArea.setStatus("Computing candidates...");
+		setBusy(true);
+		workArea.editThread = new Heuristic(this, Heuristic.CANDIDATES, -1, -1, type, null);
+		workArea.editThread.start();
 	}
 
 	/**
@@ -478,7 +518,7 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 						// perche' essendo stata cancellata dal vettore delle
 						// città il suo contenuto e' preservato da eventuali
 						// modifiche.
-						undoThread = new Heuristic(this, undoTsp.undoType, -1, -1, -1, undoTsp.city);
+						undoThread = new Heuristic(this, undoTsp.undoType, -1, -1, undoTsp.tourPos, undoTsp.city);
 				}
 				undoThread.setUndoing(true);
 				undoThread.start();
@@ -928,6 +968,24 @@ public class TspFrame extends JFrame implements ActionListener, ItemListener,
 				workArea.resetZoom();
 				break;
 			//
+			// Scelta del tipo di candidati per la ricerca locale.
+			//
+			case "candnearest":
+				setCandidates(Heuristic.CAND_NEAREST);
+				break;
+			case "canddelaunay":
+				setCandidates(Heuristic.CAND_DELAUNAY);
+				break;
+			case "candneardelaunay":
+				setCandidates(Heuristic.CAND_NEAREST_DELAUNAY);
+				break;
+			case "candquadrant":
+				setCandidates(Heuristic.CAND_QUADRANT);
+				break;
+			case "candalpha":
+				setCandidates(Heuristic.CAND_ALPHA);
+				break;
+			//
 			// Dialog box con le generalita' dell'autore.
 			//
 			case "about":
@@ -1053,32 +1111,33 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 	/**
 	 * Tabella Hash che contiene per ogni indice di città
 	 */
-	private Hashtable<Point, City> pointHashTable = new Hashtable<Point, City>(CITIES_VECTOR_CAPACITY);
+	private Hashtable<Point, City> pointHashTable = new Hashtable<Point, City>();
 
 	/**
 	 * Array delle etichette delle città dell'istanza corrente.
 	 */
-	private String[] idArray = new String[CITIES_VECTOR_CAPACITY];
+	private String[] idArray = new String[0];
 
 	/**
-	 * Array dei punti rappresentanti le città dell'istanza corrente.
+	 * Array dei punti rappresentanti le città dell'istanza corrente (sono
+	 * dimensionati sull'istanza e crescono insieme ad essa).
 	 */
-	private Point[] pointArray = new Point[CITIES_VECTOR_CAPACITY];
+	private Point[] pointArray = new Point[0];
 
 	/**
 	 * Array dei punti rappresentanti rispettivamente la coda e la testa degli
 	 * archi del circuito corrente.
 	 */
-	private Point[] edgeArray1 = new Point[CITIES_VECTOR_CAPACITY];
-	private Point[] edgeArray2 = new Point[CITIES_VECTOR_CAPACITY];
+	private Point[] edgeArray1 = new Point[0];
+	private Point[] edgeArray2 = new Point[0];
 
 	/**
 	 * Array dei punti rappresentanti rispettivamente la coda e la testa degli
 	 * archi "extra" (possono essere quelli del MST, del circuito ottimo o del
 	 * 2/3 Opt).
 	 */
-	private Point[] extraArray1 = new Point[CITIES_VECTOR_CAPACITY];
-	private Point[] extraArray2 = new Point[CITIES_VECTOR_CAPACITY];
+	private Point[] extraArray1 = new Point[0];
+	private Point[] extraArray2 = new Point[0];
 
 	public Heuristic editThread;
 	private TspFrame tspFrame;
@@ -1123,8 +1182,6 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 
 		new_CITY_ID_Y = CITY_ID_Y + fm.getAscent();
 		new_bottomBorder = new_CITY_ID_Y + fm.getDescent();
-		for (int count = 0; count < CITIES_VECTOR_CAPACITY; count++)
-			pointArray[count] = new Point();
 		addMouseListener(this);
 		addMouseMotionListener(this);
 		vp = tspFrame.viewportArea;
@@ -1324,6 +1381,30 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 		resetMinMax = true;
 	}
 
+	/**
+	 * Assicura che gli array dei punti e degli archi possano contenere almeno
+	 * "size" elementi (la capacità viene raddoppiata quando serve).
+	 */
+	private void ensureCapacity(int size) {
+		int capacity = pointArray.length;
+		if (capacity < size) {
+			capacity = Math.max(size, capacity << 1);
+			int count = pointArray.length;
+			pointArray = Arrays.copyOf(pointArray, capacity);
+			while (count < capacity)
+				pointArray[count++] = new Point();
+			idArray = Arrays.copyOf(idArray, capacity);
+		}
+		if (edgeArray1.length < capacity) {
+			edgeArray1 = Arrays.copyOf(edgeArray1, capacity);
+			edgeArray2 = Arrays.copyOf(edgeArray2, capacity);
+		}
+		if (extraArray1.length < capacity) {
+			extraArray1 = Arrays.copyOf(extraArray1, capacity);
+			extraArray2 = Arrays.copyOf(extraArray2, capacity);
+		}
+	}
+
 	/**
 	 * Ricalcola le coordinate dei nodi.
 	 */
@@ -1331,6 +1412,7 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 		int count;
 		Point p;
 		totC = Heuristic.getTotCities();
+		ensureCapacity(totC);
 		if (tspFrame.getCityID()) {
 			rightBorder = (maxAdv * totDigits(totC - 1)) + CITY_ID_X;
 			bottomBorder = new_bottomBorder;
@@ -1381,15 +1463,17 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 	 * Ricalcola le coordinate degli archi.
 	 */
 	public final synchronized void computeEdges() {
-		totE = Heuristic.getTotTourNodes();
+		ArrayTour tour = Heuristic.getTour();
+		totE = tour.size();
+		ensureCapacity(totE);
 		if (totE > 0) {
 			int t = totE - 1;
 			for (int count = 0; count < t;) {
-				edgeArray1[count] = pointArray[Heuristic.getTourVector(count).num];
-				edgeArray2[count] = pointArray[Heuristic.getTourVector(++count).num];
+				edgeArray1[count] = pointArray[tour.city(count)];
+				edgeArray2[count] = pointArray[tour.city(++count)];
 			}
-			edgeArray1[t] = pointArray[Heuristic.getTourVector(t).num];
-			edgeArray2[t] = pointArray[Heuristic.getTourVector(0).num];
+			edgeArray1[t] = pointArray[tour.city(t)];
+			edgeArray2[t] = pointArray[tour.city(0)];
 		}
 	}
 
@@ -1399,6 +1483,10 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 	public final synchronized int addEdge(City c1, City c2) {
 		Point p1 = pointArray[c1.num];
 		Point p2 = pointArray[c2.num];
+		if (totE == edgeArray1.length) {
+			edgeArray1 = Arrays.copyOf(edgeArray1, (totE << 1) + 1);
+			edgeArray2 = Arrays.copyOf(edgeArray2, (totE << 1) + 1);
+		}
 		edgeArray1[totE] = p1;
 		edgeArray2[totE++] = p2;
 		repaint((int) Math.min(p1.x, p2.x), (int) Math.min(p1.y, p2.y),
@@ -1495,6 +1583,10 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 	 * Aggiunge un arco all'array degli archi extra.
 	 */
 	public final synchronized void addExtraEdge(City c1, City c2) {
+		if (totEX == extraArray1.length) {
+			extraArray1 = Arrays.copyOf(extraArray1, (totEX << 1) + 1);
+			extraArray2 = Arrays.copyOf(extraArray2, (totEX << 1) + 1);
+		}
 		if (optEdgesEnabled) {
 			Point p1 = pointArray[c1.num];
 			Point p2 = pointArray[c2.num];
@@ -1529,6 +1621,7 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 		if (show) {
 			if (Heuristic.getOptTourSize() > 0) {
 				totEX = Heuristic.getTotCities();
+				ensureCapacity(totEX);
 				optEdgesEnabled = true;
 				int t = totEX - 1;
 				for (int count = 0; count < t;) {
@@ -1833,7 +1926,7 @@ class WorkArea extends JComponent implements ComponentListener,	ActionListener,
 				// Calcola l'indice della città che e' stata selezionata.
 				//
 				selectedCity = (isCitySelected) ? ((City) pointHashTable.get(lastPoint)).num : -1;
-				insertCity.setEnabled(editEnabled && !isCitySelected && (totC < CITIES_VECTOR_CAPACITY));
+				insertCity.setEnabled(editEnabled && !isCitySelected);
 				moveCity.setEnabled(isCitySelected);
 				delCity.setEnabled(isCitySelected);
 				startCity.setEnabled(isCitySelected);
@@ -1900,6 +1993,11 @@ class StatusArea extends JPanel {
 	private JProgressBar progress;
 	private NumberFormat coordFormat;
 
+	/**
+	 * Ultimo valore passato a setStatus().
+	 */
+	private volatile String status = "";
+
 	/**
 	 * Costruttore della classe.
 	 */
@@ -1951,20 +2049,33 @@ class StatusArea extends JPanel {
 
 	
 	/**
-	 * Modifica il campo string della ProgressBar "Progress".
-	 */
-	public synchronized void setStatus(String st) {
-		progress.setValue(0);
-		progress.setString(st);
+	 * Modifica il campo string della ProgressBar "Progress". Viene chiamato
+	 * anche dai thread di calcolo, per cui la modifica e' eseguita dal
+	 * thread degli eventi (nello stesso ordine delle chiamate, anche
+	 * rispetto a setProgress()).
+	 */
+	public void setStatus(final String st) {
+		status = st;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				progress.setValue(0);
+				progress.setString(st);
+			}
+		});
 	}
 
 	/**
-	 * Modifica il valore della ProgressBar "Progress".
+	 * Modifica il valore della ProgressBar "Progress" (dal thread degli
+	 * eventi, come setStatus()).
 	 *
 	 * @param value da 0 a 100
 	 */
-	public synchronized void setProgress(int value) {
-		progress.setValue(value);
+	public void setProgress(final int value) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				progress.setValue(value);
+			}
+		});
 	}
 
 	/**
@@ -1990,10 +2101,11 @@ class StatusArea extends JPanel {
 	}
 
 	/**
-	 * Restituisce il valore del campo string della progressBar "Progress".
+	 * Restituisce il valore del campo string della progressBar "Progress"
+	 * (l'ultimo impostato, anche se non ancora visualizzato).
 	 */
 	public String getStatus() {
-		return progress.getString();
+		return status;
 	}
 }
 
@@ -2016,10 +2128,13 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 	/**
 	 * Stringhe per la descrizione degli algoritmi.
 	 */
-	final static String[] HEUR_STR = { "Construction", "Improvement", "Lower bounds" };
+	final static String[] HEUR_STR = { "Construction", "Improvement", "Metaheuristics", "Lower bounds" };
 	final static String[] DESCR_STR = { "Greedy", "Nearest neighbor",
 			"Cheapest insertion", "Random insertion", "Farthest insertion",
-			"MST visit", "2-Opt", "3-Opt", "Held & Karp" };
+			"MST visit", "2-Opt", "3-Opt", "Held & Karp", "Or-Opt", "Lin-Kernighan",
+			"Iterated local search", "Simulated annealing", "Genetic algorithm",
+			"Ant colony system", "Tabu search", "Guided local search",
+			"Ruin and recreate", "VND" };
 	final static String[] HEUR_DESC_STR = { "Algorithms for TSP",
 			"Construction heuristics", "Greedy (the shortest edge)",
 			"Nearest neighbor", "Cheapest insertion (convex hull)",
@@ -2027,8 +2142,24 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 			"Farthest insertion (convex hull)",
 			"Pre-order visit of the Minimum Spanning Tree",
 			"Improvement heuristics (local search)", "2-Opt", "3-Opt",
+			"Or-Opt (move segments of 1-3 cities)",
+			"Lin-Kernighan (variable-depth moves)",
+			"VND (2-Opt, Or-Opt and 3-Opt in one run)",
+			"Metaheuristics (time limit)",
+			"Iterated local search (double-bridge kicks)",
+			"Simulated annealing (2-Opt and Or-Opt moves)",
+			"Genetic algorithm (edge assembly crossover)",
+			"Ant colony system (parallel ants)",
+			"Tabu search (2-Opt and Or-Opt moves)",
+			"Guided local search (2-Opt with edge penalties)",
+			"Ruin and recreate (cheapest insertion)",
 			"Lower bounds", "Held & Karp lower bound" };
 
+	/**
+	 * Tempo massimo (in secondi) di default per le metaeuristiche.
+	 */
+	final static int DEF_TIME_LIMIT = 10;
+
 	/**
 	 * Thread per l'elaborazione degli algoritmi di ricerca locale.
 	 */
@@ -2056,6 +2187,13 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 	 */
 	private JFormattedTextField totCities, tourLen, lowerBound, optimum;
 
+	/**
+	 * Campi numerici per il tempo massimo (in secondi) e la lunghezza
+	 * obiettivo delle metaeuristiche (0 = nessun obiettivo), e per il
+	 * fattore di raffreddamento del simulated annealing.
+	 */
+	private JFormattedTextField timeLimit, targetLength, coolingRate;
+
 	/**
 	 * Rappresenta il frame principale.
 	 */
@@ -2232,12 +2370,16 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 		heuristics.add(constr);
 		DefaultMutableTreeNode local = new DefaultMutableTreeNode(HEUR_STR[1]);
 		heuristics.add(local);
-		DefaultMutableTreeNode lbound = new DefaultMutableTreeNode(HEUR_STR[2]);
+		DefaultMutableTreeNode meta = new DefaultMutableTreeNode(HEUR_STR[2]);
+		heuristics.add(meta);
+		DefaultMutableTreeNode lbound = new DefaultMutableTreeNode(HEUR_STR[3]);
 		heuristics.add(lbound);
 		for (count = 0; count < ConstructionHeuristic.CONSTR_COD.length; count++)
 			constr.add(new DefaultMutableTreeNode(DESCR_STR[ConstructionHeuristic.CONSTR_COD[count]]));
 		for (count = 0; count <  ImprovementHeuristic.LOCAL_COD.length; count++)
 			local.add(new DefaultMutableTreeNode(DESCR_STR[ImprovementHeuristic.LOCAL_COD[count]]));
+		for (count = 0; count <  ImprovementHeuristic.META_COD.length; count++)
+			meta.add(new DefaultMutableTreeNode(DESCR_STR[ImprovementHeuristic.META_COD[count]]));
 		for (count = 0; count <  ImprovementHeuristic.LBOUND_COD.length; count++)
 			lbound.add(new DefaultMutableTreeNode(DESCR_STR[ImprovementHeuristic.LBOUND_COD[count]]));
 		constraints.gridy = 0;
@@ -2274,6 +2416,83 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 		buttonStop.setToolTipText("Stop computation");
 		aPanel.add(buttonStop, constraints);
 
+		//
+		// Pannello per i limiti delle metaeuristiche.
+		//
+		JPanel mPanel = new JPanel();
+		mPanel.setLayout(gridBag);
+		mPanel.setBorder(BorderFactory.createTitledBorder(
+				BorderFactory.createEtchedBorder(), " Metaheuristics "));
+		constraints.gridx = 0;
+		constraints.anchor = GridBagConstraints.WEST;
+		constraints.insets = new Insets(4, 4, 4, 4);
+		constraints.gridwidth = 3;
+		constraints.gridy = 5;
+		constraints.weightx = 100;
+		constraints.fill = GridBagConstraints.HORIZONTAL;
+		add(mPanel, constraints);
+
+		//
+		// Etichetta e campo numerico "Time limit".
+		//
+		constraints.insets = new Insets(0, 4, 4, 4);
+		constraints.gridy = 0;
+		constraints.gridwidth = 1;
+		JLabel label4 = new JLabel("Time limit (s):", JLabel.LEFT);
+		mPanel.add(label4, constraints);
+		constraints.fill = GridBagConstraints.NONE;
+		constraints.anchor = GridBagConstraints.EAST;
+		constraints.weightx = 0;
+		constraints.gridx = 1;
+		timeLimit = new JFormattedTextField(NumberFormat.getInstance());
+		timeLimit.setHorizontalAlignment(JTextField.RIGHT);
+		timeLimit.setColumns(6);
+		timeLimit.setValue(DEF_TIME_LIMIT);
+		timeLimit.setToolTipText("Maximum running time (seconds)");
+		mPanel.add(timeLimit, constraints);
+
+		//
+		// Etichetta e campo numerico "Target length".
+		//
+		constraints.fill = GridBagConstraints.HORIZONTAL;
+		constraints.anchor = GridBagConstraints.WEST;
+		constraints.weightx = 100;
+		constraints.gridx = 0;
+		constraints.gridy = 1;
+		JLabel label5 = new JLabel("Target length:", JLabel.LEFT);
+		mPanel.add(label5, constraints);
+		constraints.fill = GridBagConstraints.NONE;
+		constraints.anchor = GridBagConstraints.EAST;
+		constraints.weightx = 0;
+		constraints.gridx = 1;
+		targetLength = new JFormattedTextField(NumberFormat.getInstance());
+		targetLength.setHorizontalAlignment(JTextField.RIGHT);
+		targetLength.setColumns(10);
+		targetLength.setValue(0);
+		targetLength.setToolTipText("Stop when the tour is not longer (0 = no target)");
+		mPanel.add(targetLength, constraints);
+
+		//
+		// Etichetta e campo numerico "Cooling rate".
+		//
+		constraints.fill = GridBagConstraints.HORIZONTAL;
+		constraints.anchor = GridBagConstraints.WEST;
+		constraints.weightx = 100;
+		constraints.gridx = 0;
+		constraints.gridy = 2;
+		JLabel label6 = new JLabel("Cooling rate:", JLabel.LEFT);
+		mPanel.add(label6, constraints);
+		constraints.fill = GridBagConstraints.NONE;
+		constraints.anchor = GridBagConstraints.EAST;
+		constraints.weightx = 0;
+		constraints.gridx = 1;
+		coolingRate = new JFormattedTextField(NumberFormat.getInstance());
+		coolingRate.setHorizontalAlignment(JTextField.RIGHT);
+		coolingRate.setColumns(6);
+		coolingRate.setValue(AnnealingHeuristic.DEF_COOLING_RATE);
+		coolingRate.setToolTipText("Simulated annealing: temperature factor between two steps (0-1)");
+		mPanel.add(coolingRate, constraints);
+
 		//
 		// Pannello per l'animazione.
 		//
@@ -2285,7 +2504,7 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 		constraints.anchor = GridBagConstraints.WEST;
 		constraints.insets = new Insets(4, 4, 4, 4);
 		constraints.gridwidth = 3;
-		constraints.gridy = 5;
+		constraints.gridy = 6;
 		constraints.weightx = 0;
 		constraints.fill = GridBagConstraints.HORIZONTAL;
 		add(setPanel, constraints);
@@ -2408,6 +2627,37 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 		return (double) lowerBound.getValue();
 	}
 
+	/**
+	 * Restituisce la descrizione dell'algoritmo con codice "code".
+	 */
+	public String getDescription(int code) {
+		return DESCR_STR[code];
+	}
+
+	/**
+	 * Restituisce il tempo massimo (in secondi) per le metaeuristiche.
+	 */
+	public double getTimeLimit() {
+		return ((Number) timeLimit.getValue()).doubleValue();
+	}
+
+	/**
+	 * Restituisce la lunghezza obiettivo per le metaeuristiche (0 se non
+	 * c'e' un obiettivo).
+	 */
+	public double getTargetLength() {
+		return ((Number) targetLength.getValue()).doubleValue();
+	}
+
+	/**
+	 * Restituisce il fattore di raffreddamento del simulated annealing
+	 * (ricondotto nell'intervallo 0-1).
+	 */
+	public double getCoolingRate() {
+		double rate = ((Number) coolingRate.getValue()).doubleValue();
+		return ((rate > 0) && (rate < 1)) ? rate : AnnealingHeuristic.DEF_COOLING_RATE;
+	}
+
 	/**
 	 * Gestisce il movimento dello slider, e la pressione del pulsante
 	 * "Show optimum".
@@ -2445,6 +2695,26 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 		return choice;
 	}
 
+	/**
+	 * Crea il thread per l'algoritmo di miglioramento "compID".
+	 */
+	private Heuristic improvementThread(int compID) {
+		switch (compID) {
+			case AnnealingHeuristic.SIM_ANNEALING:
+				return new AnnealingHeuristic(tspFrame, compID);
+			case GeneticHeuristic.GENETIC:
+				return new GeneticHeuristic(tspFrame, compID);
+			case AntColonyHeuristic.ANT_COLONY:
+				return new AntColonyHeuristic(tspFrame, compID);
+			case TabuHeuristic.TABU_SEARCH:
+				return new TabuHeuristic(tspFrame, compID);
+			case RuinRecreateHeuristic.RUIN_RECREATE:
+				return new RuinRecreateHeuristic(tspFrame, compID);
+			default:
+				return new ImprovementHeuristic(tspFrame, compID);
+		}
+	}
+
 	/**
 	 * Gestisce la pressione dei Pulsanti "Run", "Stop", "Pause".
 	 */
@@ -2474,12 +2744,22 @@ class TspArea extends JPanel implements ActionListener, ItemListener, ChangeList
 									break;
 								case ImprovementHeuristic.TWO_CHANGE:
 								case ImprovementHeuristic.THREE_CHANGE:
+								case ImprovementHeuristic.OR_OPT:
+								case ImprovementHeuristic.LIN_KERNIGHAN:
+								case ImprovementHeuristic.VND:
+								case ImprovementHeuristic.ITERATED_LS:
+								case AnnealingHeuristic.SIM_ANNEALING:
+								case GeneticHeuristic.GENETIC:
+								case AntColonyHeuristic.ANT_COLONY:
+								case TabuHeuristic.TABU_SEARCH:
+								case ImprovementHeuristic.GUIDED_LS:
+								case RuinRecreateHeuristic.RUIN_RECREATE:
 									if (Heuristic.getTotTourNodes() == 0)
 										err = "A starting tour is needed.";
 									else if (Heuristic.getTotTourNodes() < 4)
 										err = "Nothing to improve.";
 									else {
-										computeThread = new ImprovementHeuristic(tspFrame, compID);
+										computeThread = improvementThread(compID);
 										UndoTSP.push(tspFrame, DESCR_STR[compID], Heuristic.NEW_TOUR);
 										tspFrame.statusArea.setStatus("Improving this tour...");
 									}
@@ -2698,7 +2978,7 @@ class InstanceDialog extends JDialog implements ActionListener, TableModelListen
 		int count = 0;
 		int tot = table.getRowCount();
 		int[] sel = table.getSelectedRows();
-		if ((tot >= CITIES_VECTOR_CAPACITY)	|| ((tot > 0) && (sel.length == 0)))
+		if ((tot > 0) && (sel.length == 0))
 			JOptionPane.showMessageDialog(this,	"There isn't a selected row.", "Warning!", JOptionPane.WARNING_MESSAGE);
 		else {
 			int ind;
@@ -3062,6 +3342,12 @@ class RandomDialog extends JDialog implements AdjustmentListener, ActionListener
 	 *
 	 */
 	private static final long serialVersionUID = -265656932765869534L;
+
+	/**
+	 * Numero massimo di città selezionabili per la generazione casuale (e'
+	 * solo il limite del cursore, le strutture dati non hanno limiti).
+	 */
+	final static int MAX_RANDOM_CITIES = 200000;
 	private TspFrame tspFrame;
 	private JScrollBar sbMaxCities;
 	private JButton buttonGenerate, buttonCancel;
@@ -3125,7 +3411,7 @@ class RandomDialog extends JDialog implements AdjustmentListener, ActionListener
 		constraints.gridx = 0;
 		constraints.gridwidth = 2;
 		constraints.weightx = 100;
-		sbMaxCities = new JScrollBar(JScrollBar.HORIZONTAL, tot, 0, 1, CITIES_VECTOR_CAPACITY);
+		sbMaxCities = new JScrollBar(JScrollBar.HORIZONTAL, tot, 0, 1, MAX_RANDOM_CITIES);
 		sbMaxCities.addAdjustmentListener(this);
 		frPanel.add(sbMaxCities, constraints);
 		
@@ -3170,10 +3456,10 @@ class UndoTSP {
 	String descr, oldTourName, oldTourPathname, oldTourComm;
 	boolean oldIsTourChg, oldIsInstChg;
 	int undoType;
-	City[] undoTour;
+	int[] undoTour;
 	City city;
 	double x, y;
-	int ind; 
+	int ind, tourPos; 
 	double oldTourSize, optTourSize, lowerBound;
 	
 	/**
@@ -3190,11 +3476,8 @@ class UndoTSP {
 		oldTourName = tspFrame.getTourName();
 		oldTourPathname = tspFrame.getTourPathname();
 		oldIsTourChg = tspFrame.isTourChg();
-		int dim = Heuristic.getTotTourNodes();
-		undoTour = new City[dim];
+		undoTour = Heuristic.getTour().toArray(new int[Heuristic.getTotTourNodes()]);
 		oldTourSize = Heuristic.getTourSize();
-		for (int count = 0; count < dim; count++)
-			undoTour[count] = Heuristic.getTourVector(count);
 	}
 
 	/**
@@ -3218,6 +3501,7 @@ class UndoTSP {
 		this.x = x;
 		this.y = y;
 		city = (undoType == Heuristic.ADDCITY) ? Heuristic.getCityVector(ind) : null;
+		tourPos = (undoType == Heuristic.ADDCITY) ? Heuristic.getTourPosition(ind) : -1;
 	}
 
 	/**
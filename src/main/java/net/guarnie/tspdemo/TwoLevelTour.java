@@ -0,0 +1,491 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Circuito memorizzato come lista doppiamente concatenata a due livelli (vedi:
+ * M. L. Fredman, D. S. Johnson, L. A. McGeoch, G. Ostheimer, "Data Structures
+ * for Traveling Salesmen", 1995).
+ *
+ * Le città sono divise in circa sqrt(n) segmenti, ciascuno con un bit di
+ * inversione e un numero d'ordine; ogni città conosce il suo segmento e la
+ * sua posizione (seq) al suo interno. Invertire un cammino costa O(sqrt(n))
+ * invece di O(n): le estremità del cammino vengono portate all'inizio e alla
+ * fine di un segmento (spostando la parte piu' corta nel segmento vicino),
+ * quindi si inverte l'ordine dei segmenti interessati e il loro bit di
+ * inversione. Successore, predecessore e confronti di posizione restano
+ * O(1).
+ */
+public class TwoLevelTour extends Tour {
+	/**
+	 * Un segmento che supera MAX_GROWTH volte la dimensione iniziale provoca
+	 * la ricostruzione della struttura.
+	 */
+	private final static int MAX_GROWTH = 4;
+
+	/**
+	 * Numero di città e dimensione iniziale dei segmenti.
+	 */
+	private final int n;
+	private int groupSize;
+
+	/**
+	 * Per ogni città: segmento di appartenenza, posizione nel segmento e
+	 * città adiacenti nel segmento (considerato non invertito; i valori alle
+	 * estremità del segmento non sono significativi).
+	 */
+	private final int[] parent, seq, nxt, prv;
+
+	/**
+	 * Per ogni segmento: prima e ultima città (secondo seq), numero di città,
+	 * numero d'ordine, segmenti adiacenti e bit di inversione.
+	 */
+	private final int[] segFirst, segLast, segSize, segRank, segNext, segPrev;
+	private final boolean[] segReversed;
+
+	/**
+	 * Verso di percorrenza dell'intero circuito.
+	 */
+	private boolean reversed;
+
+	/**
+	 * Segnala che un segmento e' cresciuto troppo.
+	 */
+	private boolean unbalanced;
+
+	/**
+	 * Vettori di appoggio.
+	 */
+	private final int[] buffer, segBuffer, rankBuffer;
+
+	/**
+	 * Costruttore della classe: il circuito visita le città nell'ordine del
+	 * vettore "order" (che deve contenere tutti gli indici da 0 a
+	 * order.length - 1).
+	 */
+	public TwoLevelTour(int[] order) {
+		n = order.length;
+		parent = new int[n];
+		seq = new int[n];
+		nxt = new int[n];
+		prv = new int[n];
+		segFirst = new int[n];
+		segLast = new int[n];
+		segSize = new int[n];
+		segRank = new int[n];
+		segNext = new int[n];
+		segPrev = new int[n];
+		segReversed = new boolean[n];
+		buffer = new int[n];
+		segBuffer = new int[n];
+		rankBuffer = new int[n];
+		init(order);
+	}
+
+	/**
+	 * Divide le città (nell'ordine del vettore "order") in segmenti.
+	 */
+	private void init(int[] order) {
+		groupSize = Math.max(1, (int) Math.sqrt(n));
+		final int TOT = (n + groupSize - 1) / groupSize;
+		for (int s = 0; s < TOT; s++) {
+			int first = s * groupSize;
+			int last = Math.min(n, first + groupSize) - 1;
+			segFirst[s] = order[first];
+			segLast[s] = order[last];
+			segSize[s] = last - first + 1;
+			segRank[s] = s;
+			segNext[s] = (s + 1) % TOT;
+			segPrev[s] = (s + TOT - 1) % TOT;
+			segReversed[s] = false;
+			for (int count = first; count <= last; count++) {
+				int c = order[count];
+				parent[c] = s;
+				seq[c] = count - first;
+				nxt[c] = (count < last) ? order[count + 1] : -1;
+				prv[c] = (count > first) ? order[count - 1] : -1;
+			}
+		}
+		reversed = false;
+		unbalanced = false;
+	}
+
+	/**
+	 * Restituisce il numero di città del circuito.
+	 */
+	public final int size() {
+		return n;
+	}
+
+	/**
+	 * Prima città del segmento "s" nel verso di percorrenza.
+	 */
+	private int head(int s) {
+		return segReversed[s] ? segLast[s] : segFirst[s];
+	}
+
+	/**
+	 * Ultima città del segmento "s" nel verso di percorrenza.
+	 */
+	private int tail(int s) {
+		return segReversed[s] ? segFirst[s] : segLast[s];
+	}
+
+	/**
+	 * Posizione della città "c" nel suo segmento, nel verso di percorrenza.
+	 */
+	private int order(int c) {
+		return segReversed[parent[c]] ? -seq[c] : seq[c];
+	}
+
+	/**
+	 * Successore della città "c" (senza considerare il verso del circuito).
+	 */
+	private int rawNext(int c) {
+		int s = parent[c];
+		if (c == tail(s))
+			return head(segNext[s]);
+		return segReversed[s] ? prv[c] : nxt[c];
+	}
+
+	/**
+	 * Predecessore della città "c" (senza considerare il verso del
+	 * circuito).
+	 */
+	private int rawPrev(int c) {
+		int s = parent[c];
+		if (c == head(s))
+			return tail(segPrev[s]);
+		return segReversed[s] ? nxt[c] : prv[c];
+	}
+
+	/**
+	 * Restituisce la città successiva alla città "c".
+	 */
+	public final int next(int c) {
+		return reversed ? rawPrev(c) : rawNext(c);
+	}
+
+	/**
+	 * Restituisce la città precedente alla città "c".
+	 */
+	public final int prev(int c) {
+		return reversed ? rawNext(c) : rawPrev(c);
+	}
+
+	/**
+	 * Confronta la posizione delle città "a" e "b" (senza considerare il
+	 * verso del circuito) rispetto alla prima città del segmento numero 0.
+	 */
+	private int compare(int a, int b) {
+		int ra = segRank[parent[a]];
+		int rb = segRank[parent[b]];
+		if (ra != rb)
+			return ra - rb;
+		return order(a) - order(b);
+	}
+
+	/**
+	 * Verifica se la città "b" si trova sul cammino che va da "a" a "c".
+	 */
+	public final boolean between(int a, int b, int c) {
+		if (reversed) {
+			int tmp = a;
+			a = c;
+			c = tmp;
+		}
+		if (compare(a, c) <= 0)
+			return (compare(a, b) <= 0) && (compare(b, c) <= 0);
+		return (compare(a, b) <= 0) || (compare(b, c) <= 0);
+	}
+
+	/**
+	 * Numero di città del cammino da "x" a "y" (senza considerare il verso
+	 * del circuito).
+	 */
+	private int rawLength(int x, int y) {
+		int sx = parent[x];
+		int sy = parent[y];
+		if (sx == sy)
+			return (order(x) <= order(y)) ? order(y) - order(x) + 1 : n - (order(x) - order(y) - 1);
+		int len = (order(tail(sx)) - order(x) + 1) + (order(y) - order(head(sy)) + 1);
+		for (int s = segNext[sx]; s != sy; s = segNext[s])
+			len += segSize[s];
+		return len;
+	}
+
+	/**
+	 * Inverte il cammino che va da "a" a "b": viene invertito il cammino o il
+	 * suo complementare (invertendo anche il verso del circuito), scegliendo
+	 * il piu' corto.
+	 */
+	public final void reverse(int a, int b) {
+		if (a == b)
+			return;
+		int x = reversed ? b : a;
+		int y = reversed ? a : b;
+		int len = rawLength(x, y);
+		boolean done;
+		if (len == n) {
+			reversed = !reversed;
+			return;
+		}
+		if (2 * len > n) {
+			done = rawReverse(rawNext(y), rawPrev(x));
+			if (done)
+				reversed = !reversed;
+		} else
+			done = rawReverse(x, y);
+		if (!done)
+			slowReverse(a, b);
+		else if (unbalanced)
+			rebuild();
+	}
+
+	/**
+	 * Inverte il cammino da "x" a "y" (senza considerare il verso del
+	 * circuito). Restituisce false, senza modificare il circuito, nei casi
+	 * (possibili solo con pochi segmenti) in cui le estremità non possono
+	 * essere separate.
+	 */
+	private boolean rawReverse(int x, int y) {
+		for (int attempt = 0; attempt < 4; attempt++) {
+			int sx = parent[x];
+			int sy = parent[y];
+			if (sx == sy) {
+				if (order(x) > order(y))
+					return false;
+				reverseInSegment(sx, x, y);
+				return true;
+			}
+			if (x != head(sx)) {
+				if (!splitBefore(x, sy))
+					return false;
+			} else if (y != tail(sy)) {
+				if (!splitAfter(y, sx))
+					return false;
+			} else {
+				reverseSegments(sx, sy);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Inverte il cammino da "x" a "y" contenuto nel segmento "s".
+	 */
+	private void reverseInSegment(int s, int x, int y) {
+		if ((x == head(s)) && (y == tail(s))) {
+			segReversed[s] = !segReversed[s];
+			return;
+		}
+		normalize(s);
+		int len = 0;
+		for (int c = x; ; c = nxt[c]) {
+			buffer[len++] = c;
+			if (c == y)
+				break;
+		}
+		int before = (x == segFirst[s]) ? -1 : prv[x];
+		int after = (y == segLast[s]) ? -1 : nxt[y];
+		int first = seq[x];
+		for (int count = 0; count < len; count++) {
+			int c = buffer[len - 1 - count];
+			seq[c] = first + count;
+			prv[c] = (count == 0) ? before : buffer[len - count];
+			nxt[c] = (count == len - 1) ? after : buffer[len - 2 - count];
+		}
+		if (before >= 0)
+			nxt[before] = y;
+		else
+			segFirst[s] = y;
+		if (after >= 0)
+			prv[after] = x;
+		else
+			segLast[s] = x;
+	}
+
+	/**
+	 * Fa in modo che la città "x" sia la prima del suo segmento, spostando la
+	 * parte piu' corta del segmento in un segmento vicino (che non deve essere
+	 * "sy", il segmento dell'altra estremità del cammino).
+	 */
+	private boolean splitBefore(int x, int sy) {
+		int sx = parent[x];
+		int before = order(x) - order(head(sx));
+		boolean toPrev = (segPrev[sx] != sy) && (segPrev[sx] != sx);
+		boolean toNext = (segNext[sx] != sx);
+		if (toPrev && (!toNext || (2 * before <= segSize[sx])))
+			moveHead(sx, rawPrev(x));
+		else if (toNext)
+			moveTail(sx, x);
+		else
+			return false;
+		return true;
+	}
+
+	/**
+	 * Fa in modo che la città "y" sia l'ultima del suo segmento, spostando la
+	 * parte piu' corta del segmento in un segmento vicino (senza modificare
+	 * l'inizio del segmento "sx", che contiene l'altra estremità del
+	 * cammino).
+	 */
+	private boolean splitAfter(int y, int sx) {
+		int sy = parent[y];
+		int upTo = order(y) - order(head(sy)) + 1;
+		boolean toNext = (segNext[sy] != sx) && (segNext[sy] != sy);
+		boolean toPrev = (segPrev[sy] != sy);
+		if (toNext && (!toPrev || (2 * upTo >= segSize[sy])))
+			moveTail(sy, rawNext(y));
+		else if (toPrev)
+			moveHead(sy, y);
+		else
+			return false;
+		return true;
+	}
+
+	/**
+	 * Sposta le città del segmento "s", dalla prima fino a "z", in fondo al
+	 * segmento precedente.
+	 */
+	private void moveHead(int s, int z) {
+		int t = segPrev[s];
+		normalize(s);
+		normalize(t);
+		int last = segLast[t];
+		int k = seq[last];
+		int moved = 0;
+		int c = segFirst[s];
+		int following;
+		do {
+			following = nxt[c];
+			parent[c] = t;
+			seq[c] = ++k;
+			prv[c] = last;
+			nxt[last] = c;
+			last = c;
+			moved++;
+		} while ((c != z) && ((c = following) >= 0));
+		segLast[t] = z;
+		segFirst[s] = following;
+		segSize[t] += moved;
+		segSize[s] -= moved;
+		if (segSize[t] > MAX_GROWTH * groupSize)
+			unbalanced = true;
+	}
+
+	/**
+	 * Sposta le città del segmento "s", da "z" fino all'ultima, all'inizio
+	 * del segmento successivo.
+	 */
+	private void moveTail(int s, int z) {
+		int t = segNext[s];
+		normalize(s);
+		normalize(t);
+		int first = segFirst[t];
+		int k = seq[first];
+		int moved = 0;
+		int c = segLast[s];
+		int preceding;
+		do {
+			preceding = prv[c];
+			parent[c] = t;
+			seq[c] = --k;
+			nxt[c] = first;
+			prv[first] = c;
+			first = c;
+			moved++;
+		} while ((c != z) && ((c = preceding) >= 0));
+		segFirst[t] = z;
+		segLast[s] = preceding;
+		segSize[t] += moved;
+		segSize[s] -= moved;
+		if (segSize[t] > MAX_GROWTH * groupSize)
+			unbalanced = true;
+	}
+
+	/**
+	 * Elimina il bit di inversione del segmento "s" invertendone le città.
+	 */
+	private void normalize(int s) {
+		if (!segReversed[s])
+			return;
+		int c = segFirst[s];
+		while (true) {
+			int following = nxt[c];
+			nxt[c] = prv[c];
+			prv[c] = following;
+			seq[c] = -seq[c];
+			if (c == segLast[s])
+				break;
+			c = following;
+		}
+		int tmp = segFirst[s];
+		segFirst[s] = segLast[s];
+		segLast[s] = tmp;
+		segReversed[s] = false;
+	}
+
+	/**
+	 * Inverte la sequenza dei segmenti da "sx" a "sy" (compresi).
+	 */
+	private void reverseSegments(int sx, int sy) {
+		int p = segPrev[sx];
+		int q = segNext[sy];
+		int tot = 0;
+		for (int s = sx; ; s = segNext[s]) {
+			segBuffer[tot] = s;
+			rankBuffer[tot++] = segRank[s];
+			segReversed[s] = !segReversed[s];
+			if (s == sy)
+				break;
+		}
+		for (int count = 0; count < tot; count++) {
+			int s = segBuffer[tot - 1 - count];
+			segRank[s] = rankBuffer[count];
+			segPrev[s] = (count == 0) ? p : segBuffer[tot - count];
+			segNext[s] = (count == tot - 1) ? q : segBuffer[tot - 2 - count];
+		}
+		segNext[p] = sy;
+		segPrev[q] = sx;
+	}
+
+	/**
+	 * Inverte il cammino da "a" a "b" ricostruendo l'intera struttura (solo
+	 * per i casi non gestiti da rawReverse()).
+	 */
+	private void slowReverse(int a, int b) {
+		int[] order = new int[n];
+		toArray(a, order);
+		int len = 0;
+		while (order[len] != b)
+			len++;
+		for (int i = 0, j = len; i < j; i++, j--) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		init(order);
+	}
+
+	/**
+	 * Ricostruisce i segmenti mantenendo il circuito.
+	 */
+	private void rebuild() {
+		int[] order = new int[n];
+		toArray(segFirst[0], order);
+		init(order);
+	}
+}
@@ -0,0 +1,64 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.ArrayList;
+
+/**
+ * Spazi di lavoro (vettori e strutture di appoggio) delle operazioni che
+ * un'euristica esegue in parallelo (vedi Heuristic.forEach()): ogni task ne
+ * prende uno libero con acquire() e lo restituisce con release(), per cui ne
+ * vengono creati al massimo quanti sono i task in esecuzione
+ * contemporaneamente.
+ *
+ * Gli spazi di lavoro appartengono all'euristica e non ai thread del pool
+ * fork/join comune (come con un ThreadLocal), che sopravvivono
+ * all'esecuzione: clear() li libera al termine.
+ */
+public abstract class WorkspacePool<T> {
+	/**
+	 * Spazi di lavoro liberi.
+	 */
+	private final ArrayList<T> free = new ArrayList<T>();
+
+	/**
+	 * Crea un nuovo spazio di lavoro.
+	 */
+	protected abstract T create();
+
+	/**
+	 * Restituisce uno spazio di lavoro libero (creandolo se non ce ne sono).
+	 */
+	public final T acquire() {
+		synchronized (this) {
+			if (!free.isEmpty())
+				return free.remove(free.size() - 1);
+		}
+		return create();
+	}
+
+	/**
+	 * Rende di nuovo libero lo spazio di lavoro "w".
+	 */
+	public final synchronized void release(T w) {
+		free.add(w);
+	}
+
+	/**
+	 * Abbandona gli spazi di lavoro liberi.
+	 */
+	public final synchronized void clear() {
+		free.clear();
+	}
+}
@@ -0,0 +1,109 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di ArrayTour: i test comuni di TourTest, e le modifiche del circuito
+ * parziale (inserimenti, cancellazioni e rinumerazioni delle città)
+ * confrontate con una lista.
+ */
+public class ArrayTourTest extends TourTest {
+	protected Tour createTour(int[] order) {
+		ArrayTour tour = new ArrayTour(order.length);
+		tour.set(order, order.length);
+		return tour;
+	}
+
+	/**
+	 * Inserisce e toglie città a caso in un circuito parziale, come fanno
+	 * le euristiche di costruzione e quelle di tipo "ruin and recreate",
+	 * confrontando ordine e posizioni con una lista.
+	 */
+	@Test
+	public void insertAndRemove() {
+		final int N = 60;
+		Random random = new Random(11);
+		ArrayTour tour = new ArrayTour(N);
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int move = 0; move < 2000; move++) {
+			int c = random.nextInt(N);
+			if (tour.position(c) >= 0) {
+				tour.remove(c);
+				expected.remove(Integer.valueOf(c));
+			} else if (random.nextBoolean()) {
+				tour.add(c);
+				expected.add(c);
+			} else {
+				int index = random.nextInt(expected.size() + 1);
+				tour.insert(index, c);
+				expected.add(index, c);
+			}
+			checkOrder(tour, expected, N);
+		}
+	}
+
+	/**
+	 * Rinumera le città come quando una città viene cancellata dal vettore
+	 * delle città e poi reinserita.
+	 */
+	@Test
+	public void renumber() {
+		final int N = 30;
+		Random random = new Random(13);
+		for (int trial = 0; trial < 100; trial++) {
+			int ind = random.nextInt(N);
+			int[] order = TourModel.randomOrder(N, random);
+			ArrayTour tour = new ArrayTour(N);
+			tour.set(order, N);
+			tour.remove(ind);
+			tour.renumber(ind, -1);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int c : order)
+				if (c != ind)
+					expected.add((c > ind) ? c - 1 : c);
+			checkOrder(tour, expected, N);
+
+			tour.renumber(ind, 1);
+			int index = random.nextInt(N);
+			tour.insert(index, ind);
+			expected.clear();
+			for (int c : order)
+				if (c != ind)
+					expected.add(c);
+			expected.add(index, ind);
+			checkOrder(tour, expected, N);
+		}
+	}
+
+	/**
+	 * Confronta le città del circuito "tour" e le loro posizioni con la
+	 * lista "expected" (le città fino a "n" - 1 che non vi compaiono devono
+	 * avere posizione -1).
+	 */
+	private void checkOrder(ArrayTour tour, List<Integer> expected, int n) {
+		assertEquals(expected.size(), tour.size());
+		for (int index = 0; index < expected.size(); index++)
+			assertEquals(expected.get(index).intValue(), tour.city(index));
+		for (int c = 0; c < n; c++)
+			assertEquals(expected.indexOf(c), tour.position(c));
+	}
+}
@@ -0,0 +1,70 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test dell'Edge Assembly Crossover dell'algoritmo genetico: il figlio deve
+ * essere un ciclo hamiltoniano su tutte le città, con la lunghezza
+ * memorizzata uguale a quella ricalcolata, sia da genitori casuali (molti
+ * AB-cicli e sottocircuiti da unire) sia da genitori in un ottimo locale.
+ */
+public class EdgeAssemblyCrossoverTest {
+	/**
+	 * Incrocia coppie di individui su un'istanza casuale di "n" città; il
+	 * figlio prende il posto del genitore "a" se e' piu' corto, come avviene
+	 * nella popolazione.
+	 */
+	private void crossovers(int n, long seed, int pairs, boolean optimize) {
+		Random random = new Random(seed);
+		TestInstance.create(n, random);
+		GeneticHeuristic.Crossover work = new GeneticHeuristic(null, GeneticHeuristic.GENETIC).new Crossover();
+		GeneticHeuristic.Member a = parent(work, random, optimize);
+		for (int pair = 0; pair < pairs; pair++) {
+			GeneticHeuristic.Member b = parent(work, random, optimize);
+			GeneticHeuristic.Member child = work.offspring(a, b);
+			assertNotNull(child);
+			TestInstance.check(child.order, n, child.length);
+			if (child.length < a.length)
+				a = child;
+		}
+		assertNull(work.offspring(a, a));
+	}
+
+	/**
+	 * Genitore casuale, eventualmente portato in un ottimo locale.
+	 */
+	private GeneticHeuristic.Member parent(GeneticHeuristic.Crossover work, Random random, boolean optimize) {
+		int[] order = TourModel.randomOrder(Heuristic.getTotCities(), random);
+		GeneticHeuristic.Member m = new GeneticHeuristic.Member(order, TestInstance.length(order));
+		return optimize ? work.optimize(m) : m;
+	}
+
+	@Test
+	public void randomParents() {
+		crossovers(60, 31, 50, false);
+		crossovers(300, 37, 20, false);
+	}
+
+	@Test
+	public void localOptima() {
+		crossovers(300, 41, 30, true);
+	}
+}
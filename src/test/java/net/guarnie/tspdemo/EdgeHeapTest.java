@@ -0,0 +1,65 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di EdgeHeap: inserimenti ed estrazioni alternati confrontati con una
+ * lista ordinata, anche oltre la capacità iniziale.
+ */
+public class EdgeHeapTest {
+	@Test
+	public void popsInDecreasingOrder() {
+		Random random = new Random(23);
+		EdgeHeap heap = new EdgeHeap(4);
+		List<Double> expected = new ArrayList<Double>();
+		for (int count = 0; count < 20000; count++) {
+			if ((expected.size() > 0) && (random.nextInt(3) == 0)) {
+				Double max = Collections.max(expected);
+				assertEquals(max, heap.topValue(), 0);
+
+				//
+				// Gli estremi sono quelli inseriti con il valore.
+				//
+				assertEquals(heap.topB(), heap.topA() + 1);
+				assertEquals(max, heap.topA() / 10.0, 0);
+				expected.remove(max);
+				heap.pop();
+			} else {
+				int a = random.nextInt(1000);
+				heap.push(a, a + 1, a / 10.0);
+				expected.add(a / 10.0);
+			}
+			assertEquals(expected.size(), heap.size());
+		}
+		double last = Double.MAX_VALUE;
+		while (heap.size() > 0) {
+			assertTrue(heap.topValue() <= last);
+			last = heap.topValue();
+			heap.pop();
+		}
+		heap.push(5, 6, 1);
+		heap.clear();
+		assertEquals(0, heap.size());
+	}
+}
@@ -0,0 +1,73 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test della ricerca locale iterata: dopo ogni passo (perturbazione
+ * double-bridge e ricerca locale, vedi ImprovementHeuristic.kick()) il
+ * circuito deve essere valido e lungo quanto indicato, e se non e'
+ * migliorato l'annullamento delle mosse del giornale deve riportarlo
+ * esattamente al circuito di partenza.
+ */
+public class IteratedLocalSearchTest {
+	/**
+	 * Esegue "kicks" passi su un'istanza casuale di "n" città, con il
+	 * circuito rappresentato da uno SplayTour se "splay" e' true,
+	 * altrimenti da un TwoLevelTour.
+	 */
+	private void kicks(int n, long seed, int kicks, boolean splay) {
+		Random random = new Random(seed);
+		int[] order = TestInstance.create(n, random);
+		Tour tour = splay ? new SplayTour(order.clone()) : new TwoLevelTour(order.clone());
+		ImprovementHeuristic search = new ImprovementHeuristic(null, ImprovementHeuristic.ITERATED_LS);
+		ActiveQueue queue = new ActiveQueue(n);
+		queue.pushTour(tour, order[0]);
+		double length = search.localOptimum(tour, TestInstance.length(order), queue);
+		int[] before = TestInstance.check(tour, length);
+		int improved = 0, undone = 0;
+		for (int kick = 0; kick < kicks; kick++) {
+			double after = search.kick(Heuristic.getCityVector(random.nextInt(n)), random, queue);
+			int[] current = TestInstance.check(tour, after);
+			if (after < length) {
+				improved++;
+				length = after;
+				before = current;
+			} else {
+				undone++;
+				assertEquals(length, after, 0);
+				assertArrayEquals(before, current);
+			}
+		}
+		assertTrue(improved > 0);
+		assertTrue(undone > 0);
+	}
+
+	@Test
+	public void twoLevelTour() {
+		kicks(200, 3, 300, false);
+	}
+
+	@Test
+	public void splayTour() {
+		kicks(150, 4, 300, true);
+	}
+}
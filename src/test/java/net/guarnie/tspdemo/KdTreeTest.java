@@ -0,0 +1,138 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di KdTree e dell'aggiornamento incrementale delle neighbours list:
+ * dopo inserimenti, spostamenti e cancellazioni casuali le città piu' vicine
+ * vengono confrontate con quelle calcolate confrontando tutte le coppie di
+ * città (la lista di City e' ordinata anche a parita' di distanza, per cui
+ * deve coincidere esattamente).
+ */
+public class KdTreeTest {
+	/**
+	 * Lato del quadrato in cui vengono generate le città (piccolo, in modo
+	 * da avere molte distanze uguali e città coincidenti).
+	 */
+	private final static int SIDE = 100;
+
+	@Test
+	public void nearestAfterInsertAndRemove() {
+		Random random = new Random(17);
+		List<City> cities = new ArrayList<City>();
+		City[] initial = new City[300];
+		for (int count = 0; count < initial.length; count++) {
+			initial[count] = randomCity(count, random);
+			cities.add(initial[count]);
+		}
+		KdTree tree = new KdTree(initial, initial.length);
+		int num = initial.length;
+		for (int step = 0; step < 2000; step++) {
+			if (random.nextBoolean()) {
+				City c = randomCity(num++, random);
+				tree.insert(c);
+				cities.add(c);
+			} else
+				assertTrue(tree.remove(cities.remove(random.nextInt(cities.size()))));
+
+			//
+			// Città piu' vicina a un punto qualsiasi.
+			//
+			double x = random.nextDouble() * SIDE;
+			double y = random.nextDouble() * SIDE;
+			double best = Double.POSITIVE_INFINITY;
+			for (City other : cities)
+				best = Math.min(best, (other.x - x) * (other.x - x) + (other.y - y) * (other.y - y));
+			City found = tree.nearest(x, y);
+			assertEquals(best, (found.x - x) * (found.x - x) + (found.y - y) * (found.y - y), 0);
+
+			//
+			// Neighbours list di una città dell'albero.
+			//
+			City c = cities.get(random.nextInt(cities.size()));
+			City expected = new City(c.x, c.y, c.num);
+			for (City other : cities)
+				if (other != c)
+					expected.addNeighbour(other.num, Math.sqrt((c.x - other.x) * (c.x - other.x) + (c.y - other.y) * (c.y - other.y)));
+			tree.nearest(c);
+			checkNeighbours(expected, c);
+		}
+	}
+
+	@Test
+	public void incrementalNeighbours() {
+		Random random = new Random(29);
+		TestInstance.create(2 * City.NEIGHBOURS_LIST_SIZE + 10, random);
+		for (int step = 0; step < 300; step++) {
+			final int TOT = Heuristic.getTotCities();
+			int op = random.nextInt(3);
+			if ((op == 0) || (TOT <= City.NEIGHBOURS_LIST_SIZE + 2))
+				Heuristic.addCity(random.nextInt(SIDE), random.nextInt(SIDE));
+			else if (op == 1)
+				Heuristic.movCity(random.nextInt(SIDE), random.nextInt(SIDE), random.nextInt(TOT));
+			else
+				Heuristic.delCity(random.nextInt(TOT));
+			checkAll();
+			TestInstance.checkCurrent();
+		}
+	}
+
+	/**
+	 * Confronta le neighbours list di tutte le città dell'istanza corrente
+	 * con quelle calcolate in O(n^2).
+	 */
+	private static void checkAll() {
+		final int TOT = Heuristic.getTotCities();
+		for (int count1 = 0; count1 < TOT; count1++) {
+			City c = Heuristic.getCityVector(count1);
+			assertEquals(count1, c.num);
+			City expected = new City(c.x, c.y, c.num);
+			for (int count2 = 0; count2 < TOT; count2++)
+				if (count2 != count1)
+					expected.addNeighbour(count2, Heuristic.dist(count1, count2));
+			checkNeighbours(expected, c);
+		}
+	}
+
+	/**
+	 * Verifica che la neighbours list di "c" coincida con quella di
+	 * "expected".
+	 */
+	private static void checkNeighbours(City expected, City c) {
+		assertEquals(expected.neighboursSize, c.neighboursSize);
+		assertArrayEquals(Arrays.copyOf(expected.neighbourIds, expected.neighboursSize),
+				Arrays.copyOf(c.neighbourIds, c.neighboursSize));
+		assertArrayEquals(Arrays.copyOf(expected.neighbourDist, expected.neighboursSize),
+				Arrays.copyOf(c.neighbourDist, c.neighboursSize), 0);
+	}
+
+	/**
+	 * Crea una città a caso (con coordinate intere) con indice "num".
+	 */
+	private static City randomCity(int num, Random random) {
+		return new City(random.nextInt(SIDE), random.nextInt(SIDE), num);
+	}
+}
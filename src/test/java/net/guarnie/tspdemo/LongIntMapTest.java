@@ -0,0 +1,110 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di LongIntMap: inserimenti, letture ed eliminazioni delle chiavi
+ * scadute confrontati con una HashMap, anche oltre la capacità iniziale
+ * (quando la tabella viene ricostruita).
+ */
+public class LongIntMapTest {
+	/**
+	 * Valore restituito per le chiavi assenti.
+	 */
+	private final static int NONE = -1;
+
+	/**
+	 * Chiave casuale: meta' delle volte la chiave di un arco tra poche
+	 * città, per avere chiavi ripetute e vicine tra loro.
+	 */
+	private long randomKey(Random random) {
+		if (random.nextBoolean())
+			return LongIntMap.edgeKey(random.nextInt(50), random.nextInt(50));
+		long key;
+		do
+			key = random.nextLong();
+		while (key == Long.MIN_VALUE);
+		return key;
+	}
+
+	/**
+	 * Confronta tutte le chiavi di "expected" con quelle di "map".
+	 */
+	private void check(LongIntMap map, Map<Long, Integer> expected) {
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> entry : expected.entrySet())
+			assertEquals(entry.getValue().intValue(), map.get(entry.getKey(), NONE));
+	}
+
+	@Test
+	public void edgeKeyIgnoresDirection() {
+		assertEquals(LongIntMap.edgeKey(3, 7), LongIntMap.edgeKey(7, 3));
+		assertEquals(((long) 3 << 32) | 7, LongIntMap.edgeKey(7, 3));
+	}
+
+	@Test
+	public void putAndGet() {
+		Random random = new Random(17);
+		LongIntMap map = new LongIntMap(4);
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int count = 0; count < 20000; count++) {
+			long key = randomKey(random);
+			int value = random.nextInt(1000);
+			map.put(key, value);
+			expected.put(key, value);
+			long other = randomKey(random);
+			Integer value2 = expected.get(other);
+			assertEquals((value2 == null) ? NONE : value2.intValue(), map.get(other, NONE));
+		}
+		check(map, expected);
+	}
+
+	/**
+	 * Usa i valori come numeri di iterazione, come la lista tabu, e toglie
+	 * periodicamente le chiavi scadute.
+	 */
+	@Test
+	public void purge() {
+		Random random = new Random(19);
+		LongIntMap map = new LongIntMap(16);
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int iter = 0; iter < 20000; iter++) {
+			long key = randomKey(random);
+			map.put(key, iter);
+			expected.put(key, iter);
+			if (iter % 500 == 499) {
+				final int MIN = iter - 300;
+				map.purge(MIN);
+				for (Iterator<Integer> it = expected.values().iterator(); it.hasNext();)
+					if (it.next() < MIN)
+						it.remove();
+				check(map, expected);
+				for (int count = 0; count < 1000; count++) {
+					long other = randomKey(random);
+					if (!expected.containsKey(other))
+						assertEquals(NONE, map.get(other, NONE));
+				}
+			}
+		}
+	}
+}
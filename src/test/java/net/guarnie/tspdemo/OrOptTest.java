@@ -0,0 +1,43 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di Or-Opt (ImprovementHeuristic) su istanze casuali; lo spostamento
+ * dei segmenti (Tour.moveSegment()) e' verificato in TourTest.
+ */
+public class OrOptTest {
+	/**
+	 * Il circuito prodotto da Or-Opt e' valido, con la lunghezza
+	 * memorizzata uguale a quella ricalcolata, e piu' corto di quello
+	 * di partenza.
+	 */
+	@Test
+	public void orOptKeepsTourValid() {
+		Random random = new Random(5);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 10 + random.nextInt(300);
+			int[] start = TestInstance.create(n, random);
+			new ImprovementHeuristic(null, ImprovementHeuristic.OR_OPT).orOpt();
+			TestInstance.checkCurrent();
+			assertTrue(Heuristic.getTourSize() < TestInstance.length(start));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di ruin and recreate: dopo ogni iterazione la lista del circuito di
+ * lavoro deve essere un ciclo su tutte le città lungo quanto indicato,
+ * undo() deve ripristinare esattamente la lista precedente, e il circuito
+ * migliore aggiornato con il registro (anche dopo che si e' riempito) deve
+ * coincidere con il circuito di lavoro.
+ */
+public class RuinRecreateTest {
+	/**
+	 * Esegue "iterations" iterazioni su un'istanza casuale di "n" città,
+	 * annullandone a caso circa la meta' e salvando il circuito migliore in
+	 * media ogni "save" iterazioni (con "save" grande il registro si
+	 * riempie).
+	 */
+	private void iterations(int n, long seed, int iterations, int save) {
+		Random random = new Random(seed);
+		int[] order = TestInstance.create(n, random);
+		RuinRecreateHeuristic rr = new RuinRecreateHeuristic(null, RuinRecreateHeuristic.RUIN_RECREATE);
+		rr.init(order, TestInstance.length(order));
+		for (int count = 0; count < iterations; count++) {
+			int[] succ = rr.succ.clone(), pred = rr.pred.clone();
+			double length = rr.length;
+			rr.ruin(1 + random.nextInt(Math.min(30, n / 4)));
+			rr.recreate();
+			check(rr.succ, rr.pred, rr.length);
+			if (random.nextBoolean()) {
+				rr.undo();
+				assertArrayEquals(succ, rr.succ);
+				assertArrayEquals(pred, rr.pred);
+				assertEquals(length, rr.length, 0);
+			}
+			if (random.nextInt(save) == 0) {
+				rr.saveLog();
+				assertArrayEquals(rr.succ, rr.bestSucc);
+				assertArrayEquals(rr.pred, rr.bestPred);
+			}
+		}
+	}
+
+	/**
+	 * Verifica che "succ" e "pred" siano un ciclo su tutte le città lungo
+	 * "length".
+	 */
+	private void check(int[] succ, int[] pred, double length) {
+		final int N = succ.length;
+		int[] order = new int[N];
+		int c = 0;
+		for (int count = 0; count < N; count++) {
+			order[count] = c;
+			assertEquals(c, pred[succ[c]]);
+			c = succ[c];
+		}
+		assertEquals(0, c);
+		TestInstance.check(order, N, length);
+	}
+
+	@Test
+	public void smallInstance() {
+		iterations(40, 53, 2000, 4);
+		iterations(40, 57, 2000, 40);
+	}
+
+	@Test
+	public void largerInstance() {
+		iterations(500, 59, 2000, 8);
+	}
+}
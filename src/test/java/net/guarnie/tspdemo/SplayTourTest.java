@@ -0,0 +1,24 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Test di SplayTour (vedi TourTest), compresa la propagazione dei bit di
+ * inversione dopo molte inversioni e spostamenti sovrapposti.
+ */
+public class SplayTourTest extends TourTest {
+	protected Tour createTour(int[] order) {
+		return new SplayTour(order);
+	}
+}
@@ -0,0 +1,63 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test della ricerca tabu: dopo ogni mossa (2-Opt o Or-Opt, anche
+ * peggiorativa) il circuito deve essere valido e lungo quanto indicato, e
+ * l'hash di Zobrist aggiornato in O(1) deve coincidere con quello
+ * ricalcolato da tutti gli archi del circuito.
+ */
+public class TabuSearchTest {
+	/**
+	 * Esegue "iterations" iterazioni su un'istanza casuale di "n" città,
+	 * partendo da un circuito casuale.
+	 */
+	private void iterations(int n, long seed, int iterations) {
+		Random random = new Random(seed);
+		int[] order = TestInstance.create(n, random);
+		Tour tour = new TwoLevelTour(order.clone());
+		TabuHeuristic search = new TabuHeuristic(null, TabuHeuristic.TABU_SEARCH);
+		search.begin(tour, TestInstance.length(order));
+		int worse = 0;
+		for (int count = 0; count < iterations; count++) {
+			if (!search.choose())
+				continue;
+			double before = search.length;
+			search.apply();
+			if (search.length > before)
+				worse++;
+			TestInstance.check(tour, search.length);
+			assertEquals(search.computeHash(), search.hash);
+		}
+		assertTrue(worse > 0);
+	}
+
+	@Test
+	public void smallInstance() {
+		iterations(20, 43, 2000);
+	}
+
+	@Test
+	public void largerInstance() {
+		iterations(300, 47, 3000);
+	}
+}
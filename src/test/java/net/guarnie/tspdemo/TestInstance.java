@@ -0,0 +1,115 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+/**
+ * Istanze casuali per i test delle euristiche: le città diventano l'istanza
+ * corrente di Heuristic (con le neighbours list dei K nodi piu' vicini), e
+ * i circuiti prodotti vengono controllati verificando che visitino ogni
+ * città una volta e ricalcolandone la lunghezza.
+ */
+final class TestInstance {
+	/**
+	 * Lato del quadrato in cui vengono generate le città.
+	 */
+	private final static int SIDE = 1000;
+
+	/**
+	 * Tolleranza sulle lunghezze (aggiornate mossa per mossa dalle
+	 * euristiche).
+	 */
+	final static double EPS = 1e-6;
+
+	private TestInstance() {
+	}
+
+	/**
+	 * Crea un'istanza EUC_2D di "n" città a caso (con coordinate intere) e
+	 * restituisce un circuito casuale, che diventa anche il circuito
+	 * corrente.
+	 */
+	static int[] create(int n, Random random) {
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int count = 0; count < n; count++) {
+			x[count] = random.nextInt(SIDE);
+			y[count] = random.nextInt(SIDE);
+		}
+		Heuristic.setCitiesVector(x, y, n, null, Heuristic.EUC_2D, null);
+		int[] order = TourModel.randomOrder(n, random);
+		Heuristic.setTour(length(order), order);
+		return order;
+	}
+
+	/**
+	 * Lunghezza del circuito che visita le città nell'ordine "order".
+	 */
+	static double length(int[] order) {
+		double length = 0;
+		for (int count = 0; count < order.length; count++)
+			length += Heuristic.dist(order[count], order[(count + 1) % order.length]);
+		return length;
+	}
+
+	/**
+	 * Verifica che "order" visiti una volta ciascuna delle "n" città e che
+	 * la sua lunghezza sia "length".
+	 */
+	static void check(int[] order, int n, double length) {
+		assertEquals(n, order.length);
+		boolean[] seen = new boolean[n];
+		for (int c : order) {
+			assertTrue(!seen[c]);
+			seen[c] = true;
+		}
+		assertEquals(length(order), length, EPS);
+	}
+
+	/**
+	 * Verifica che il circuito "t" sia un ciclo sulle sue città, con
+	 * successori e predecessori coerenti, e che sia lungo "length";
+	 * restituisce l'ordine di visita a partire dalla città 0, nel verso in
+	 * cui la seconda città ha indice minore dell'ultima (le implementazioni
+	 * di Tour possono invertire il verso dell'intero circuito).
+	 */
+	static int[] check(Tour t, double length) {
+		final int N = t.size();
+		int[] order = new int[N];
+		t.toArray(0, order);
+		for (int count = 0; count < N; count++)
+			assertEquals(order[count], t.prev(order[(count + 1) % N]));
+		assertEquals(0, t.next(order[N - 1]));
+		check(order, N, length);
+		if ((N > 2) && (order[1] > order[N - 1]))
+			for (int index1 = 1, index2 = N - 1; index1 < index2; index1++, index2--) {
+				int tmp = order[index1];
+				order[index1] = order[index2];
+				order[index2] = tmp;
+			}
+		return order;
+	}
+
+	/**
+	 * Verifica il circuito corrente di Heuristic (con la lunghezza
+	 * memorizzata in tourSize) e ne restituisce l'ordine di visita.
+	 */
+	static int[] checkCurrent() {
+		return check(Heuristic.getTour(), Heuristic.getTourSize());
+	}
+}
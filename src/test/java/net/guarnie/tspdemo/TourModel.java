@@ -0,0 +1,216 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+/**
+ * Circuito di riferimento per i test delle implementazioni di Tour: un
+ * semplice vettore con l'ordine di visita, su cui ogni operazione e'
+ * banalmente corretta. Le inversioni casuali vengono applicate sia al
+ * circuito da verificare sia al riferimento, confrontando poi successore,
+ * predecessore, between() e toArray() di tutte le città.
+ */
+final class TourModel {
+	/**
+	 * Numero di città.
+	 */
+	private final int n;
+
+	/**
+	 * Città in ordine di visita e posizione di ogni città.
+	 */
+	private final int[] order, pos;
+
+	/**
+	 * Costruttore della classe: il circuito visita le città nell'ordine del
+	 * vettore "order".
+	 */
+	TourModel(int[] order) {
+		n = order.length;
+		this.order = order.clone();
+		pos = new int[n];
+		for (int count = 0; count < n; count++)
+			pos[order[count]] = count;
+	}
+
+	/**
+	 * Restituisce una permutazione casuale degli indici da 0 a n - 1.
+	 */
+	static int[] randomOrder(int n, Random random) {
+		int[] order = new int[n];
+		for (int count = 0; count < n; count++)
+			order[count] = count;
+		for (int count = n - 1; count > 0; count--) {
+			int other = random.nextInt(count + 1);
+			int tmp = order[count];
+			order[count] = order[other];
+			order[other] = tmp;
+		}
+		return order;
+	}
+
+	/**
+	 * Inverte il cammino che va da "a" a "b" percorrendo il circuito in
+	 * avanti.
+	 */
+	void reverse(int a, int b) {
+		int index1 = pos[a];
+		int index2 = pos[b];
+		int dim = (index2 - index1 + 1 + ((index1 <= index2) ? 0 : n)) >> 1;
+		while (dim-- > 0) {
+			int tmp = order[index1];
+			order[index1] = order[index2];
+			order[index2] = tmp;
+			pos[order[index1]] = index1;
+			pos[order[index2]] = index2;
+			if (++index1 == n)
+				index1 = 0;
+			if (--index2 < 0)
+				index2 = n - 1;
+		}
+	}
+
+	/**
+	 * Verifica se la città "b" si trova sul cammino che va da "a" a "c".
+	 */
+	boolean between(int a, int b, int c) {
+		return (pos[b] - pos[a] + n) % n <= (pos[c] - pos[a] + n) % n;
+	}
+
+	/**
+	 * Applica "moves" inversioni casuali al circuito "tour" e al riferimento
+	 * (che devono partire dallo stesso ordine di visita), verificando dopo
+	 * ognuna che coincidano. Meta' delle inversioni riguarda cammini corti,
+	 * come quelle delle mosse di 2-Opt e Or-Opt.
+	 */
+	void randomReversals(Tour tour, Random random, int moves) {
+		check(tour, random);
+		for (int move = 0; move < moves; move++) {
+			int a = random.nextInt(n);
+			int b;
+			if (random.nextBoolean())
+				b = random.nextInt(n);
+			else {
+				b = a;
+				for (int count = random.nextInt(4); count > 0; count--)
+					b = order[(pos[b] + 1) % n];
+			}
+			tour.reverse(a, b);
+			reverse(a, b);
+			check(tour, random);
+		}
+	}
+
+	/**
+	 * Sposta il segmento s1..s2 tra la città "u" e il suo successore (vedi
+	 * Tour.moveSegment()), ricostruendo l'ordine di visita: il resto del
+	 * circuito da v a p, poi il cammino da n a u, poi il segmento (invertito
+	 * se "forward" e' false).
+	 */
+	void moveSegment(int s1, int s2, int u, boolean forward) {
+		int[] moved = new int[n];
+		int size = 0;
+		for (int c = order[(pos[u] + 1) % n]; c != s1; c = order[(pos[c] + 1) % n])
+			moved[size++] = c;
+		for (int c = order[(pos[s2] + 1) % n]; ; c = order[(pos[c] + 1) % n]) {
+			moved[size++] = c;
+			if (c == u)
+				break;
+		}
+		int segment = size;
+		for (int c = s1; ; c = order[(pos[c] + 1) % n]) {
+			moved[size++] = c;
+			if (c == s2)
+				break;
+		}
+		if (!forward)
+			for (int index1 = segment, index2 = n - 1; index1 < index2; index1++, index2--) {
+				int tmp = moved[index1];
+				moved[index1] = moved[index2];
+				moved[index2] = tmp;
+			}
+		for (int count = 0; count < n; count++) {
+			order[count] = moved[count];
+			pos[moved[count]] = count;
+		}
+	}
+
+	/**
+	 * Applica "moves" spostamenti casuali di segmenti (di 1..OR_OPT_MAX_LEN
+	 * città) al circuito "tour" e al riferimento, verificando dopo ognuno
+	 * che coincidano; meta' degli spostamenti viene poi annullata con
+	 * undoMoveSegment().
+	 */
+	void randomSegmentMoves(Tour tour, Random random, int moves) {
+		check(tour, random);
+		if (n < Tour.OR_OPT_MAX_LEN + 3)
+			return;
+		for (int move = 0; move < moves; move++) {
+			int len = 1 + random.nextInt(Tour.OR_OPT_MAX_LEN);
+			int s1 = random.nextInt(n);
+			int s2 = order[(pos[s1] + len - 1) % n];
+
+			//
+			// u e il suo successore non fanno parte del segmento.
+			//
+			int u = order[(pos[s2] + 1 + random.nextInt(n - len - 1)) % n];
+			boolean forward = random.nextBoolean();
+			int[] before = order.clone();
+			int next = tour.moveSegment(s1, s2, u, forward);
+			assertEquals(order[(pos[s2] + 1) % n], next);
+			moveSegment(s1, s2, u, forward);
+			check(tour, random);
+			if (random.nextBoolean()) {
+				tour.undoMoveSegment(s1, s2, u, next, forward);
+				for (int count = 0; count < n; count++) {
+					order[count] = before[count];
+					pos[before[count]] = count;
+				}
+				check(tour, random);
+			}
+		}
+	}
+
+	/**
+	 * Confronta il circuito "tour" con il riferimento. Le implementazioni
+	 * possono invertire il verso dell'intero circuito (vedi Tour), per cui
+	 * il riferimento viene prima allineato al verso di "tour".
+	 */
+	void check(Tour tour, Random random) {
+		assertEquals(n, tour.size());
+		if ((n > 2) && (tour.next(order[0]) != order[1]))
+			reverse(order[0], order[n - 1]);
+		for (int c = 0; c < n; c++) {
+			assertEquals(order[(pos[c] + 1) % n], tour.next(c));
+			assertEquals(order[(pos[c] + n - 1) % n], tour.prev(c));
+		}
+		for (int count = 0; count < n; count++) {
+			int a = random.nextInt(n);
+			int b = random.nextInt(n);
+			int c = random.nextInt(n);
+			assertEquals(between(a, b, c), tour.between(a, b, c));
+		}
+		int start = random.nextInt(n);
+		int[] expected = new int[n];
+		for (int count = 0; count < n; count++)
+			expected[count] = order[(pos[start] + count) % n];
+		int[] actual = new int[n];
+		tour.toArray(start, actual);
+		assertArrayEquals(expected, actual);
+	}
+}
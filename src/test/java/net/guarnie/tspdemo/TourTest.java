@@ -0,0 +1,81 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test comuni alle implementazioni di Tour: successore, predecessore,
+ * between(), inversioni e spostamenti di segmenti (moveSegment() e
+ * undoMoveSegment()) confrontati con un circuito di riferimento (vedi
+ * TourModel). Ogni implementazione ha una sottoclasse che crea il
+ * circuito.
+ */
+public abstract class TourTest {
+	/**
+	 * Crea il circuito da verificare, che visita le città nell'ordine del
+	 * vettore "order".
+	 */
+	protected abstract Tour createTour(int[] order);
+
+	/**
+	 * Confronta il circuito con il riferimento dopo inversioni casuali, per
+	 * circuiti di "n" città.
+	 */
+	private void randomReversals(int n, long seed, int moves) {
+		Random random = new Random(seed);
+		int[] order = TourModel.randomOrder(n, random);
+		new TourModel(order).randomReversals(createTour(order.clone()), random, moves);
+	}
+
+	/**
+	 * Confronta il circuito con il riferimento dopo spostamenti casuali di
+	 * segmenti, per circuiti di "n" città.
+	 */
+	private void randomSegmentMoves(int n, long seed, int moves) {
+		Random random = new Random(seed);
+		int[] order = TourModel.randomOrder(n, random);
+		new TourModel(order).randomSegmentMoves(createTour(order.clone()), random, moves);
+	}
+
+	@Test
+	public void tinyTours() {
+		for (int n = 1; n <= 5; n++)
+			randomReversals(n, n, 50);
+	}
+
+	@Test
+	public void smallTours() {
+		for (int n = 6; n <= 40; n++)
+			randomReversals(n, 100 + n, 200);
+	}
+
+	@Test
+	public void largeTour() {
+		randomReversals(1000, 7, 1000);
+	}
+
+	@Test
+	public void smallSegmentMoves() {
+		for (int n = 6; n <= 40; n++)
+			randomSegmentMoves(n, 200 + n, 200);
+	}
+
+	@Test
+	public void largeSegmentMoves() {
+		randomSegmentMoves(1000, 9, 500);
+	}
+}
@@ -0,0 +1,24 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+/**
+ * Test di TwoLevelTour (vedi TourTest), anche dopo le ricostruzioni
+ * provocate da segmenti troppo cresciuti.
+ */
+public class TwoLevelTourTest extends TourTest {
+	protected Tour createTour(int[] order) {
+		return new TwoLevelTour(order);
+	}
+}
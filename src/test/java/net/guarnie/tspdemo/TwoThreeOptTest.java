@@ -0,0 +1,166 @@
+package net.guarnie.tspdemo;
+
+/**
+ *
+ *===========================================
+ *
+ *  "Animazione del T.S.P. Euclideo in Java"
+ *
+ *  @version 3.0
+ *  @author Francesco Guarnieri
+ *
+ *===========================================
+ *
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test di 2-Opt e 3-Opt (ImprovementHeuristic) con i candidati di default
+ * (i K nodi piu' vicini): le neighbours list non dipendono dai candidati
+ * scelti in precedenza, le due ricerche ne usano l'intera lunghezza e
+ * producono sempre lo stesso circuito a partire dalle stesse liste.
+ */
+public class TwoThreeOptTest {
+	/**
+	 * Passando alla triangolazione di Delaunay (sola o unita ai vicini) e
+	 * tornando ai K nodi piu' vicini le neighbours list restano le stesse;
+	 * nell'unione i K nodi piu' vicini sono i primi della lista, per cui
+	 * 2-Opt e 3-Opt (che la scandiscono per distanza crescente) li provano
+	 * per primi.
+	 */
+	@Test
+	public void nearestCandidatesUnchanged() {
+		Random random = new Random(41);
+		try {
+			for (int trial = 0; trial < 10; trial++) {
+				int n = 50 + random.nextInt(500);
+				TestInstance.create(n, random);
+				int[][] ids = new int[n][];
+				float[][] dists = new float[n][];
+				for (int count = 0; count < n; count++) {
+					City c = Heuristic.getCityVector(count);
+					assertEquals(City.NEIGHBOURS_LIST_SIZE, c.neighboursSize);
+					ids[count] = Arrays.copyOf(c.neighbourIds, c.neighboursSize);
+					dists[count] = Arrays.copyOf(c.neighbourDist, c.neighboursSize);
+				}
+				Heuristic.setCandidateType(Heuristic.CAND_NEAREST_DELAUNAY, null);
+				for (int count = 0; count < n; count++) {
+					City c = Heuristic.getCityVector(count);
+					assertTrue(c.neighboursSize >= City.NEIGHBOURS_LIST_SIZE);
+					assertArrayEquals(ids[count], Arrays.copyOf(c.neighbourIds, City.NEIGHBOURS_LIST_SIZE));
+				}
+				Heuristic.setCandidateType(Heuristic.CAND_DELAUNAY, null);
+				Heuristic.setCandidateType(Heuristic.CAND_NEAREST, null);
+				for (int count = 0; count < n; count++) {
+					City c = Heuristic.getCityVector(count);
+					assertArrayEquals(ids[count], Arrays.copyOf(c.neighbourIds, c.neighboursSize));
+					assertArrayEquals(dists[count], Arrays.copyOf(c.neighbourDist, c.neighboursSize), 0);
+				}
+			}
+		} finally {
+			Heuristic.setCandidateType(Heuristic.CAND_NEAREST, null);
+		}
+	}
+
+	/**
+	 * Il circuito prodotto da 2-Opt e' valido e non ammette mosse 2-Opt
+	 * migliorative che colleghino una città ad uno dei suoi vicini (compreso
+	 * l'ultimo della lista) piu' vicino di quello di cui elimina l'arco.
+	 */
+	@Test
+	public void twoOptReachesLocalOptimum() {
+		Random random = new Random(43);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 10 + random.nextInt(500);
+			int[] start = TestInstance.create(n, random);
+			new ImprovementHeuristic(null, ImprovementHeuristic.TWO_CHANGE).twoChange();
+			TestInstance.checkCurrent();
+			assertTrue(Heuristic.getTourSize() < TestInstance.length(start));
+			Tour t = Heuristic.getTour();
+			for (int t1 = 0; t1 < n; t1++)
+				for (int dir = 0; dir < 2; dir++) {
+					int t2 = (dir == 0) ? t.next(t1) : t.prev(t1);
+					City c = Heuristic.getCityVector(t1);
+					for (int ind = 0; ind < c.neighboursSize; ind++) {
+						int t3 = c.neighbourIds[ind];
+						int t4 = (dir == 0) ? t.next(t3) : t.prev(t3);
+						if ((t3 == t2) || (t4 == t1) || (Heuristic.dist(t1, t3) >= Heuristic.dist(t1, t2)))
+							continue;
+						double gain = Heuristic.dist(t1, t2) + Heuristic.dist(t3, t4)
+								- Heuristic.dist(t1, t3) - Heuristic.dist(t2, t4);
+						assertTrue(gain <= TestInstance.EPS);
+					}
+				}
+		}
+	}
+
+	/**
+	 * Il circuito prodotto da 3-Opt e' valido, e una seconda esecuzione non
+	 * lo allunga. Con le don't-look bit la prima esecuzione puo' lasciare
+	 * qualche mossa migliorativa (una mossa cambia l'ordine delle città
+	 * lontane, che non vengono rimesse in coda), per cui non si richiede un
+	 * ottimo locale.
+	 */
+	@Test
+	public void threeOptImproves() {
+		Random random = new Random(47);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 10 + random.nextInt(500);
+			int[] start = TestInstance.create(n, random);
+			new ImprovementHeuristic(null, ImprovementHeuristic.THREE_CHANGE).threeChange();
+			TestInstance.checkCurrent();
+			double length = Heuristic.getTourSize();
+			assertTrue(length < TestInstance.length(start));
+			new ImprovementHeuristic(null, ImprovementHeuristic.THREE_CHANGE).threeChange();
+			TestInstance.checkCurrent();
+			assertTrue(Heuristic.getTourSize() <= length);
+		}
+	}
+
+	/**
+	 * Con le stesse neighbours list 2-Opt e 3-Opt producono lo stesso
+	 * circuito anche dopo essere passati per gli altri tipi di candidati.
+	 */
+	@Test
+	public void sameToursAfterCandidateSwitch() {
+		Random random = new Random(53);
+		try {
+			for (int trial = 0; trial < 10; trial++) {
+				int n = 50 + random.nextInt(500);
+				int[] start = TestInstance.create(n, random);
+				for (int execID : new int[] { ImprovementHeuristic.TWO_CHANGE, ImprovementHeuristic.THREE_CHANGE }) {
+					Heuristic.setTour(TestInstance.length(start), start.clone());
+					int[] expected = optimize(execID);
+					Heuristic.setCandidateType(Heuristic.CAND_DELAUNAY, null);
+					Heuristic.setCandidateType(Heuristic.CAND_NEAREST, null);
+					Heuristic.setTour(TestInstance.length(start), start.clone());
+					assertArrayEquals(expected, optimize(execID));
+				}
+			}
+		} finally {
+			Heuristic.setCandidateType(Heuristic.CAND_NEAREST, null);
+		}
+	}
+
+	/**
+	 * Esegue 2-Opt o 3-Opt sul circuito corrente e ne restituisce l'ordine
+	 * di visita.
+	 */
+	private static int[] optimize(int execID) {
+		ImprovementHeuristic h = new ImprovementHeuristic(null, execID);
+		if (execID == ImprovementHeuristic.TWO_CHANGE)
+			h.twoChange();
+		else
+			h.threeChange();
+		return TestInstance.checkCurrent();
+	}
+}